@@ -0,0 +1,68 @@
+package com.example.petworld;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arranque de la aplicación para los benchmarks JMH: perfil "benchmark" (H2 en memoria) y datos
+ * de prueba de un solo dueño, el usuario fijo que usa PetService
+ */
+public final class BenchmarkApplication {
+
+    public static final long OWNER_ID = 1L;
+
+    private static final String[] TYPES = {"Dog", "Cat", "Dragon", "Pokemon"};
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * Levanta el contexto completo, igual que en producción salvo la base de datos
+     */
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(PetWorldApplication.class)
+                .profiles("benchmark")
+                .run();
+    }
+
+    /**
+     * Crea el dueño y sus mascotas, con estados de hace unas horas para que leerlas calcule
+     * el decaimiento
+     * @param petCount Cantidad de mascotas
+     * @return Las mascotas guardadas, con su dueño
+     */
+    public static List<Pet> seed(ConfigurableApplicationContext context, int petCount) {
+        context.getBean(JdbcTemplate.class).update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "benchmarkOwner", "benchmark@petworld.com");
+        User owner = context.getBean(UserRepository.class).findById(OWNER_ID).orElseThrow();
+
+        LocalDateTime snapshot = LocalDateTime.now().minusHours(3);
+        List<Pet> pets = new ArrayList<>(petCount);
+        for (int i = 0; i < petCount; i++) {
+            Pet pet = new Pet();
+            pet.setName("Pet " + i);
+            pet.setType(TYPES[i % TYPES.length]);
+            pet.setDescription("A pet seeded for the benchmarks");
+            pet.setImageUrl("http://example.com/pets/" + i + ".jpg");
+            pet.setHunger(80);
+            pet.setHappiness(70);
+            pet.setHealth(90);
+            pet.setEnergy(60);
+            pet.setCreatedAt(snapshot);
+            pet.setLastInteraction(snapshot);
+            pet.setStatesUpdatedAt(snapshot);
+            pet.setOwner(owner);
+            pets.add(pet);
+        }
+        return context.getBean(PetRepository.class).saveAll(pets);
+    }
+}
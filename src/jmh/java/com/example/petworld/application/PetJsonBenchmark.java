@@ -0,0 +1,84 @@
+package com.example.petworld.application;
+
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.dto.User.UserSimpleDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de lo que cuesta escribir una lista de mascotas en la respuesta: serializarla con
+ * Jackson y calcular su ETag (PetHttpCaching)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetJsonBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int listSize;
+
+    private ObjectMapper objectMapper;
+    private List<PetResponseDTO> pets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // La misma configuración que el ObjectMapper de Spring Boot (fechas en ISO-8601)
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        LocalDateTime now = LocalDateTime.now();
+        UserSimpleDTO owner = new UserSimpleDTO();
+        owner.setId(1L);
+        owner.setUsername("benchmarkOwner");
+        pets = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            PetResponseDTO pet = new PetResponseDTO();
+            pet.setId((long) i);
+            pet.setName("Pet " + i);
+            pet.setDescription("A pet serialized by the benchmarks");
+            pet.setType("Dog");
+            pet.setImageUrl("http://example.com/pets/" + i + ".jpg");
+            pet.setHunger(80);
+            pet.setHappiness(70);
+            pet.setHealth(90);
+            pet.setEnergy(60);
+            pet.setLastInteraction(now);
+            pet.setCreatedAt(now);
+            pet.setOwner(owner);
+            pets.add(pet);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pets);
+    }
+
+    @Benchmark
+    public String eTag() {
+        return PetHttpCaching.eTag(pets);
+    }
+}
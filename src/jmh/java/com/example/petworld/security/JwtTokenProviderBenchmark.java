@@ -0,0 +1,70 @@
+package com.example.petworld.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de JwtTokenProvider: emitir un token, validarlo cuando ya está en la caché de
+ * tokens verificados (el caso de cada petición) y verificar la firma completa (primera petición
+ * con un token)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private Authentication authentication;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        jwtTokenProvider = new JwtTokenProvider();
+        // Los mismos valores que application.properties
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret",
+                "petWorldSecretKeyForJwtAuthenticationThatIsLongEnoughForSecurity");
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 86400000);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedTokenCacheMaxSize", 10000);
+        jwtTokenProvider.init();
+
+        UserDetailsImpl principal = new UserDetailsImpl(1L, "benchmarkOwner", "benchmark@petworld.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        token = jwtTokenProvider.generateToken(authentication);
+        jwtTokenProvider.getValidatedClaims(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public UserDetailsImpl validateCachedToken() {
+        return jwtTokenProvider.getUserDetailsFromClaims(jwtTokenProvider.getValidatedClaims(token));
+    }
+
+    @Benchmark
+    public String verifySignature() {
+        return jwtTokenProvider.getUserEmailFromJWT(token);
+    }
+}
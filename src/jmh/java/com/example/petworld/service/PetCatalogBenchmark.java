@@ -0,0 +1,68 @@
+package com.example.petworld.service;
+
+import com.example.petworld.BenchmarkApplication;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de PetService.getAllPets con catálogos de distintos tamaños: consulta con el dueño,
+ * decaimiento y conversión de cada mascota
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PetCatalogBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private PetService petService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start();
+        petService = context.getBean(PetService.class);
+        BenchmarkApplication.seed(context, catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PetResponseDTO> getAllPets() {
+        return petService.getAllPets(null, null);
+    }
+
+    @Benchmark
+    public List<PetResponseDTO> getAllPetsByType() {
+        // Una cuarta parte del catálogo (ver BenchmarkApplication.seed)
+        return petService.getAllPets("Dog", null);
+    }
+
+    @Benchmark
+    public List<PetResponseDTO> getAllPetsByOwner() {
+        return petService.getAllPets(null, BenchmarkApplication.OWNER_ID);
+    }
+}
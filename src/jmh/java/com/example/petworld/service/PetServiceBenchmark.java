@@ -0,0 +1,76 @@
+package com.example.petworld.service;
+
+import com.example.petworld.BenchmarkApplication;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de las operaciones de una mascota en PetService: la interacción completa
+ * (transacción, UPDATE con versión, INSERT de la interacción, contadores y eventos) y los dos
+ * cálculos que se hacen en cada lectura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PetServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private PetService petService;
+    private Long petId;
+    private Pet pet;
+    private LocalDateTime snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start();
+        petService = context.getBean(PetService.class);
+        pet = BenchmarkApplication.seed(context, 1).get(0);
+        petId = pet.getId();
+        snapshot = pet.getStatesUpdatedAt();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PetResponseDTO interactWithPet() {
+        return petService.interactWithPet(petId, "FEED");
+    }
+
+    @Benchmark
+    public Pet updatePetStates() {
+        // Se parte siempre de la misma foto: si no, los estados llegan a 0 y el cálculo cambia
+        pet.setHunger(80);
+        pet.setHappiness(70);
+        pet.setHealth(90);
+        pet.setEnergy(60);
+        petService.updatePetStates(pet, snapshot.plusHours(3));
+        return pet;
+    }
+
+    @Benchmark
+    public PetResponseDTO convertToResponseDTO() {
+        return petService.convertToResponseDTO(pet);
+    }
+}
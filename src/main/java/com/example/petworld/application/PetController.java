@@ -1,21 +1,33 @@
 package com.example.petworld.application;
 
+import com.example.petworld.dto.Interaction.InteractionBatchResultDTO;
+import com.example.petworld.dto.Interaction.InteractionCreateDTO;
+import com.example.petworld.dto.Interaction.InteractionPageDTO;
 import com.example.petworld.dto.Interaction.InteractionResponseDTO;
 import com.example.petworld.dto.Pet.PetCreateDTO;
+import com.example.petworld.dto.Pet.PetPageDTO;
 import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.dto.Pet.PetStatsDTO;
 import com.example.petworld.dto.ResponseDTO;
 import com.example.petworld.exception.ResourceNotFoundException;
 import com.example.petworld.security.UserDetailsImpl;
 import com.example.petworld.service.PetService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -23,10 +35,14 @@ import java.util.List;
 @RequestMapping("/api/pets")
 public class PetController {
     private final PetService petService;
+    private final ObjectMapper objectMapper;
+    private final PetHttpCaching petHttpCaching;
 
     @Autowired
-    public PetController(PetService petService) {
+    public PetController(PetService petService, ObjectMapper objectMapper, PetHttpCaching petHttpCaching) {
         this.petService = petService;
+        this.objectMapper = objectMapper;
+        this.petHttpCaching = petHttpCaching;
     }
 
     @PostMapping
@@ -70,18 +86,58 @@ public class PetController {
         }
     }
 
+    /**
+     * Catálogo con filtros opcionales; responde 304 si la lista no cambió (If-None-Match)
+     */
     @GetMapping
     public ResponseEntity<List<PetResponseDTO>> getAllPets(
             @RequestParam(required = false) String type,
             @RequestParam(required = false) Long ownerId) {
         List<PetResponseDTO> pets = petService.getAllPets(type, ownerId);
-        return new ResponseEntity<>(pets, HttpStatus.OK);
+        return petHttpCaching.ok(pets);
     }
 
+    /**
+     * Catálogo paginado por cursor: se activa al enviar "limit" y usa "after" como cursor
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<PetPageDTO> getPetsPage(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Long ownerId,
+            @RequestParam(required = false) Long after,
+            @RequestParam int limit) {
+        PetPageDTO page = petService.getPetsPage(type, ownerId, after, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    /**
+     * Catálogo completo en formato NDJSON (una mascota por línea), escrito a medida que se lee
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPets(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Long ownerId) {
+        StreamingResponseBody body = outputStream ->
+                petService.streamAllPets(type, ownerId, pet -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(pet));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Mascota por ID; responde 304 si no cambió (If-None-Match)
+     */
     @GetMapping("/{id}")
     public ResponseEntity<PetResponseDTO> getPetById(@PathVariable Long id) {
         PetResponseDTO pet = petService.getPetById(id);
-        return new ResponseEntity<>(pet, HttpStatus.OK);
+        return petHttpCaching.ok(pet);
     }
 
     @PutMapping("/{id}")
@@ -106,6 +162,30 @@ public class PetController {
         return new ResponseEntity<>(interactions, HttpStatus.OK);
     }
 
+    /**
+     * Historial paginado por cursor: se activa al enviar "limit" y usa "before" como cursor
+     */
+    @GetMapping(value = "/{id}/interactions", params = "limit")
+    public ResponseEntity<InteractionPageDTO> getPetInteractionsPage(
+            @PathVariable Long id,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String before,
+            @RequestParam int limit) {
+        InteractionPageDTO page = petService.getPetInteractionsPage(id, type, from, to, before, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    /**
+     * Contadores de interacciones de la mascota (totales y por tipo)
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<PetStatsDTO> getPetStats(@PathVariable Long id) {
+        PetStatsDTO stats = petService.getPetStats(id);
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
     @PostMapping("/{id}/feed")
     public ResponseEntity<PetResponseDTO> feedPet(@PathVariable Long id) {
         PetResponseDTO pet = petService.interactWithPet(id, "FEED");
@@ -123,4 +203,14 @@ public class PetController {
         PetResponseDTO pet = petService.interactWithPet(id, "HEAL");
         return new ResponseEntity<>(pet, HttpStatus.OK);
     }
+
+    /**
+     * Aplica varias interacciones (de una o varias mascotas) en una sola petición
+     */
+    @PostMapping("/interactions:batch")
+    public ResponseEntity<List<InteractionBatchResultDTO>> interactWithPets(
+            @RequestBody List<InteractionCreateDTO> interactions) {
+        List<InteractionBatchResultDTO> results = petService.interactWithPets(interactions);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.example.petworld.application;
+
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET condicionales de las mascotas: ETag fuerte y Cache-Control en las respuestas.
+ * El ETag es un hash de los campos que se envían, estados ya calculados incluidos, así que
+ * cambia con el decaimiento y con cambios que no tocan ninguna fecha (editar la mascota,
+ * renombrar al dueño). Spring compara el ETag con If-None-Match y responde 304 sin escribir
+ * el cuerpo.
+ * No se envía Last-Modified: ninguna fecha de la mascota cubre todos esos cambios y un 304
+ * por If-Modified-Since devolvería estados viejos.
+ */
+@Component
+public class PetHttpCaching {
+
+    private static final byte FIELD_SEPARATOR = 0;
+    private static final byte NULL_FIELD = 1;
+    private static final byte PET_SEPARATOR = 2;
+
+    // Segundos que el cliente puede reutilizar la respuesta sin preguntar (0: revalida siempre).
+    // Siempre "private": la respuesta depende del token de la petición y una caché compartida
+    // (proxy, CDN) no debe guardarla ni servírsela a otro usuario
+    @Value("${app.http.pets.max-age-seconds:0}")
+    private long maxAgeSeconds;
+
+    /**
+     * Respuesta 200 con ETag de la mascota (o 304 si coincide con If-None-Match)
+     */
+    public ResponseEntity<PetResponseDTO> ok(PetResponseDTO pet) {
+        return ResponseEntity.ok()
+                .eTag(eTag(List.of(pet)))
+                .cacheControl(cacheControl())
+                .body(pet);
+    }
+
+    /**
+     * Respuesta 200 con el ETag de la lista completa, en su orden (o 304 si coincide)
+     */
+    public ResponseEntity<List<PetResponseDTO>> ok(List<PetResponseDTO> pets) {
+        return ResponseEntity.ok()
+                .eTag(eTag(pets))
+                .cacheControl(cacheControl())
+                .body(pets);
+    }
+
+    private CacheControl cacheControl() {
+        if (maxAgeSeconds <= 0) {
+            return CacheControl.noCache().cachePrivate();
+        }
+        return CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePrivate();
+    }
+
+    /**
+     * ETag fuerte de una lista de mascotas tal como se envía (una mascota: lista de un elemento)
+     */
+    public static String eTag(List<PetResponseDTO> pets) {
+        MessageDigest digest = sha256();
+        for (PetResponseDTO pet : pets) {
+            update(digest, pet.getId());
+            update(digest, pet.getName());
+            update(digest, pet.getDescription());
+            update(digest, pet.getType());
+            update(digest, pet.getImageUrl());
+            update(digest, pet.getHunger());
+            update(digest, pet.getHappiness());
+            update(digest, pet.getHealth());
+            update(digest, pet.getEnergy());
+            update(digest, pet.getLastInteraction());
+            update(digest, pet.getCreatedAt());
+            update(digest, pet.getOwner() != null ? pet.getOwner().getId() : null);
+            update(digest, pet.getOwner() != null ? pet.getOwner().getUsername() : null);
+            digest.update(PET_SEPARATOR);
+        }
+        // 128 bits bastan para distinguir versiones de un mismo recurso
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        if (value == null) {
+            digest.update(NULL_FIELD);
+        } else {
+            digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(FIELD_SEPARATOR);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
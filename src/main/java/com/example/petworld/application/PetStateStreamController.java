@@ -0,0 +1,44 @@
+package com.example.petworld.application;
+
+import com.example.petworld.exception.ResourceNotFoundException;
+import com.example.petworld.service.PetStateStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/pets")
+public class PetStateStreamController {
+    private final PetStateStreamService petStateStreamService;
+
+    @Autowired
+    public PetStateStreamController(PetStateStreamService petStateStreamService) {
+        this.petStateStreamService = petStateStreamService;
+    }
+
+    /**
+     * Suscripción por Server-Sent Events a los estados de la mascota: primero un evento
+     * "state" con todos y después eventos "delta" con los que cambian.
+     * Responde 503 si el nodo ya tiene el máximo de suscripciones abiertas
+     */
+    @GetMapping(value = "/{id}/state-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@PathVariable Long id) {
+        try {
+            return petStateStreamService.subscribe(id)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "5")
+                            .build());
+        } catch (ResourceNotFoundException e) {
+            // El cliente pide text/event-stream: el ErrorResponse en JSON no se podría escribir
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
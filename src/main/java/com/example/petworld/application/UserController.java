@@ -16,10 +16,12 @@ import java.util.List;
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final PetHttpCaching petHttpCaching;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, PetHttpCaching petHttpCaching) {
         this.userService = userService;
+        this.petHttpCaching = petHttpCaching;
     }
 
     @PostMapping
@@ -54,9 +56,12 @@ public class UserController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * Mascotas del usuario; responde 304 si la lista no cambió (If-None-Match)
+     */
     @GetMapping("/{id}/pets")
     public ResponseEntity<List<PetResponseDTO>> getUserPets(@PathVariable Long id) {
         List<PetResponseDTO> pets = userService.getUserPets(id);
-        return new ResponseEntity<>(pets, HttpStatus.OK);
+        return petHttpCaching.ok(pets);
     }
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.example.petworld.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
-
 /**
  * Configuración para habilitar el procesamiento asincrónico de eventos
  */
@@ -15,16 +18,62 @@ import java.util.concurrent.Executor;
 public class AsyncConfig {
 
     /**
-     * Configura un pool de hilos para el procesamiento asincrónico
+     * Qué hacer con una tarea cuando todos los hilos están ocupados y la cola está llena
+     */
+    public enum RejectionPolicy {
+        CALLER_RUNS, // La ejecuta el hilo que la envía: frena al productor sin perder la tarea
+        DROP, // Se descarta, se cuenta en las métricas y se cancela su Future
+        ABORT // Se lanza TaskRejectedException a quien la envía
+    }
+
+    @Value("${app.async.core-pool-size:2}")
+    private int corePoolSize;
+
+    @Value("${app.async.max-pool-size:5}")
+    private int maxPoolSize;
+
+    @Value("${app.async.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${app.async.rejection-policy:CALLER_RUNS}")
+    private RejectionPolicy rejectionPolicy;
+
+    /**
+     * Configura un pool de hilos acotado para el procesamiento asincrónico (entre otros, los
+     * listeners de los eventos que entrega OutboxRelay).
+     * Con hilos virtuales (spring.threads.virtual.enabled en Java 21+) cada tarea usa su propio
+     * hilo virtual y, en lugar de cola, se permiten max-pool-size tareas a la vez: quien
+     * envía la tarea espera a que se libere un lugar
      */
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public AsyncTaskExecutor taskExecutor(Environment environment) {
+        AsyncExecutorMetrics metrics = asyncExecutorMetrics();
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("PetWorld-Async-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxPoolSize);
+            executor.setTaskDecorator(metrics::decorate);
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(10);
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("PetWorld-Async-");
+        executor.setTaskDecorator(metrics::decorate);
+        executor.setRejectedExecutionHandler(metrics.rejectionHandler(rejectionPolicy));
         executor.initialize();
+        metrics.monitor(executor);
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Métricas del taskExecutor (hilos activos, cola, rechazos y latencia de las tareas)
+     */
+    @Bean
+    public AsyncExecutorMetrics asyncExecutorMetrics() {
+        return new AsyncExecutorMetrics("taskExecutor");
+    }
+}
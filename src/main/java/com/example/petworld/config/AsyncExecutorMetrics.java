@@ -0,0 +1,176 @@
+package com.example.petworld.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de un executor de tareas: tareas en ejecución, latencia (espera y ejecución) y,
+ * si es un ThreadPoolTaskExecutor, tamaño del pool, profundidad de la cola y rechazos
+ * según la política configurada.
+ * Se registran en Micrometer como MeterBinder; los valores se acumulan aquí, así que
+ * también pueden leerse sin un MeterRegistry.
+ */
+@Slf4j
+public class AsyncExecutorMetrics implements MeterBinder {
+
+    private final String name;
+    private ThreadPoolTaskExecutor executor;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+
+    public AsyncExecutorMetrics(String name) {
+        this.name = name;
+    }
+
+    void monitor(ThreadPoolTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Envuelve la tarea para medir cuánto esperó en la cola y cuánto tardó en ejecutarse
+     */
+    Runnable decorate(Runnable task) {
+        return new MeasuredTask(task, System.nanoTime());
+    }
+
+    /**
+     * Manejador para tareas que no entran en el pool ni en la cola
+     * @param policy Política de rechazo configurada
+     */
+    public RejectedExecutionHandler rejectionHandler(AsyncConfig.RejectionPolicy policy) {
+        return (task, pool) -> {
+            rejected.increment();
+            if (pool.isShutdown()) {
+                dropped.increment();
+                cancel(task);
+                return;
+            }
+            switch (policy) {
+                case CALLER_RUNS:
+                    callerRuns.increment();
+                    task.run();
+                    break;
+                case DROP:
+                    dropped.increment();
+                    cancel(task);
+                    log.warn("Tarea asincrónica descartada: {} lleno (cola de {})", name, pool.getQueue().size());
+                    break;
+                default:
+                    throw new RejectedExecutionException("Tarea rechazada: " + name + " lleno");
+            }
+        };
+    }
+
+    /**
+     * Una tarea enviada con submit() que se descarta nunca terminaría su Future: se cancela
+     * para que quien la espera (p. ej. OutboxRelay) se entere y la reintente
+     */
+    private static void cancel(Runnable task) {
+        Runnable original = task instanceof MeasuredTask measured ? measured.task : task;
+        if (original instanceof Future<?> future) {
+            future.cancel(false);
+        }
+    }
+
+    private class MeasuredTask implements Runnable {
+        private final Runnable task;
+        private final long submittedAt;
+
+        MeasuredTask(Runnable task, long submittedAt) {
+            this.task = task;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            queueWaitNanos.add(startedAt - submittedAt);
+            active.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                active.decrementAndGet();
+                executionNanos.add(System.nanoTime() - startedAt);
+                completed.increment();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Iterable<Tag> tags = Tags.of("name", name);
+        Gauge.builder("petworld.async.active", active, AtomicInteger::get)
+                .tags(tags).description("Tareas en ejecución").register(registry);
+        if (executor != null) {
+            Gauge.builder("petworld.async.pool.size", this, metrics -> metrics.executor.getPoolSize())
+                    .tags(tags).description("Hilos del pool").register(registry);
+            Gauge.builder("petworld.async.queue.size", this, AsyncExecutorMetrics::getQueueSize)
+                    .tags(tags).description("Tareas esperando en la cola").register(registry);
+            Gauge.builder("petworld.async.queue.remaining", this,
+                            metrics -> metrics.executor.getThreadPoolExecutor().getQueue().remainingCapacity())
+                    .tags(tags).description("Lugares libres en la cola").register(registry);
+        }
+        FunctionCounter.builder("petworld.async.rejected", rejected, LongAdder::sum)
+                .tags(tags).description("Tareas que no entraron en el pool ni en la cola").register(registry);
+        FunctionCounter.builder("petworld.async.caller.runs", callerRuns, LongAdder::sum)
+                .tags(tags).description("Tareas rechazadas ejecutadas por el hilo que las envió").register(registry);
+        FunctionCounter.builder("petworld.async.dropped", dropped, LongAdder::sum)
+                .tags(tags).description("Tareas rechazadas y descartadas").register(registry);
+        FunctionCounter.builder("petworld.async.failed", failed, LongAdder::sum)
+                .tags(tags).description("Tareas que terminaron con una excepción").register(registry);
+        FunctionTimer.builder("petworld.async.queue.wait", this, AsyncExecutorMetrics::getCompleted,
+                        metrics -> metrics.queueWaitNanos.sum(), TimeUnit.NANOSECONDS)
+                .tags(tags).description("Espera en la cola antes de ejecutarse").register(registry);
+        FunctionTimer.builder("petworld.async.execution", this, AsyncExecutorMetrics::getCompleted,
+                        metrics -> metrics.executionNanos.sum(), TimeUnit.NANOSECONDS)
+                .tags(tags).description("Duración de la ejecución de las tareas").register(registry);
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueueSize() {
+        return executor != null ? executor.getThreadPoolExecutor().getQueue().size() : 0;
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getCallerRuns() {
+        return callerRuns.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.petworld.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limita cuántas peticiones se atienden a la vez. Con hilos virtuales Tomcat ya no tiene un
+ * máximo de hilos y todas las peticiones competirían por las conexiones de Hikari hasta
+ * agotar connection-timeout; aquí solo pasan tantas como conexiones tiene el pool y el resto
+ * espera su turno (en orden de llegada) hasta acquire-timeout-ms, tras lo cual recibe un 503.
+ */
+public class JdbcConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final int maxConcurrentRequests;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    public JdbcConcurrencyLimitFilter(int maxConcurrentRequests, long acquireTimeoutMs) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Servidor ocupado, intenta de nuevo en unos segundos");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petworld.requests.limiter.in.flight", this, JdbcConcurrencyLimitFilter::getInFlight)
+                .description("Peticiones en curso").register(registry);
+        Gauge.builder("petworld.requests.limiter.waiting", permits, Semaphore::getQueueLength)
+                .description("Peticiones esperando turno").register(registry);
+        FunctionCounter.builder("petworld.requests.limiter.rejected", rejected, LongAdder::sum)
+                .description("Peticiones rechazadas con 503 tras esperar acquire-timeout-ms").register(registry);
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getInFlight() {
+        return maxConcurrentRequests - permits.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.petworld.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Métricas propias de la aplicación, además de las que registra Actuator (peticiones HTTP por
+ * endpoint en http.server.requests, pool de Hikari, JVM). Se publican en /actuator/prometheus.
+ * - petworld.service: cada método público de los servicios anotados con @Timed
+ * - petworld.repository.invocations: cada llamada a un repositorio, registrada por Actuator
+ *   (management.metrics.data.repository.*)
+ * - Los componentes con contadores propios (cachés, JWT, executor, limitador, buzones, outbox,
+ *   bus de eventos, suscripciones SSE, decaimiento y leases) son MeterBinder; sus métricas solo
+ *   se publican aquí, no en endpoints de la API
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
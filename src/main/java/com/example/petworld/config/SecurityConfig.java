@@ -2,6 +2,7 @@ package com.example.petworld.config;
 
 import com.example.petworld.security.JwtAuthenticationEntryPoint;
 import com.example.petworld.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -49,10 +50,14 @@ public class SecurityConfig {
                 .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
                 .authorizeHttpRequests(auth -> auth
+                        // Los despachos asíncronos (respuestas en streaming) ya fueron autorizados en la petición original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Rutas públicas que no requieren autenticación
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Salud y métricas para el balanceador y Prometheus (restringir por red en producción)
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         // Cualquier otra petición requiere autenticación
                         .anyRequest().authenticated()
                 );
@@ -0,0 +1,61 @@
+package com.example.petworld.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Presupuesto de SQL por petición (app.sql.budget.enabled): envuelve el DataSource con
+ * datasource-proxy para ver cada sentencia ejecutada y registra SqlQueryBudgetFilter
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql.budget.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlQueryBudgetConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de la configuración
+    @Bean
+    public static BeanPostProcessor sqlQueryDataSourceProxy(
+            @Value("${app.sql.budget.slow-query-ms:200}") long slowQueryMs) {
+        SqlQueryListener listener = new SqlQueryListener(slowQueryMs);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(listener)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlQueryBudgetFilter sqlQueryBudgetFilter(
+            MeterRegistry registry,
+            @Value("${app.sql.budget.max-queries:20}") int maxQueries,
+            @Value("${app.sql.budget.slow-request-ms:1000}") long slowRequestMs,
+            @Value("${app.sql.budget.max-logged-statements:50}") int maxLoggedStatements) {
+        return new SqlQueryBudgetFilter(registry, maxQueries, slowRequestMs, maxLoggedStatements);
+    }
+
+    /**
+     * Antes que la seguridad, para contar también las consultas de la autenticación
+     */
+    @Bean
+    public FilterRegistrationBean<SqlQueryBudgetFilter> sqlQueryBudgetFilterRegistration(SqlQueryBudgetFilter filter) {
+        FilterRegistrationBean<SqlQueryBudgetFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.petworld.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presupuesto de SQL por petición: cuenta las sentencias y el tiempo en la base de cada
+ * petición (ver SqlQueryListener) y
+ * - registra por endpoint (método + patrón de la URI) el histograma petworld.http.requests.queries
+ *   y el timer petworld.http.requests.query.time
+ * - avisa en el log, con las sentencias ejecutadas, cuando la petición supera max-queries
+ *   sentencias o slow-request-ms de duración (y lo cuenta en petworld.http.requests.over.budget)
+ * - deja las estadísticas en el atributo QUERY_STATS_ATTRIBUTE de la petición, para las pruebas
+ * Las respuestas asíncronas (streaming, SSE) solo cuentan lo ejecutado antes de liberar el hilo.
+ */
+@Slf4j
+public class SqlQueryBudgetFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_STATS_ATTRIBUTE = SqlQueryBudgetFilter.class.getName() + ".stats";
+
+    // Límites en cantidad de sentencias por petición para el histograma
+    private static final double[] QUERY_COUNT_BUCKETS = {1, 2, 3, 5, 10, 20, 50, 100};
+
+    private final MeterRegistry registry;
+    private final int maxQueries;
+    private final long slowRequestMs;
+    private final int maxLoggedStatements;
+
+    public SqlQueryBudgetFilter(MeterRegistry registry, int maxQueries, long slowRequestMs, int maxLoggedStatements) {
+        this.registry = registry;
+        this.maxQueries = maxQueries;
+        this.slowRequestMs = slowRequestMs;
+        this.maxLoggedStatements = maxLoggedStatements;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlQueryStats stats = SqlQueryStats.start(maxLoggedStatements);
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlQueryStats.stop();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            request.setAttribute(QUERY_STATS_ATTRIBUTE, stats);
+            record(request, stats, elapsedMs);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlQueryStats stats, long elapsedMs) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("petworld.http.requests.queries")
+                .description("Sentencias SQL por petición")
+                .baseUnit("queries")
+                .serviceLevelObjectives(QUERY_COUNT_BUCKETS)
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.getCount());
+        Timer.builder("petworld.http.requests.query.time")
+                .description("Tiempo en la base de datos por petición")
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.getElapsedMillis(), TimeUnit.MILLISECONDS);
+
+        if (stats.getCount() > maxQueries || elapsedMs > slowRequestMs) {
+            Counter.builder("petworld.http.requests.over.budget")
+                    .description("Peticiones que superaron el presupuesto de sentencias o de duración")
+                    .tags("method", method, "uri", uri)
+                    .register(registry)
+                    .increment();
+            log.warn("{} {} fuera de presupuesto: {} sentencias SQL (máximo {}), {} ms en SQL, {} ms en total (máximo {} ms)\n  {}",
+                    method, request.getRequestURI(), stats.getCount(), maxQueries, stats.getElapsedMillis(),
+                    elapsedMs, slowRequestMs, String.join("\n  ", stats.getStatements()));
+        }
+    }
+}
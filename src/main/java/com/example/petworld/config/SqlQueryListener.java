@@ -0,0 +1,46 @@
+package com.example.petworld.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Recibe cada sentencia ejecutada por el DataSource (datasource-proxy): la suma a la petición
+ * en curso, si la hay, y avisa de las que tardan slowQueryMs o más
+ */
+@Slf4j
+class SqlQueryListener implements QueryExecutionListener {
+
+    private final long slowQueryMs;
+
+    SqlQueryListener(long slowQueryMs) {
+        this.slowQueryMs = slowQueryMs;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SqlQueryStats stats = SqlQueryStats.current();
+        if (stats == null && execInfo.getElapsedTime() < slowQueryMs) {
+            return;
+        }
+
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        if (execInfo.isBatch()) {
+            sql = "[lote de " + execInfo.getBatchSize() + "] " + sql;
+        }
+        if (stats != null) {
+            stats.record(sql, execInfo.getElapsedTime());
+        }
+        if (execInfo.getElapsedTime() >= slowQueryMs) {
+            log.warn("Consulta SQL lenta ({} ms): {}", execInfo.getElapsedTime(), sql);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.petworld.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sentencias SQL ejecutadas durante una petición HTTP: cantidad, tiempo total en la base y el
+ * texto de las primeras (hasta maxRecorded) con su duración.
+ * Se asocia al hilo que atiende la petición (SqlQueryBudgetFilter); las sentencias de otros
+ * hilos (listeners del outbox, buzones, trabajos programados) no se cuentan.
+ */
+public final class SqlQueryStats {
+
+    private static final ThreadLocal<SqlQueryStats> CURRENT = new ThreadLocal<>();
+
+    private final int maxRecorded;
+    private final List<String> statements = new ArrayList<>();
+    private int count;
+    private long elapsedMillis;
+
+    private SqlQueryStats(int maxRecorded) {
+        this.maxRecorded = maxRecorded;
+    }
+
+    /**
+     * Empieza a contar las sentencias del hilo actual
+     */
+    static SqlQueryStats start(int maxRecorded) {
+        SqlQueryStats stats = new SqlQueryStats(maxRecorded);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * @return Las estadísticas de la petición en curso en este hilo, o null si no hay ninguna
+     */
+    static SqlQueryStats current() {
+        return CURRENT.get();
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    void record(String sql, long elapsedMillis) {
+        count++;
+        this.elapsedMillis += elapsedMillis;
+        if (statements.size() < maxRecorded) {
+            statements.add(elapsedMillis + " ms | " + sql);
+        }
+    }
+
+    /**
+     * Sentencias ejecutadas (un lote JDBC cuenta como una)
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Tiempo total en la base de datos
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Las primeras sentencias con su duración ("12 ms | select ..."), en orden de ejecución
+     */
+    public List<String> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.petworld.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuración para el modo de hilos virtuales (spring.threads.virtual.enabled en Java 21+,
+ * ver el perfil "virtual-threads"). Spring Boot ya atiende las peticiones de Tomcat con hilos
+ * virtuales; aquí se agrega el límite de concurrencia según el pool de conexiones
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    // 0: tantas peticiones a la vez como conexiones tiene el pool de Hikari
+    @Value("${app.virtual-threads.max-concurrent-requests:0}")
+    private int maxConcurrentRequests;
+
+    @Value("${app.virtual-threads.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
+    @Bean
+    public JdbcConcurrencyLimitFilter jdbcConcurrencyLimitFilter(DataSource dataSource) {
+        int limit = maxConcurrentRequests;
+        if (limit <= 0) {
+            // El DataSource puede venir envuelto (ver SqlQueryBudgetConfig)
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class);
+            limit = hikari != null ? hikari.getMaximumPoolSize() : 10;
+        }
+        return new JdbcConcurrencyLimitFilter(limit, acquireTimeoutMs);
+    }
+
+    /**
+     * Aplica el límite a la API antes que la seguridad, para no validar tokens de peticiones
+     * que igual tendrían que esperar
+     */
+    @Bean
+    public FilterRegistrationBean<JdbcConcurrencyLimitFilter> jdbcConcurrencyLimitFilterRegistration(
+            JdbcConcurrencyLimitFilter filter) {
+        FilterRegistrationBean<JdbcConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
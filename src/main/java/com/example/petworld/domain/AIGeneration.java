@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class AIGeneration {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ai_generations_seq")
+    @SequenceGenerator(name = "ai_generations_seq", sequenceName = "ai_generations_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     private String prompt; // Entrada del usuario para generar la mascota
@@ -0,0 +1,62 @@
+package com.example.petworld.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento del outbox que un listener con efectos ya procesó. El outbox entrega al menos una
+ * vez, así que el listener consulta esta tabla para descartar las entregas repetidas
+ * (ver ConsumedEventService). Como PetInteractionStats, la clave es asignada e implementa
+ * Persistable para que save() haga un INSERT directo.
+ */
+@Entity
+@Table(name = "consumed_events")
+@IdClass(ConsumedEventId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class ConsumedEvent implements Persistable<ConsumedEventId> {
+    @Id
+    @Column(length = 100)
+    private String consumer; // Listener que procesó el evento, p. ej. "pet-created.notification"
+
+    @Id
+    @Column(name = "idempotency_key", length = 200)
+    private String idempotencyKey;
+
+    @Column(name = "consumed_at", nullable = false)
+    private LocalDateTime consumedAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted; // false hasta que la fila se guarda o se lee de la base
+
+    public ConsumedEvent(String consumer, String idempotencyKey, LocalDateTime consumedAt) {
+        this.consumer = consumer;
+        this.idempotencyKey = idempotencyKey;
+        this.consumedAt = consumedAt;
+    }
+
+    @Override
+    public ConsumedEventId getId() {
+        return new ConsumedEventId(consumer, idempotencyKey);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.petworld.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+// Clave compuesta de ConsumedEvent: una fila por listener y evento
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ConsumedEventId implements Serializable {
+    private String consumer;
+    private String idempotencyKey;
+}
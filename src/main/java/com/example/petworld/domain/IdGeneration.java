@@ -0,0 +1,15 @@
+package com.example.petworld.domain;
+
+/**
+ * Parámetros compartidos para la generación de IDs con secuencias.
+ * Hibernate reserva ALLOCATION_SIZE IDs por cada llamada a la secuencia (optimizador pooled-lo,
+ * ver hibernate.id.optimizer.pooled.preferred), lo que permite agrupar inserciones en lotes JDBC.
+ * Debe coincidir con el INCREMENT BY de las secuencias en la base de datos
+ * (ver db/vendor/postgresql/V2__identity_to_sequences.sql)
+ */
+public final class IdGeneration {
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGeneration() {
+    }
+}
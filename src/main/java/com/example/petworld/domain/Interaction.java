@@ -9,13 +9,17 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "interactions")
+@Table(name = "interactions", indexes = {
+        @Index(name = "idx_interactions_pet_id_type", columnList = "pet_id, type"),
+        @Index(name = "idx_interactions_pet_id_timestamp_id", columnList = "pet_id, timestamp DESC, id DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Interaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "interactions_seq")
+    @SequenceGenerator(name = "interactions_seq", sequenceName = "interactions_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     private String type; // Tipo de interacción: FEED, PLAY, HEAL, PET, etc.
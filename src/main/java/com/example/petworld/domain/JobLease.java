@@ -0,0 +1,33 @@
+package com.example.petworld.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease de un trabajo en segundo plano (o de una partición de uno) entre las instancias
+ * de la aplicación. Solo la instancia dueña, y hasta expiresAt, ejecuta ese trabajo;
+ * si deja de renovarlo, otra lo toma al vencer (ver JobLeaseService).
+ */
+@Entity
+@Table(name = "job_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+public class JobLease {
+    @Id
+    @Column(length = 200)
+    private String name; // Trabajo o partición, p. ej. "pet-decay:3"
+
+    @Column(length = 200)
+    private String owner; // Instancia que lo tiene (null si se liberó)
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "acquired_at")
+    private LocalDateTime acquiredAt; // Momento en que el dueño actual lo tomó
+}
@@ -0,0 +1,53 @@
+package com.example.petworld.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de dominio pendiente de entregar a los listeners (patrón outbox). Se guarda en la
+ * misma transacción que el cambio que lo origina, así que existe si y solo si ese cambio se
+ * confirmó; OutboxRelay lo entrega después, fuera de la petición.
+ */
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType; // p. ej. "PetCreated"
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId; // ID de la entidad que originó el evento
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload; // Datos del evento en JSON
+
+    // Identifica el evento ante los listeners: una entrega repetida trae la misma clave
+    @Column(name = "idempotency_key", nullable = false, unique = true, length = 200)
+    private String idempotencyKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // No se entrega antes de este momento: reclamado por un relay o esperando un reintento
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    private int attempts;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt; // null mientras no se haya entregado
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -11,13 +11,17 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "pets")
+@Table(name = "pets", indexes = {
+        @Index(name = "idx_pets_owner_id", columnList = "owner_id"),
+        @Index(name = "idx_pets_type_owner_id", columnList = "type, owner_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Pet {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pets_seq")
+    @SequenceGenerator(name = "pets_seq", sequenceName = "pets_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     private String name;
@@ -25,15 +29,21 @@ public class Pet {
     private String type; // Tipo de mascota (perro, gato, Pokémon, etc.)
     private String imageUrl; // URL o referencia a la imagen de la mascota
 
-    // Estados de la mascota
+    // Estados de la mascota en el momento statesUpdatedAt (última interacción o última pasada
+    // de PetDecayJob); los valores actuales se calculan al leer (ver PetStateCalculator)
     private Integer hunger = 100; // 0-100
     private Integer happiness = 100; // 0-100
     private Integer health = 100; // 0-100
     private Integer energy = 100; // 0-100
 
     private LocalDateTime lastInteraction; // Último momento de interacción
+    private LocalDateTime statesUpdatedAt; // Momento al que corresponde la foto de estados
     private LocalDateTime createdAt; // Fecha de creación/adopción
 
+    // Control de concurrencia optimista: cada UPDATE comprueba e incrementa la versión
+    @Version
+    private Long version;
+
     @ManyToOne
     @JoinColumn(name = "owner_id")
     private User owner;
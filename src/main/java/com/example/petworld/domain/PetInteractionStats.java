@@ -0,0 +1,62 @@
+package com.example.petworld.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Acumulado de interacciones por mascota y tipo.
+ * Se mantiene en la misma transacción que inserta cada interacción, de modo que los
+ * contadores se leen sin recorrer el historial de la tabla interactions.
+ * La clave es asignada, así que implementa Persistable: save() de una fila recién creada
+ * hace persist (un INSERT) en lugar de merge (SELECT previo + INSERT).
+ */
+@Entity
+@Table(name = "pet_interaction_stats")
+@IdClass(PetInteractionStatsId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class PetInteractionStats implements Persistable<PetInteractionStatsId> {
+    @Id
+    @Column(name = "pet_id")
+    private Long petId;
+
+    @Id
+    private String type; // Tipo de interacción: FEED, PLAY, HEAL, PET, etc.
+
+    @Column(name = "interaction_count", nullable = false)
+    private Long interactionCount = 0L; // Número de interacciones
+
+    @Column(name = "value_sum", nullable = false)
+    private Long valueSum = 0L; // Suma del campo value de las interacciones
+
+    @Column(name = "last_timestamp")
+    private LocalDateTime lastTimestamp; // Momento de la interacción más reciente
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted; // false hasta que la fila se guarda o se lee de la base
+
+    @Override
+    public PetInteractionStatsId getId() {
+        return new PetInteractionStatsId(petId, type);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.petworld.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+// Clave compuesta de PetInteractionStats: una fila por mascota y tipo de interacción
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class PetInteractionStatsId implements Serializable {
+    private Long petId;
+    private String type;
+}
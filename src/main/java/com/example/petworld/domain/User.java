@@ -10,13 +10,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users") // Cambio de "user" a "users" para evitar conflicto con palabra reservada en SQL
+@Table(name = "users", indexes = { // Cambio de "user" a "users" para evitar conflicto con palabra reservada en SQL
+        @Index(name = "ux_users_email", columnList = "email", unique = true)
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     private String username;
@@ -0,0 +1,16 @@
+package com.example.petworld.dto.Interaction;
+
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import lombok.Getter;
+import lombok.Setter;
+
+// DTO con el resultado de cada elemento de una interacción por lotes
+@Getter
+@Setter
+public class InteractionBatchResultDTO {
+    private Long petId;
+    private String type;
+    private boolean success;
+    private String error; // Motivo del fallo (null si tuvo éxito)
+    private PetResponseDTO pet; // Estado de la mascota después de aplicar la interacción
+}
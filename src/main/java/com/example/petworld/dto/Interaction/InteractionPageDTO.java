@@ -0,0 +1,17 @@
+package com.example.petworld.dto.Interaction;
+
+import com.example.petworld.dto.Pet.PetSimpleDTO;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// DTO para una página del historial de interacciones de una mascota (más recientes primero)
+@Getter
+@Setter
+public class InteractionPageDTO {
+    private PetSimpleDTO pet;
+    private List<InteractionSummaryDTO> items;
+    private String nextCursor; // Valor a enviar como "before" para pedir la siguiente página (null si no hay más)
+    private boolean hasMore;
+}
@@ -0,0 +1,16 @@
+package com.example.petworld.dto.Interaction;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// DTO con el acumulado de un tipo de interacción para una mascota
+@Getter
+@Setter
+public class InteractionStatsDTO {
+    private String type;
+    private Long count;
+    private Long valueSum;
+    private LocalDateTime lastTimestamp;
+}
@@ -0,0 +1,17 @@
+package com.example.petworld.dto.Interaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Proyección con solo las columnas de la interacción (la mascota se envía una vez en la página)
+@Getter
+@AllArgsConstructor
+public class InteractionSummaryDTO {
+    private Long id;
+    private String type;
+    private Integer value;
+    private String description;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,18 @@
+package com.example.petworld.dto.Outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class OutboxStatsDTO {
+    private long pending; // Eventos aún sin entregar (incluye los agotados)
+    private long exhausted; // Sin entregar tras app.outbox.max-attempts intentos; ya no se reintentan
+    private long delivered; // Entregas correctas de esta instancia
+    private long failedDeliveries; // Entregas en las que falló un listener (se reintentan)
+    private long redeliveries; // Entregas de eventos que ya se habían intentado antes
+    private long batches; // Lotes reclamados por esta instancia
+    private long claimExtensions; // Reclamos prolongados porque los listeners del lote seguían en curso
+    private long deleted; // Eventos entregados borrados por antigüedad
+    private long duplicatesSkipped; // Entregas repetidas que los listeners con efectos descartaron
+}
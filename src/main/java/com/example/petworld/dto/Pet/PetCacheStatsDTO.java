@@ -0,0 +1,24 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// DTO con las métricas de la caché local de fotos de mascotas
+@Getter
+@Setter
+public class PetCacheStatsDTO {
+    private boolean enabled;
+    private long size; // Mascotas en caché
+    private long maxSize;
+    private long ttlSeconds;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long ownerIndexSize; // Dueños con su lista de mascotas en caché
+    private double ownerIndexHitRatio;
+    private long loads; // Consultas a la base de datos para llenar la caché
+    private double averageLoadMillis;
+    private long evictions; // Salidas por tamaño o por TTL
+    private long invalidations; // Salidas por cambios confirmados
+    private long discardedLoads; // Cargas no guardadas porque la mascota cambió mientras se leía
+}
@@ -0,0 +1,25 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// DTO con las métricas del decaimiento en bloque (PetDecayJob)
+@Getter
+@Setter
+public class PetDecayStatsDTO {
+    private boolean running;
+    private long runs;
+    private long skippedRuns; // Pasadas descartadas porque otra seguía en curso
+    private long totalPetsDecayed;
+    private long totalFailedChunks;
+    private long totalChunksClaimedElsewhere; // Tramos cuyo lease tenía otra instancia
+    private LocalDateTime lastRunAt;
+    private long lastRunChunks;
+    private long lastRunFailedChunks;
+    private long lastRunChunksClaimedElsewhere;
+    private long lastRunPetsDecayed;
+    private double lastRunMillis;
+    private double lastRunPetsPerSecond;
+}
@@ -0,0 +1,22 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Set;
+
+// DTO con las métricas de un listener de PetEventBus
+@Getter
+@Setter
+public class PetEventBusListenerStatsDTO {
+    private String name;
+    private String eventType;
+    private Set<String> petTypes; // Vacío si recibe todos los tipos
+    private long deliveredEvents;
+    private long batches;
+    private long failedBatches;
+    private double averageBatchSize;
+    private double eventsPerSecond; // Eventos procesados por segundo de trabajo del listener
+    private double averageLagMillis; // Desde que se publicó cada evento hasta que el listener lo recibió
+    private double maxLagMillis;
+}
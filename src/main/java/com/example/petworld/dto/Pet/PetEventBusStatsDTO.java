@@ -0,0 +1,20 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// DTO con las métricas del bus de eventos de mascotas
+@Getter
+@Setter
+public class PetEventBusStatsDTO {
+    private int capacity;
+    private int queuedEvents; // Eventos publicados que el bus aún no entregó
+    private long publishedEvents;
+    private long droppedEvents; // Descartados porque la cola estaba llena
+    private long coalescedEvents; // Reemplazados por un evento más reciente de la misma mascota en el lote
+    private long unroutedEvents; // Sin ningún listener suscrito
+    private long batches;
+    private List<PetEventBusListenerStatsDTO> listeners;
+}
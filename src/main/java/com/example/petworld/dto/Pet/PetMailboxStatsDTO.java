@@ -0,0 +1,21 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// DTO con las métricas de los buzones de mascotas (modo write-behind)
+@Getter
+@Setter
+public class PetMailboxStatsDTO {
+    private int activeMailboxes;
+    private long queuedMessages; // Mensajes esperando en todos los buzones
+    private int maxMailboxDepth; // Mensajes esperando en el buzón más cargado
+    private long pendingWrites; // Interacciones aplicadas en memoria y aún no escritas
+    private long flushes;
+    private long flushedInteractions;
+    private long flushFailures;
+    private long writeConflicts; // Escrituras rechazadas porque otro camino modificó la mascota
+    private long replayedInteractions; // Interacciones recuperadas del WAL al abrir un buzón
+    private double averageFlushMillis;
+    private double maxFlushMillis;
+}
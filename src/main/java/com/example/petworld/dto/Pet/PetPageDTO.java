@@ -0,0 +1,15 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// DTO para una página del catálogo paginado por cursor (keyset)
+@Getter
+@Setter
+public class PetPageDTO {
+    private List<PetResponseDTO> items;
+    private Long nextCursor; // ID a enviar como "after" para pedir la siguiente página (null si no hay más)
+    private boolean hasMore;
+}
@@ -0,0 +1,26 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Proyección plana con solo las columnas que necesita PetResponseDTO (sin hidratar entidades)
+@Getter
+@AllArgsConstructor
+public class PetProjectionDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private String type;
+    private String imageUrl;
+    private Integer hunger;
+    private Integer happiness;
+    private Integer health;
+    private Integer energy;
+    private LocalDateTime lastInteraction;
+    private LocalDateTime statesUpdatedAt;
+    private LocalDateTime createdAt;
+    private Long ownerId;
+    private String ownerUsername;
+}
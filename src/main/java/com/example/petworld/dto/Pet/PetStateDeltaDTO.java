@@ -0,0 +1,21 @@
+package com.example.petworld.dto.Pet;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// DTO con los estados de una mascota enviados por SSE: todos en el evento "state" y
+// solo los que cambiaron en los eventos "delta"
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PetStateDeltaDTO {
+    private Long petId;
+    private Integer hunger;
+    private Integer happiness;
+    private Integer health;
+    private Integer energy;
+    private LocalDateTime at; // Momento para el que se calcularon los estados
+}
@@ -0,0 +1,22 @@
+package com.example.petworld.dto.Pet;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// DTO con las métricas de las suscripciones SSE a los estados de las mascotas
+@Getter
+@Setter
+public class PetStateStreamStatsDTO {
+    private int subscribers; // Conexiones abiertas en este nodo
+    private int maxSubscribers;
+    private int watchedPets; // Mascotas con al menos un suscriptor
+    private int pendingPets; // Mascotas con cambios esperando el próximo envío
+    private long pushedStates; // Estados completos enviados al suscribirse
+    private long pushedDeltas;
+    private long decayPushes; // Deltas enviados porque el decaimiento cruzó un umbral
+    private long coalescedUpdates; // Cambios unidos a otro aún no enviado de la misma mascota
+    private long disconnects;
+    private long rejectedSubscriptions; // Rechazadas por superar max-subscribers
+    private long droppedEvents; // Descartados porque la cola de un cliente lento se llenó
+    private long slowDisconnects; // Cerradas por superar write-timeout-ms en un envío
+}
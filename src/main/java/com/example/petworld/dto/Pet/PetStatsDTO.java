@@ -0,0 +1,19 @@
+package com.example.petworld.dto.Pet;
+
+import com.example.petworld.dto.Interaction.InteractionStatsDTO;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// DTO con los contadores de interacciones de una mascota (totales y desglose por tipo)
+@Getter
+@Setter
+public class PetStatsDTO {
+    private Long petId;
+    private Long totalInteractions;
+    private Long totalValue;
+    private LocalDateTime lastInteraction;
+    private List<InteractionStatsDTO> byType;
+}
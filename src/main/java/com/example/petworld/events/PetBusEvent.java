@@ -0,0 +1,20 @@
+package com.example.petworld.events;
+
+/**
+ * Evento de alta frecuencia que se entrega por PetEventBus (no por ApplicationEventPublisher).
+ * Las suscripciones se enrutan por clase de evento y tipo de mascota
+ */
+public interface PetBusEvent {
+
+    Long getPetId();
+
+    String getPetType();
+
+    /**
+     * Clave de coalescencia: dentro de un mismo lote, de los eventos con igual clave solo se
+     * entrega el más reciente. null (por defecto) si cada evento cuenta por sí mismo
+     */
+    default Object coalesceKey() {
+        return null;
+    }
+}
@@ -4,18 +4,23 @@ import lombok.Getter;
 import org.springframework.context.ApplicationEvent;
 
 /**
- * Evento que se dispara cuando se crea una nueva mascota
+ * Evento que se dispara cuando se crea una nueva mascota.
+ * Lo entrega OutboxRelay después del commit y al menos una vez: si una entrega se repite
+ * trae la misma idempotencyKey, así que los listeners con efectos deben descartar las repetidas
+ * (ver ConsumedEventService).
  */
 @Getter
 public class PetCreatedEvent extends ApplicationEvent {
     private final Long petId;
     private final String petName;
     private final String petType;
+    private final String idempotencyKey;
 
-    public PetCreatedEvent(Object source, Long petId, String petName, String petType) {
+    public PetCreatedEvent(Object source, Long petId, String petName, String petType, String idempotencyKey) {
         super(source);
         this.petId = petId;
         this.petName = petName;
         this.petType = petType;
+        this.idempotencyKey = idempotencyKey;
     }
-}
\ No newline at end of file
+}
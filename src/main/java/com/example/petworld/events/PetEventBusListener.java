@@ -0,0 +1,32 @@
+package com.example.petworld.events;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Listener de PetEventBus. Cada bean que implementa esta interfaz se suscribe al arrancar;
+ * la ruta (clase de evento + tipos de mascota) se resuelve una sola vez, sin expresiones
+ * por evento. Recibe los eventos en lotes, siempre desde el hilo del bus, así que no debe
+ * bloquearse: mientras procesa, los demás listeners esperan
+ * @param <E> Clase de evento que recibe
+ */
+public interface PetEventBusListener<E extends PetBusEvent> {
+
+    Class<E> eventType();
+
+    /**
+     * Tipos de mascota que le interesan; vacío para recibir todos
+     */
+    default Set<String> petTypes() {
+        return Set.of();
+    }
+
+    /**
+     * Procesa un lote de eventos, en el orden en que se publicaron
+     */
+    void onEvents(List<E> events);
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.petworld.events;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento que se dispara por cada interacción confirmada con una mascota.
+ * Se entrega por PetEventBus; nunca se coalesce
+ */
+@Getter
+public class PetInteractedEvent implements PetBusEvent {
+    private final Long petId;
+    private final String petType;
+    private final Long ownerId;
+    private final String interactionType;
+    private final int value;
+    private final LocalDateTime timestamp;
+
+    public PetInteractedEvent(Long petId, String petType, Long ownerId,
+                              String interactionType, int value, LocalDateTime timestamp) {
+        this.petId = petId;
+        this.petType = petType;
+        this.ownerId = ownerId;
+        this.interactionType = interactionType;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+}
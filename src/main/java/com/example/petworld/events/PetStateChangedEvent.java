@@ -0,0 +1,41 @@
+package com.example.petworld.events;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento con la nueva foto de estados de una mascota tras un cambio confirmado.
+ * Se entrega por PetEventBus y se coalesce por mascota: como cada foto reemplaza a la
+ * anterior, en un lote solo llega la última. El decaimiento en bloque no lo dispara
+ * (los estados se siguen calculando al leer desde statesUpdatedAt)
+ */
+@Getter
+public class PetStateChangedEvent implements PetBusEvent {
+    private final Long petId;
+    private final String petType;
+    private final Long ownerId;
+    private final int hunger;
+    private final int happiness;
+    private final int health;
+    private final int energy;
+    private final LocalDateTime statesUpdatedAt;
+
+    public PetStateChangedEvent(Long petId, String petType, Long ownerId,
+                                int hunger, int happiness, int health, int energy,
+                                LocalDateTime statesUpdatedAt) {
+        this.petId = petId;
+        this.petType = petType;
+        this.ownerId = ownerId;
+        this.hunger = hunger;
+        this.happiness = happiness;
+        this.health = health;
+        this.energy = energy;
+        this.statesUpdatedAt = statesUpdatedAt;
+    }
+
+    @Override
+    public Object coalesceKey() {
+        return petId;
+    }
+}
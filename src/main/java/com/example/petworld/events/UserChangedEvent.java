@@ -0,0 +1,19 @@
+package com.example.petworld.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Evento que se dispara cuando un usuario se actualiza o se elimina
+ */
+@Getter
+public class UserChangedEvent extends ApplicationEvent {
+    private final Long userId;
+    private final String email; // Email con el que el usuario estaba autenticado antes del cambio
+
+    public UserChangedEvent(Object source, Long userId, String email) {
+        super(source);
+        this.userId = userId;
+        this.email = email;
+    }
+}
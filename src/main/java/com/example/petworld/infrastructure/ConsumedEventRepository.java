@@ -0,0 +1,21 @@
+package com.example.petworld.infrastructure;
+
+import com.example.petworld.domain.ConsumedEvent;
+import com.example.petworld.domain.ConsumedEventId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ConsumedEventRepository extends JpaRepository<ConsumedEvent, ConsumedEventId> {
+
+    long countByIdempotencyKey(String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM ConsumedEvent e WHERE e.consumedAt < :before")
+    int deleteConsumedBefore(@Param("before") LocalDateTime before);
+}
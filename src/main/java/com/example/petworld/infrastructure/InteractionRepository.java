@@ -1,9 +1,14 @@
 package com.example.petworld.infrastructure;
 
 import com.example.petworld.domain.Interaction;
+import com.example.petworld.dto.Interaction.InteractionSummaryDTO;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,4 +18,24 @@ public interface InteractionRepository extends JpaRepository<Interaction, Long>
     List<Interaction> findByPetIdAndType(Long petId, String type);
     List<Interaction> findByPetIdOrderByTimestampDesc(Long petId);
     Long countByPetIdAndType(Long petId, String type);
-}
\ No newline at end of file
+
+    // Historial paginado por cursor (timestamp, id), más recientes primero, con filtros opcionales
+    // de tipo y rango de fechas [from, to). Solo proyecta columnas de la interacción
+    @Query("SELECT new com.example.petworld.dto.Interaction.InteractionSummaryDTO(" +
+            "i.id, i.type, i.value, i.description, i.timestamp) " +
+            "FROM Interaction i " +
+            "WHERE i.pet.id = :petId " +
+            "AND (:type IS NULL OR i.type = :type) " +
+            "AND (:from IS NULL OR i.timestamp >= :from) " +
+            "AND (:to IS NULL OR i.timestamp < :to) " +
+            "AND (:beforeTimestamp IS NULL OR i.timestamp < :beforeTimestamp " +
+            "     OR (i.timestamp = :beforeTimestamp AND i.id < :beforeId)) " +
+            "ORDER BY i.timestamp DESC, i.id DESC")
+    List<InteractionSummaryDTO> findByPetIdOrderByTimestampDesc(@Param("petId") Long petId,
+                                                                @Param("type") String type,
+                                                                @Param("from") LocalDateTime from,
+                                                                @Param("to") LocalDateTime to,
+                                                                @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                                @Param("beforeId") Long beforeId,
+                                                                Limit limit);
+}
@@ -0,0 +1,38 @@
+package com.example.petworld.infrastructure;
+
+import com.example.petworld.domain.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    // Toma el lease si está libre, vencido o ya es de esta instancia. La condición se evalúa
+    // sobre la fila bloqueada por el UPDATE, así que solo una instancia puede ganarlo.
+    // Devuelve 0 si lo tiene otra instancia o si la fila aún no existe
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = :owner, l.expiresAt = :expiresAt, l.acquiredAt = :now " +
+            "WHERE l.name = :name AND (l.owner IS NULL OR l.owner = :owner OR l.expiresAt < :now)")
+    int acquire(@Param("name") String name, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Crea la fila del lease ya tomado; falla por clave duplicada si otra instancia se adelantó
+    @Modifying
+    @Query("INSERT INTO JobLease (name, owner, expiresAt, acquiredAt) VALUES (:name, :owner, :expiresAt, :now)")
+    int insert(@Param("name") String name, @Param("owner") String owner,
+               @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Extiende el lease solo si esta instancia sigue siendo la dueña
+    @Modifying
+    @Query("UPDATE JobLease l SET l.expiresAt = :expiresAt WHERE l.name = :name AND l.owner = :owner")
+    int renew(@Param("name") String name, @Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = NULL, l.expiresAt = :now WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,58 @@
+package com.example.petworld.infrastructure;
+
+import com.example.petworld.domain.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Timeout de bloqueo -2 = SKIP LOCKED: las filas que otro relay está reclamando se saltan
+    // en lugar de esperar, así varias instancias drenan el outbox en paralelo sin repetirse.
+    // En H2 (pruebas) Hibernate lo degrada a FOR UPDATE: los relays esperan, pero tampoco se repiten
+    String SKIP_LOCKED = "-2";
+
+    // Pendientes listos para entregar, en orden de creación, bloqueados hasta el fin de la transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.processedAt IS NULL AND e.availableAt <= :now " +
+            "AND e.attempts < :maxAttempts ORDER BY e.id")
+    List<OutboxEvent> findClaimable(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts, Limit limit);
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.processedAt = :now, e.lastError = NULL WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Prolonga el reclamo de eventos cuyos listeners siguen en curso
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.availableAt = :claimedUntil WHERE e.id IN :ids AND e.processedAt IS NULL")
+    int extendClaim(@Param("ids") Collection<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    // El evento vuelve a estar disponible en retryAt; los intentos ya se contaron al reclamarlo
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.availableAt = :retryAt, e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("retryAt") LocalDateTime retryAt, @Param("error") String error);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+
+    long countByProcessedAtIsNull();
+
+    // Eventos que agotaron los intentos y ya no se reintentan
+    long countByProcessedAtIsNullAndAttemptsGreaterThanEqual(int attempts);
+}
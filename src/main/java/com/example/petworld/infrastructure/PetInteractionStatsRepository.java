@@ -0,0 +1,31 @@
+package com.example.petworld.infrastructure;
+
+import com.example.petworld.domain.PetInteractionStats;
+import com.example.petworld.domain.PetInteractionStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PetInteractionStatsRepository extends JpaRepository<PetInteractionStats, PetInteractionStatsId> {
+
+    // Acumulados de una mascota (una fila por tipo de interacción)
+    List<PetInteractionStats> findByPetIdOrderByTypeAsc(Long petId);
+
+    // Suma los deltas sobre la fila existente en un solo UPDATE (sin leerla antes).
+    // Devuelve 0 si la mascota aún no tiene fila para ese tipo
+    @Modifying
+    @Query("UPDATE PetInteractionStats s SET " +
+            "s.interactionCount = s.interactionCount + :count, " +
+            "s.valueSum = s.valueSum + :valueSum, " +
+            "s.lastTimestamp = CASE WHEN s.lastTimestamp IS NULL OR s.lastTimestamp < :timestamp " +
+            "THEN :timestamp ELSE s.lastTimestamp END " +
+            "WHERE s.petId = :petId AND s.type = :type")
+    int increment(@Param("petId") Long petId, @Param("type") String type, @Param("count") long count,
+                  @Param("valueSum") long valueSum, @Param("timestamp") LocalDateTime timestamp);
+}
@@ -1,20 +1,142 @@
 package com.example.petworld.infrastructure;
 
 import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetProjectionDTO;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PetRepository extends JpaRepository<Pet, Long> {
 
+    // Las consultas de listado cargan el dueño en el mismo SELECT (evita N+1 sobre users)
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    List<Pet> findAll();
+
     // Buscar mascotas por tipo
+    @EntityGraph(attributePaths = "owner")
     List<Pet> findByType(String type);
 
     // Buscar mascotas por ID del dueño
+    @EntityGraph(attributePaths = "owner")
     List<Pet> findByOwnerId(Long ownerId);
 
     // Buscar mascotas por tipo y ID del dueño
+    @EntityGraph(attributePaths = "owner")
     List<Pet> findByTypeAndOwnerId(String type, Long ownerId);
-}
\ No newline at end of file
+
+    // Cargar varias mascotas (con sus dueños) en una sola consulta
+    @EntityGraph(attributePaths = "owner")
+    List<Pet> findByIdIn(Collection<Long> ids);
+
+    // Carga la mascota bloqueando su fila (SELECT ... FOR UPDATE) hasta el fin de la transacción
+    @EntityGraph(attributePaths = "owner")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Pet p WHERE p.id = :id")
+    Optional<Pet> findByIdForUpdate(@Param("id") Long id);
+
+    // Igual que findByIdIn pero bloqueando las filas, siempre en orden de ID para evitar deadlocks
+    @EntityGraph(attributePaths = "owner")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Pet> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Escribe solo los estados de la mascota (usado por la escritura diferida de los buzones),
+    // si nadie la modificó desde que se leyó en :version; 0 filas = conflicto o mascota borrada
+    @Modifying
+    @Query("UPDATE Pet p SET p.hunger = :hunger, p.happiness = :happiness, p.health = :health, " +
+            "p.energy = :energy, p.lastInteraction = :lastInteraction, p.statesUpdatedAt = :statesUpdatedAt, " +
+            "p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.version = :version")
+    int updateStates(@Param("id") Long id, @Param("version") Long version,
+                     @Param("hunger") Integer hunger, @Param("happiness") Integer happiness,
+                     @Param("health") Integer health, @Param("energy") Integer energy,
+                     @Param("lastInteraction") LocalDateTime lastInteraction,
+                     @Param("statesUpdatedAt") LocalDateTime statesUpdatedAt);
+
+    @Query("SELECT min(p.id) FROM Pet p")
+    Long findMinId();
+
+    @Query("SELECT max(p.id) FROM Pet p")
+    Long findMaxId();
+
+    // Horas completas entre la foto de estados y :now
+    String ELAPSED_HOURS = "floor(timestampdiff(second, p.statesUpdatedAt, :now) / 3600)";
+
+    // Decaimiento en bloque (ver PetDecayJob): aplica las horas completas transcurridas desde
+    // statesUpdatedAt a las mascotas del rango de IDs, sin cargar entidades, y adelanta la foto
+    // esas mismas horas para no perder la fracción de hora restante.
+    // Las reglas son las de PetStateCalculator; la salud usa los valores previos a este UPDATE.
+    // La versión no cambia: la foto nueva equivale a la anterior (cualquier lectura calcula los
+    // mismos estados), así que quien tenga cargada la anterior puede escribir sin conflicto
+    @Modifying
+    @Query("UPDATE Pet p SET " +
+            "p.hunger = cast(greatest(0, p.hunger - 5 * " + ELAPSED_HOURS + ") as Integer), " +
+            "p.happiness = cast(greatest(0, p.happiness - 3 * " + ELAPSED_HOURS + ") as Integer), " +
+            "p.health = cast(greatest(0, p.health " +
+            "- CASE WHEN p.hunger - 5 * " + ELAPSED_HOURS + " < 30 THEN 2 * " + ELAPSED_HOURS + " ELSE 0 END " +
+            "- CASE WHEN p.happiness - 3 * " + ELAPSED_HOURS + " < 20 THEN " + ELAPSED_HOURS + " ELSE 0 END) as Integer), " +
+            "p.energy = cast(least(100, p.energy + 2 * " + ELAPSED_HOURS + ") as Integer), " +
+            "p.statesUpdatedAt = timestampadd(hour, cast(" + ELAPSED_HOURS + " as Integer), p.statesUpdatedAt) " +
+            "WHERE p.id BETWEEN :fromId AND :toId AND p.statesUpdatedAt <= :cutoff")
+    int decayStates(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                    @Param("now") LocalDateTime now, @Param("cutoff") LocalDateTime cutoff);
+
+    // Paginación por cursor (keyset): mascotas con ID mayor al cursor, ordenadas por ID
+    @EntityGraph(attributePaths = "owner")
+    List<Pet> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    List<Pet> findByTypeAndIdGreaterThanOrderByIdAsc(String type, Long after, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    List<Pet> findByOwnerIdAndIdGreaterThanOrderByIdAsc(Long ownerId, Long after, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    List<Pet> findByTypeAndOwnerIdAndIdGreaterThanOrderByIdAsc(String type, Long ownerId, Long after, Limit limit);
+
+    // Columnas de PetProjectionDTO, con la mascota como p y su dueño como o
+    String PROJECTION = "SELECT new com.example.petworld.dto.Pet.PetProjectionDTO(" +
+            "p.id, p.name, p.description, p.type, p.imageUrl, " +
+            "p.hunger, p.happiness, p.health, p.energy, p.lastInteraction, " +
+            "coalesce(p.statesUpdatedAt, p.lastInteraction), p.createdAt, " +
+            "o.id, o.username) " +
+            "FROM Pet p LEFT JOIN p.owner o ";
+
+    // Recorre el catálogo completo fila por fila sin materializarlo en memoria, proyectando
+    // solo las columnas del listado (sin hidratar entidades Pet ni User).
+    // Debe consumirse dentro de una transacción y cerrarse al terminar
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(PROJECTION +
+            "WHERE (:type IS NULL OR p.type = :type) " +
+            "AND (:ownerId IS NULL OR o.id = :ownerId) " +
+            "ORDER BY p.id")
+    Stream<PetProjectionDTO> streamAllByFilters(@Param("type") String type, @Param("ownerId") Long ownerId);
+
+    // Fotos de mascotas para PetSnapshotCache (sin hidratar entidades)
+    @Query(PROJECTION + "WHERE p.id = :id")
+    Optional<PetProjectionDTO> findProjectionById(@Param("id") Long id);
+
+    @Query(PROJECTION + "WHERE p.id IN :ids")
+    List<PetProjectionDTO> findProjectionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // IDs de las mascotas de un dueño, en orden
+    @Query("SELECT p.id FROM Pet p WHERE p.owner.id = :ownerId ORDER BY p.id")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId);
+}
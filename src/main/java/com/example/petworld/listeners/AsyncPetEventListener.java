@@ -1,30 +1,51 @@
 package com.example.petworld.listeners;
 
 import com.example.petworld.events.PetCreatedEvent;
+import com.example.petworld.service.ConsumedEventService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 /**
- * Listener asincrónico para eventos de mascotas
+ * Listener asincrónico para eventos de mascotas: corre fuera de la petición, en el
+ * taskExecutor al que OutboxRelay entrega cada evento. No lleva @Async porque el relay
+ * debe esperar a que termine para marcar el evento como entregado
  */
 @Slf4j
 @Component
 public class AsyncPetEventListener {
 
+    static final String CONSUMER = "pet-created.notification";
+
+    private final ConsumedEventService consumedEventService;
+
+    // Duración del procesamiento simulado
+    @Value("${app.listeners.async-processing-ms:2000}")
+    private long processingMs;
+
+    @Autowired
+    public AsyncPetEventListener(ConsumedEventService consumedEventService) {
+        this.consumedEventService = consumedEventService;
+    }
+
     /**
-     * Este method se ejecuta asincrónicamente cuando se publica un PetCreatedEvent
+     * Este method se ejecuta en el taskExecutor cuando se entrega un PetCreatedEvent.
+     * Las entregas repetidas del mismo evento se descartan
      */
-    @Async("taskExecutor")
     @EventListener
     public void handlePetCreatedEventAsync(PetCreatedEvent event) {
+        consumedEventService.runOnce(CONSUMER, event.getIdempotencyKey(), () -> process(event));
+    }
+
+    private void process(PetCreatedEvent event) {
         // Simulamos un procesamiento de larga duración
         try {
             log.info("Iniciando procesamiento asincrónico para mascota: {}", event.getPetName());
-            Thread.sleep(2000);
-            log.info("[Procesamiento Async] Notificación enviada para: {} después de 2 segundos",
-                    event.getPetName());
+            Thread.sleep(processingMs);
+            log.info("[Procesamiento Async] Notificación enviada para: {} después de {} ms",
+                    event.getPetName(), processingMs);
 
             // Aquí podrías implementar:
             // - Envío de correos electrónicos de bienvenida
@@ -34,7 +55,8 @@ public class AsyncPetEventListener {
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            log.error("Procesamiento interrumpido para mascota: {}", event.getPetName());
+            // Sin terminar: el relay no marca el evento y se vuelve a entregar
+            throw new IllegalStateException("Procesamiento interrumpido para mascota: " + event.getPetName(), e);
         }
     }
-}
\ No newline at end of file
+}
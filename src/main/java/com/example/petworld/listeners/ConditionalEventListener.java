@@ -1,40 +1,54 @@
 package com.example.petworld.listeners;
 
 import com.example.petworld.events.PetCreatedEvent;
+import com.example.petworld.service.ConsumedEventService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 /**
- * Listener que procesa eventos solo si cumplen ciertas condiciones
+ * Listener que procesa eventos solo si cumplen ciertas condiciones.
+ * Corre en el taskExecutor al que OutboxRelay entrega cada evento y descarta las entregas repetidas
  */
 @Slf4j
 @Component
 public class ConditionalEventListener {
 
+    static final String DOG_CONSUMER = "pet-created.dog-onboarding";
+    static final String CAT_CONSUMER = "pet-created.cat-onboarding";
+
+    private final ConsumedEventService consumedEventService;
+
+    @Autowired
+    public ConditionalEventListener(ConsumedEventService consumedEventService) {
+        this.consumedEventService = consumedEventService;
+    }
+
     /**
      * Este método solo se ejecuta para mascotas tipo "Dog"
      */
-    @Async("taskExecutor")
     @EventListener(condition = "#event.petType == 'Dog'")
     public void handleDogCreatedEvent(PetCreatedEvent event) {
-        log.info("¡Se ha registrado un nuevo perro!: {}", event.getPetName());
+        consumedEventService.runOnce(DOG_CONSUMER, event.getIdempotencyKey(), () -> {
+            log.info("¡Se ha registrado un nuevo perro!: {}", event.getPetName());
 
-        // Procesamiento específico para perros:
-        // - Envío de información sobre paseos para perros
-        // - Recomendaciones de juguetes específicos
-        // - Inscripción automática en programa de vacunación canina
+            // Procesamiento específico para perros:
+            // - Envío de información sobre paseos para perros
+            // - Recomendaciones de juguetes específicos
+            // - Inscripción automática en programa de vacunación canina
+        });
     }
 
     /**
      * Este método solo se ejecuta para mascotas tipo "Cat"
      */
-    @Async("taskExecutor")
     @EventListener(condition = "#event.petType == 'Cat'")
     public void handleCatCreatedEvent(PetCreatedEvent event) {
-        log.info("¡Se ha registrado un nuevo gato!: {}", event.getPetName());
+        consumedEventService.runOnce(CAT_CONSUMER, event.getIdempotencyKey(), () -> {
+            log.info("¡Se ha registrado un nuevo gato!: {}", event.getPetName());
 
-        // Lógica específica para gatos
+            // Lógica específica para gatos
+        });
     }
-}
\ No newline at end of file
+}
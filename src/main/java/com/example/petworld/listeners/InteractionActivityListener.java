@@ -0,0 +1,34 @@
+package com.example.petworld.listeners;
+
+import com.example.petworld.events.PetEventBusListener;
+import com.example.petworld.events.PetInteractedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Listener del bus de eventos que resume la actividad de cada lote de interacciones
+ */
+@Slf4j
+@Component
+public class InteractionActivityListener implements PetEventBusListener<PetInteractedEvent> {
+
+    @Override
+    public Class<PetInteractedEvent> eventType() {
+        return PetInteractedEvent.class;
+    }
+
+    @Override
+    public void onEvents(List<PetInteractedEvent> events) {
+        if (log.isDebugEnabled()) {
+            Map<String, Long> byType = events.stream()
+                    .collect(Collectors.groupingBy(PetInteractedEvent::getInteractionType, Collectors.counting()));
+            log.debug("Lote de {} interacciones: {}", events.size(), byType);
+        }
+
+        // Aquí puedes agregar lógica por lote, como logros o rankings de actividad
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.petworld.listeners;
+
+import com.example.petworld.events.PetEventBusListener;
+import com.example.petworld.events.PetStateChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Listener del bus de eventos que avisa cuando algún estado de una mascota queda bajo
+ * el umbral tras un cambio (solo recibe la última foto de cada mascota en el lote)
+ */
+@Slf4j
+@Component
+public class PetStateAlertListener implements PetEventBusListener<PetStateChangedEvent> {
+
+    @Value("${app.listeners.state-alert-threshold:20}")
+    private int threshold = 20;
+
+    @Override
+    public Class<PetStateChangedEvent> eventType() {
+        return PetStateChangedEvent.class;
+    }
+
+    @Override
+    public void onEvents(List<PetStateChangedEvent> events) {
+        for (PetStateChangedEvent event : events) {
+            int lowest = Math.min(Math.min(event.getHunger(), event.getHappiness()),
+                    Math.min(event.getHealth(), event.getEnergy()));
+            if (lowest < threshold) {
+                log.info("La mascota {} necesita atención (hambre {}, felicidad {}, salud {}, energía {})",
+                        event.getPetId(), event.getHunger(), event.getHappiness(), event.getHealth(), event.getEnergy());
+
+                // Aquí podrías enviar una notificación al dueño
+            }
+        }
+    }
+}
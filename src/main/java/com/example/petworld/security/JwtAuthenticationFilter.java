@@ -1,10 +1,12 @@
 package com.example.petworld.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,6 +27,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    // Si es true, cada petición comprueba que el usuario siga existiendo (permite revocar accesos)
+    @Value("${app.security.verify-user-in-database:false}")
+    private boolean verifyUserInDatabase;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -34,13 +40,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Obtener token del header de la petición
             String jwt = getJwtFromRequest(request);
 
-            // Validar el token
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                // Obtener el email del usuario a partir del token
-                String userEmail = tokenProvider.getUserEmailFromJWT(jwt);
+            // Validar el token y leer sus claims en una sola pasada (con caché de tokens verificados)
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.getValidatedClaims(jwt) : null;
+            if (claims != null) {
+                // Reconstruir el usuario desde los claims, sin consultar la base de datos
+                UserDetails userDetails = verifyUserInDatabase ? null : tokenProvider.getUserDetailsFromClaims(claims);
 
-                // Cargar los detalles del usuario
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+                if (userDetails == null) {
+                    // Tokens sin datos de usuario o despliegues que requieren revocación:
+                    // cargar el usuario por su email (con caché de corta duración)
+                    userDetails = userDetailsService.loadCachedUserByUsername(claims.getSubject());
+                }
 
                 // Crear la autenticación y establecerla en el contexto de seguridad
                 UsernamePasswordAuthenticationToken authentication =
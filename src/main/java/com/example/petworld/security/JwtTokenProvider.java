@@ -1,20 +1,44 @@
 package com.example.petworld.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
- * Clase que genera y valida tokens JWT
+ * Clase que genera y valida tokens JWT.
+ * Métricas: verificaciones de firma (petworld.jwt.verification), tokens rechazados
+ * (petworld.jwt.invalid) y aciertos de la caché de tokens verificados (cache "jwt.verified-tokens")
  */
 @Component
-public class JwtTokenProvider {
+public class JwtTokenProvider implements MeterBinder {
+    // Claims con los datos del usuario, para reconstruir el principal sin consultar la base de datos
+    static final String USER_ID_CLAIM = "uid";
+    static final String USERNAME_CLAIM = "name";
+    static final String AUTHORITIES_CLAIM = "roles";
 
     @Value("${app.jwt.secret:mysupersecretkey}")
     private String jwtSecret;
@@ -22,6 +46,34 @@ public class JwtTokenProvider {
     @Value("${app.jwt.expiration.ms:86400000}") // 24 horas por defecto
     private int jwtExpirationMs;
 
+    @Value("${app.jwt.cache.max-size:10000}")
+    private int verifiedTokenCacheMaxSize;
+
+    // Clave y parser inmutables, construidos una sola vez (JwtParser es thread-safe)
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    // Tokens ya verificados (por su hash SHA-256) -> claims; cada entrada expira junto con su token
+    private Cache<String, Claims> verifiedTokens;
+
+    // Métricas
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+    private final LongAdder invalidTokens = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+    }
+
     /**
      * Genera un token JWT a partir de la autenticación del usuario
      */
@@ -32,58 +84,146 @@ public class JwtTokenProvider {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
+        List<String> authorities = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+
         return Jwts.builder()
                 .setSubject(userPrincipal.getUsername()) // El username es el email
+                .claim(USER_ID_CLAIM, userPrincipal.getId())
+                .claim(USERNAME_CLAIM, userPrincipal.getDisplayName())
+                .claim(AUTHORITIES_CLAIM, authorities)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    /**
+     * Valida el token y devuelve sus claims en una sola pasada. Si el mismo token ya fue
+     * verificado y no ha expirado, se devuelven los claims guardados sin volver a verificar la firma
+     * @return Los claims del token, o null si el token no es válido
+     */
+    public Claims getValidatedClaims(String token) {
+        String tokenHash = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parseClaims(token);
+        if (claims != null && claims.getExpiration() != null) {
+            verifiedTokens.put(tokenHash, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Reconstruye el usuario autenticado a partir de los claims de un token ya verificado
+     * @return Los detalles del usuario, o null si el token no trae los datos del usuario
+     * (tokens emitidos antes de incluirlos)
+     */
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        List<?> roles = claims.get(AUTHORITIES_CLAIM, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .collect(Collectors.toList());
+
+        return new UserDetailsImpl(
+                userId.longValue(),
+                claims.get(USERNAME_CLAIM, String.class),
+                claims.getSubject(),
+                null, // La contraseña no viaja en el token
+                authorities);
+    }
+
     /**
      * Obtiene el email del usuario a partir del token JWT
      */
     public String getUserEmailFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return jwtParser.parseClaimsJws(token)
+                .getBody()
+                .getSubject();
     }
 
     /**
      * Valida un token JWT
      */
     public boolean validateToken(String authToken) {
+        return getValidatedClaims(authToken) != null;
+    }
+
+    /**
+     * Verifica la firma y la expiración del token
+     * @return Los claims del token, o null si el token no es válido
+     */
+    private Claims parseClaims(String token) {
+        long start = System.nanoTime();
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (MalformedJwtException ex) {
             // Token JWT mal formado
-            // logger.error("Invalid JWT token");
         } catch (ExpiredJwtException ex) {
             // Token JWT caducado
-            // logger.error("Expired JWT token");
         } catch (UnsupportedJwtException ex) {
             // Token JWT no soportado
-            // logger.error("Unsupported JWT token");
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
+            // Firma del token JWT inválida
         } catch (IllegalArgumentException ex) {
             // La cadena claims del JWT está vacía
-            // logger.error("JWT claims string is empty.");
+        } finally {
+            verifications.increment();
+            verificationNanos.add(System.nanoTime() - start);
         }
-        return false;
+        invalidTokens.increment();
+        return null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("petworld.jwt.verification", this, provider -> provider.verifications.sum(),
+                        provider -> provider.verificationNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Verificaciones de firma y expiración (tokens que no estaban en caché)").register(registry);
+        FunctionCounter.builder("petworld.jwt.invalid", invalidTokens, LongAdder::sum)
+                .description("Tokens rechazados por firma, formato o expiración").register(registry);
+        CaffeineCacheMetrics.monitor(registry, verifiedTokens, "jwt.verified-tokens");
     }
 
     /**
-     * Obtiene la clave para firmar el token
+     * Calcula el hash del token para no guardar tokens en claro en la caché
      */
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+    /**
+     * Expira cada entrada de la caché en el momento en que expira su token
+     */
+    private static class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -63,6 +63,13 @@ public class UserDetailsImpl implements UserDetails {
         return email;
     }
 
+    /**
+     * Nombre visible del usuario (getUsername devuelve el email)
+     */
+    public String getDisplayName() {
+        return username;
+    }
+
     @Override
     public String getPassword() {
         return password;
@@ -1,29 +1,96 @@
 package com.example.petworld.security;
 
 import com.example.petworld.domain.User;
+import com.example.petworld.events.UserChangedEvent;
 import com.example.petworld.infrastructure.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 /**
  * Servicio para cargar detalles del usuario durante la autenticación
  */
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, MeterBinder {
 
     @Autowired
     private UserRepository userRepository;
 
+    // Tiempo que se recuerda un usuario ya cargado (0 desactiva la caché)
+    @Value("${app.security.user-cache.ttl-seconds:30}")
+    private long userCacheTtlSeconds;
+
+    @Value("${app.security.user-cache.max-size:10000}")
+    private long userCacheMaxSize;
+
+    // Usuarios cargados recientemente, por email
+    private Cache<String, UserDetailsImpl> userCache;
+
+    @PostConstruct
+    public void init() {
+        if (userCacheTtlSeconds > 0) {
+            userCache = Caffeine.newBuilder()
+                    .maximumSize(userCacheMaxSize)
+                    .expireAfterWrite(Duration.ofSeconds(userCacheTtlSeconds))
+                    .recordStats()
+                    .build();
+        }
+    }
+
     /**
      * Carga un usuario por su email (username)
      */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        // El login siempre consulta la base de datos
+        return loadUserFromDatabase(email);
+    }
+
+    /**
+     * Carga un usuario por su email para autenticar una petición con token, usando la caché
+     * de corta duración si está activada
+     */
+    public UserDetails loadCachedUserByUsername(String email) throws UsernameNotFoundException {
+        if (userCache == null) {
+            return loadUserFromDatabase(email);
+        }
+        return userCache.get(email, this::loadUserFromDatabase);
+    }
+
+    /**
+     * Olvida el usuario en caché cuando se actualiza o se elimina (una vez confirmada la
+     * transacción), para que el cambio se aplique en la siguiente petición
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleUserChangedEvent(UserChangedEvent event) {
+        if (userCache != null && event.getEmail() != null) {
+            userCache.invalidate(event.getEmail());
+        }
+    }
+
+    /**
+     * Aciertos y fallos de la caché de usuarios (cache "security.users"), si está activada
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (userCache != null) {
+            CaffeineCacheMetrics.monitor(registry, userCache, "security.users");
+        }
+    }
+
+    private UserDetailsImpl loadUserFromDatabase(String email) {
         // En nuestro sistema, el username es el email
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() ->
@@ -0,0 +1,74 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.ConsumedEvent;
+import com.example.petworld.domain.ConsumedEventId;
+import com.example.petworld.infrastructure.ConsumedEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consumidor idempotente para los listeners con efectos de los eventos del outbox.
+ * OutboxRelay entrega al menos una vez: un evento se repite si falló otro listener o si la
+ * instancia murió antes de marcarlo como entregado. Cada listener registra la clave del
+ * evento al terminar y descarta las entregas cuya clave ya registró.
+ */
+@Slf4j
+@Service
+public class ConsumedEventService {
+
+    private final ConsumedEventRepository consumedEventRepository;
+
+    private final LongAdder duplicates = new LongAdder();
+
+    @Autowired
+    public ConsumedEventService(ConsumedEventRepository consumedEventRepository) {
+        this.consumedEventRepository = consumedEventRepository;
+    }
+
+    /**
+     * Ejecuta action si el consumidor todavía no procesó el evento y lo registra al terminar.
+     * Si action falla no se registra nada: el evento se reintenta y vuelve a ejecutarse
+     * @param consumer Nombre estable del listener
+     * @param idempotencyKey Clave del evento (ver OutboxEvent)
+     * @param action Efectos del listener
+     * @return false si era una entrega repetida y se descartó
+     */
+    public boolean runOnce(String consumer, String idempotencyKey, Runnable action) {
+        if (consumedEventRepository.existsById(new ConsumedEventId(consumer, idempotencyKey))) {
+            duplicates.increment();
+            log.debug("Evento {} ya procesado por {}, se descarta", idempotencyKey, consumer);
+            return false;
+        }
+
+        action.run();
+
+        try {
+            consumedEventRepository.save(new ConsumedEvent(consumer, idempotencyKey, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            // Otra entrega del mismo evento terminó a la vez (reclamo vencido): ya está registrado
+            log.debug("Evento {} registrado en paralelo por {}", idempotencyKey, consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Borra los registros anteriores a before. Solo deben borrarse los de eventos que ya
+     * no pueden volver a entregarse (ver OutboxRelay.cleanup)
+     * @return Cantidad de registros borrados
+     */
+    int deleteConsumedBefore(LocalDateTime before) {
+        return consumedEventRepository.deleteConsumedBefore(before);
+    }
+
+    /**
+     * Entregas repetidas descartadas por esta instancia
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+}
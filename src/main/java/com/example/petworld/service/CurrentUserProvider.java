@@ -0,0 +1,21 @@
+package com.example.petworld.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Identifica al usuario que hace la operación. Es un bean aparte para que las pruebas
+ * puedan sustituirlo mientras el ID no salga de la autenticación
+ */
+@Component
+public class CurrentUserProvider {
+
+    /**
+     * Obtiene el ID del usuario actual
+     * @return ID del usuario
+     */
+    public Long getCurrentUserId() {
+        // En un sistema real, esto vendría de la autenticación
+        // Por ahora, devolvemos un ID fijo para pruebas
+        return 1L;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.petworld.service;
+
+import com.example.petworld.infrastructure.JobLeaseRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coordina los trabajos en segundo plano entre varias instancias de la aplicación mediante
+ * leases en la tabla job_leases (sin servicios externos). Cada trabajo o partición tiene un
+ * nombre; la instancia que toma su lease lo ejecuta y lo renueva cada tercio de
+ * app.jobs.lease-ttl-ms mientras trabaja. Si la instancia muere, el lease vence y otra lo toma.
+ * Los vencimientos se comparan con el reloj de cada instancia, así que el desfase entre
+ * relojes debe ser bastante menor que el TTL. Si una instancia se detiene más que el TTL
+ * puede perder el lease en plena ejecución, por eso el trabajo protegido debe ser idempotente.
+ */
+@Slf4j
+@Service
+public class JobLeaseService implements MeterBinder {
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Identificador de esta instancia; por defecto host + sufijo aleatorio por arranque
+    @Value("${app.jobs.node-id:}")
+    private String nodeId;
+
+    @Value("${app.jobs.lease-ttl-ms:30000}")
+    private long leaseTtlMs;
+
+    // Leases que esta instancia tiene tomados y renueva
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService renewer;
+
+    // Métricas
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder refusals = new LongAdder();
+    private final LongAdder renewals = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+
+    @Autowired
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository, PlatformTransactionManager transactionManager) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        // Cada operación sobre un lease se confirma al instante, fuera de la transacción del trabajo
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!StringUtils.hasText(nodeId)) {
+            nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        long renewIntervalMs = Math.max(1, leaseTtlMs / 3);
+        renewer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("PetWorld-LeaseRenewer-"));
+        renewer.scheduleWithFixedDelay(this::renewHeld, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+        // Liberar lo que quede tomado para que otra instancia no tenga que esperar al vencimiento
+        for (String name : held) {
+            release(name);
+        }
+    }
+
+    /**
+     * Ejecuta el trabajo solo si esta instancia consigue su lease, renovándolo mientras dura
+     * y liberándolo al terminar
+     * @param name Nombre del trabajo o partición
+     * @param work Trabajo a ejecutar
+     * @return El resultado del trabajo, o vacío si el lease lo tiene otra instancia
+     */
+    public <T> Optional<T> runWithLease(String name, Supplier<T> work) {
+        if (!tryAcquire(name)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(work.get());
+        } finally {
+            release(name);
+        }
+    }
+
+    /**
+     * Intenta tomar el lease; si lo consigue queda registrado para renovarse hasta release
+     * @param name Nombre del trabajo o partición
+     * @return true si esta instancia es ahora la dueña
+     */
+    public boolean tryAcquire(String name) {
+        // Dentro de una misma instancia tampoco puede tomarse dos veces
+        if (!held.add(name)) {
+            return false;
+        }
+        boolean acquired = false;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plusNanos(leaseTtlMs * 1_000_000);
+            acquired = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    jobLeaseRepository.acquire(name, nodeId, now, expiresAt) == 1));
+            if (!acquired) {
+                acquired = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        jobLeaseRepository.insert(name, nodeId, now, expiresAt) == 1));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia creó la fila primero: el lease es suyo
+            log.debug("El lease {} lo creó otra instancia", name);
+        } finally {
+            if (acquired) {
+                acquisitions.increment();
+            } else {
+                refusals.increment();
+                held.remove(name);
+            }
+        }
+        return acquired;
+    }
+
+    /**
+     * Extiende el lease si esta instancia sigue siendo la dueña
+     * @return false si el lease venció y lo tomó otra instancia
+     */
+    public boolean renew(String name) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(leaseTtlMs * 1_000_000);
+        boolean renewed = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                jobLeaseRepository.renew(name, nodeId, expiresAt) == 1));
+        if (renewed) {
+            renewals.increment();
+        } else if (held.remove(name)) {
+            lost.increment();
+            log.warn("Se perdió el lease {}: lo tomó otra instancia", name);
+        }
+        return renewed;
+    }
+
+    /**
+     * Libera el lease para que otra instancia pueda tomarlo sin esperar a que venza
+     */
+    public void release(String name) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jobLeaseRepository.release(name, nodeId, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            // El lease vencerá solo
+            log.warn("No se pudo liberar el lease {}: {}", name, e.getMessage());
+        } finally {
+            held.remove(name);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petworld.jobs.leases.held", held, Set::size)
+                .description("Leases que esta instancia tiene tomados").register(registry);
+        FunctionCounter.builder("petworld.jobs.leases.acquired", acquisitions, LongAdder::sum)
+                .description("Leases tomados").register(registry);
+        FunctionCounter.builder("petworld.jobs.leases.refused", refusals, LongAdder::sum)
+                .description("Intentos de tomar un lease que tenía otra instancia").register(registry);
+        FunctionCounter.builder("petworld.jobs.leases.renewals", renewals, LongAdder::sum)
+                .description("Renovaciones de leases tomados").register(registry);
+        FunctionCounter.builder("petworld.jobs.leases.lost", lost, LongAdder::sum)
+                .description("Leases vencidos y tomados por otra instancia mientras se trabajaba").register(registry);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void renewHeld() {
+        for (String name : held) {
+            try {
+                renew(name);
+            } catch (RuntimeException e) {
+                // Se reintenta en la próxima renovación, antes de que venza
+                log.warn("No se pudo renovar el lease {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "petworld";
+        }
+    }
+}
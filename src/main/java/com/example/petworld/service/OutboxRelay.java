@@ -0,0 +1,392 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.OutboxEvent;
+import com.example.petworld.dto.Outbox.OutboxStatsDTO;
+import com.example.petworld.events.PetCreatedEvent;
+import com.example.petworld.infrastructure.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Entrega a los listeners los eventos del outbox (ver OutboxService), fuera de la petición
+ * que los originó. Cada lote se reclama en una transacción corta con SKIP LOCKED: se suma un
+ * intento y se aparta el evento durante app.outbox.claim-timeout-ms, así que varias instancias
+ * drenan en paralelo sin repetir eventos. Cada evento se publica como una tarea del taskExecutor
+ * (los listeners corren ahí, sin @Async) y el relay espera a que terminen todos sus listeners
+ * antes de marcarlo como entregado; los del lote se marcan en un solo UPDATE. Un lote completo
+ * puede tardar más que el reclamo (batch-size * duración de los listeners / hilos del executor),
+ * así que mientras los listeners avanzan el relay prolonga el reclamo de los que faltan; si
+ * durante medio reclamo no termina ninguno, deja de esperarlos. Si un listener falla o el
+ * executor rechaza o descarta la tarea, el evento se reintenta con espera exponencial hasta
+ * app.outbox.max-attempts; si la instancia muere o los listeners se atascan, el evento vuelve a
+ * estar disponible al vencer el reclamo. La entrega es por tanto al menos una vez, y los
+ * listeners con efectos descartan las repetidas (ver ConsumedEventService).
+ */
+@Slf4j
+@Service
+public class OutboxRelay implements MeterBinder {
+
+    public static final String PET_CREATED = "PetCreated";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ConsumedEventService consumedEventService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs = 1000;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${app.outbox.claim-timeout-ms:60000}")
+    private long claimTimeoutMs = 60000;
+
+    @Value("${app.outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs = 1000;
+
+    @Value("${app.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs = 300000;
+
+    @Value("${app.outbox.retention-hours:24}")
+    private long retentionHours = 24;
+
+    @Value("${app.outbox.cleanup-interval-ms:3600000}")
+    private long cleanupIntervalMs = 3600000;
+
+    // Un solo hilo: los drenados de esta instancia nunca se solapan
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    // Métricas
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failedDeliveries = new LongAdder();
+    private final LongAdder redeliveries = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder claimExtensions = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       @Qualifier("taskExecutor") AsyncTaskExecutor taskExecutor,
+                       ConsumedEventService consumedEventService,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
+        this.consumedEventService = consumedEventService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("PetWorld-OutboxRelay-"));
+        scheduler.scheduleWithFixedDelay(this::drainScheduled, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::cleanupScheduled, cleanupIntervalMs, cleanupIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Pide un drenado inmediato (tras el commit de un evento). Las llamadas que llegan mientras
+     * hay uno pendiente se agrupan en él
+     */
+    public void wakeUp() {
+        if (!wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                wakeUpPending.set(false);
+                drainScheduled();
+            });
+        } catch (RejectedExecutionException e) {
+            // La aplicación se está deteniendo: el evento queda en el outbox para el próximo arranque
+            wakeUpPending.set(false);
+        }
+    }
+
+    private void drainScheduled() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // Una excepción cancelaría las siguientes ejecuciones del planificador
+            log.error("Falló el drenado del outbox", e);
+        }
+    }
+
+    private void cleanupScheduled() {
+        try {
+            cleanup();
+        } catch (RuntimeException e) {
+            log.error("Falló la limpieza del outbox", e);
+        }
+    }
+
+    /**
+     * Entrega lotes de eventos pendientes hasta que no quede ninguno disponible
+     * @return Cantidad de eventos entregados
+     */
+    public int drain() {
+        int total = 0;
+        List<OutboxEvent> claimed;
+        do {
+            claimed = claimBatch();
+            total += dispatch(claimed);
+        } while (claimed.size() == batchSize);
+        return total;
+    }
+
+    private List<OutboxEvent> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> events = outboxEventRepository.findClaimable(now, maxAttempts, Limit.of(batchSize));
+            LocalDateTime claimedUntil = now.plus(claimTimeoutMs, ChronoUnit.MILLIS);
+            for (OutboxEvent event : events) {
+                event.setAttempts(event.getAttempts() + 1);
+                event.setAvailableAt(claimedUntil);
+            }
+            if (!events.isEmpty()) {
+                batches.increment();
+            }
+            return events;
+        });
+    }
+
+    private int dispatch(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // El reclamo se renueva a la mitad, antes de que otro relay pueda tomar los eventos
+        long renewalNanos = TimeUnit.MILLISECONDS.toNanos(claimTimeoutMs) / 2;
+        long renewAt = System.nanoTime() + renewalNanos;
+
+        Map<OutboxEvent, Future<?>> submitted = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            // Con CALLER_RUNS el propio relay ejecuta los listeners que no entran en el executor:
+            // se prolonga el reclamo de los ya enviados y los que faltan enviar
+            if (System.nanoTime() - renewAt >= 0) {
+                List<Long> ids = new ArrayList<>();
+                submitted.keySet().forEach(submittedEvent -> ids.add(submittedEvent.getId()));
+                events.subList(i, events.size()).forEach(pendingEvent -> ids.add(pendingEvent.getId()));
+                extendClaim(ids);
+                renewAt = System.nanoTime() + renewalNanos;
+            }
+            if (event.getAttempts() > 1) {
+                redeliveries.increment();
+            }
+            try {
+                ApplicationEvent applicationEvent = toApplicationEvent(event);
+                submitted.put(event, taskExecutor.submit(() -> eventPublisher.publishEvent(applicationEvent)));
+            } catch (RuntimeException e) {
+                // Payload inválido o el executor rechazó la tarea (política ABORT)
+                failedDeliveries.increment();
+                retryLater(event, e);
+            }
+        }
+
+        List<Long> deliveredIds = new ArrayList<>(events.size());
+        List<Map.Entry<OutboxEvent, Future<?>>> waiting = new ArrayList<>(submitted.entrySet());
+        if (!waiting.isEmpty() && System.nanoTime() - renewAt >= 0) {
+            extendClaim(waiting.stream().map(entry -> entry.getKey().getId()).toList());
+            renewAt = System.nanoTime() + renewalNanos;
+        }
+        // Sin ningún listener terminado durante medio reclamo, se deja de esperar
+        boolean progress = false;
+        int next = 0;
+        while (next < waiting.size()) {
+            OutboxEvent event = waiting.get(next).getKey();
+            try {
+                waiting.get(next).getValue().get(Math.max(0, renewAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                deliveredIds.add(event.getId());
+            } catch (ExecutionException e) {
+                failedDeliveries.increment();
+                retryLater(event, e.getCause());
+            } catch (CancellationException e) {
+                // El executor descartó la tarea (política DROP o apagado)
+                failedDeliveries.increment();
+                retryLater(event, new IllegalStateException("El executor descartó la entrega", e));
+            } catch (TimeoutException e) {
+                if (!progress) {
+                    // Listeners atascados: sin marcar, se vuelven a entregar al vencer el reclamo
+                    log.warn("Ningún listener terminó en {} ms; {} eventos se entregarán de nuevo al vencer el reclamo",
+                            claimTimeoutMs / 2, waiting.size() - next);
+                    break;
+                }
+                extendClaim(waiting.subList(next, waiting.size()).stream().map(entry -> entry.getKey().getId()).toList());
+                progress = false;
+                renewAt = System.nanoTime() + renewalNanos;
+                continue;
+            } catch (InterruptedException e) {
+                // La aplicación se está deteniendo: los que no terminaron se entregan al vencer el reclamo
+                Thread.currentThread().interrupt();
+                break;
+            }
+            progress = true;
+            next++;
+        }
+        if (!deliveredIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.markProcessed(deliveredIds, LocalDateTime.now()));
+            delivered.add(deliveredIds.size());
+        }
+        return deliveredIds.size();
+    }
+
+    private void extendClaim(List<Long> ids) {
+        LocalDateTime claimedUntil = LocalDateTime.now().plus(claimTimeoutMs, ChronoUnit.MILLIS);
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.extendClaim(ids, claimedUntil));
+            claimExtensions.increment();
+        } catch (RuntimeException e) {
+            // Se sigue esperando: en el peor caso otro relay entrega también los que falten
+            log.warn("No se pudo prolongar el reclamo de {} eventos: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private void retryLater(OutboxEvent event, Throwable cause) {
+        // Espera exponencial según los intentos ya hechos, con tope
+        long backoffMs = Math.min(maxBackoffMs, retryBackoffMs << Math.min(event.getAttempts() - 1, 20));
+        LocalDateTime retryAt = LocalDateTime.now().plus(backoffMs, ChronoUnit.MILLIS);
+        String error = String.valueOf(cause.getMessage());
+        if (event.getAttempts() >= maxAttempts) {
+            log.error("Evento {} descartado tras {} intentos: {}", event.getIdempotencyKey(), event.getAttempts(), error);
+        } else {
+            log.warn("Falló la entrega del evento {} (intento {}), se reintenta en {} ms: {}",
+                    event.getIdempotencyKey(), event.getAttempts(), backoffMs, error);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markFailed(
+                    event.getId(), retryAt, error.length() > 1000 ? error.substring(0, 1000) : error));
+        } catch (RuntimeException e) {
+            // Sin marcar, el evento vuelve a estar disponible al vencer el reclamo
+            log.warn("No se pudo registrar el fallo del evento {}: {}", event.getIdempotencyKey(), e.getMessage());
+        }
+    }
+
+    private ApplicationEvent toApplicationEvent(OutboxEvent event) {
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Payload inválido: " + e.getMessage(), e);
+        }
+        if (PET_CREATED.equals(event.getEventType())) {
+            return new PetCreatedEvent(this,
+                    payload.get("petId").asLong(),
+                    payload.get("petName").asText(),
+                    payload.get("petType").asText(),
+                    event.getIdempotencyKey());
+        }
+        throw new IllegalStateException("Tipo de evento desconocido: " + event.getEventType());
+    }
+
+    /**
+     * Borra los eventos entregados hace más de app.outbox.retention-hours, y los registros
+     * de ConsumedEventService de esa antigüedad: un evento pendiente se reclama de nuevo
+     * mucho antes, así que esos registros ya no pueden descartar ninguna entrega
+     * @return Cantidad de eventos borrados
+     */
+    public int cleanup() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        Integer removed = transactionTemplate.execute(status -> {
+            consumedEventService.deleteConsumedBefore(before);
+            return outboxEventRepository.deleteProcessedBefore(before);
+        });
+        int count = removed == null ? 0 : removed;
+        deleted.add(count);
+        if (count > 0) {
+            log.info("Borrados {} eventos entregados del outbox", count);
+        }
+        return count;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Los pendientes se cuentan en la base en cada lectura de las métricas
+        Gauge.builder("petworld.outbox.pending", outboxEventRepository, OutboxEventRepository::countByProcessedAtIsNull)
+                .description("Eventos sin entregar").register(registry);
+        Gauge.builder("petworld.outbox.exhausted", this,
+                        relay -> relay.outboxEventRepository.countByProcessedAtIsNullAndAttemptsGreaterThanEqual(relay.maxAttempts))
+                .description("Eventos sin entregar que agotaron los intentos").register(registry);
+        FunctionCounter.builder("petworld.outbox.delivered", delivered, LongAdder::sum)
+                .description("Eventos entregados a todos sus listeners").register(registry);
+        FunctionCounter.builder("petworld.outbox.failed.deliveries", failedDeliveries, LongAdder::sum)
+                .description("Entregas fallidas, que se reintentarán").register(registry);
+        FunctionCounter.builder("petworld.outbox.redeliveries", redeliveries, LongAdder::sum)
+                .description("Eventos reclamados otra vez (reintentos y reclamos vencidos)").register(registry);
+        FunctionCounter.builder("petworld.outbox.batches", batches, LongAdder::sum)
+                .description("Lotes reclamados").register(registry);
+        FunctionCounter.builder("petworld.outbox.claim.extensions", claimExtensions, LongAdder::sum)
+                .description("Reclamos prolongados mientras los listeners avanzaban").register(registry);
+        FunctionCounter.builder("petworld.outbox.deleted", deleted, LongAdder::sum)
+                .description("Eventos entregados borrados por antigüedad").register(registry);
+        FunctionCounter.builder("petworld.outbox.duplicates.skipped", consumedEventService, ConsumedEventService::getDuplicates)
+                .description("Entregas repetidas descartadas por los listeners").register(registry);
+    }
+
+    /**
+     * Métricas del relay y estado del outbox
+     */
+    public OutboxStatsDTO getStats() {
+        OutboxStatsDTO stats = new OutboxStatsDTO();
+        stats.setPending(outboxEventRepository.countByProcessedAtIsNull());
+        stats.setExhausted(outboxEventRepository.countByProcessedAtIsNullAndAttemptsGreaterThanEqual(maxAttempts));
+        stats.setDelivered(delivered.sum());
+        stats.setFailedDeliveries(failedDeliveries.sum());
+        stats.setRedeliveries(redeliveries.sum());
+        stats.setBatches(batches.sum());
+        stats.setClaimExtensions(claimExtensions.sum());
+        stats.setDeleted(deleted.sum());
+        stats.setDuplicatesSkipped(consumedEventService.getDuplicates());
+        return stats;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.OutboxEvent;
+import com.example.petworld.infrastructure.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registra eventos de dominio en el outbox dentro de la transacción del cambio que los origina.
+ * La petición solo paga un INSERT más; los listeners corren después en OutboxRelay, al que se
+ * despierta tras el commit para que la entrega no espere al siguiente sondeo.
+ */
+@Slf4j
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         OutboxRelay outboxRelay,
+                         ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxRelay = outboxRelay;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Guarda el evento en el outbox. Exige una transacción en curso: el evento se confirma
+     * o se revierte junto con el cambio
+     * @param eventType Tipo de evento (ver OutboxRelay)
+     * @param aggregateId ID de la entidad que originó el evento
+     * @param payload Datos del evento, serializados a JSON
+     * @param idempotencyKey Clave única del evento; si ya está en el outbox no se vuelve a guardar
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String eventType, Long aggregateId, Object payload, String idempotencyKey) {
+        if (outboxEventRepository.existsByIdempotencyKey(idempotencyKey)) {
+            log.debug("Evento {} ya registrado en el outbox", idempotencyKey);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setPayload(toJson(payload));
+        event.setIdempotencyKey(idempotencyKey);
+        event.setCreatedAt(now);
+        event.setAvailableAt(now);
+        outboxEventRepository.save(event);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar el evento: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.petworld.service;
+
+import com.example.petworld.dto.Pet.PetDecayStatsDTO;
+import com.example.petworld.infrastructure.PetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Materializa periódicamente el decaimiento de todas las mascotas (app.pets.decay.enabled,
+ * desactivado por defecto). No incrementa la versión: la foto adelantada es equivalente a la
+ * anterior, así que no provoca conflictos optimistas con escrituras concurrentes.
+ * Cada pasada reparte el rango de IDs en tramos fijos de app.pets.decay.chunk-size y los
+ * actualiza en paralelo con un UPDATE por tramo (PetRepository.decayStates), cada uno en su
+ * propia transacción y sin cargar entidades. Solo se aplican horas completas, así que las
+ * lecturas siguen calculando con PetStateCalculator el resto desde statesUpdatedAt.
+ * Las pasadas nunca se solapan dentro de una instancia: el planificador espera a que termine
+ * una para contar el intervalo y una llamada manual durante una pasada se descarta.
+ * Entre instancias, cada tramo se ejecuta bajo el lease "pet-decay:<n>" (JobLeaseService);
+ * repetir un tramo ya hecho no cambia nada porque la foto quedó a menos de una hora.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.pets.decay.enabled", havingValue = "true")
+public class PetDecayJob implements MeterBinder {
+
+    static final String LEASE_PREFIX = "pet-decay:";
+
+    private final PetRepository petRepository;
+    private final JobLeaseService jobLeaseService;
+    private final PetSnapshotCache petSnapshotCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.pets.decay.interval-ms:300000}")
+    private long intervalMs;
+
+    @Value("${app.pets.decay.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.pets.decay.threads:2}")
+    private int threads;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    // Métricas
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder skippedRuns = new LongAdder();
+    private final LongAdder totalPetsDecayed = new LongAdder();
+    private final LongAdder totalFailedChunks = new LongAdder();
+    private final LongAdder totalChunksClaimedElsewhere = new LongAdder();
+    private volatile PetDecayStatsDTO lastRun;
+
+    @Autowired
+    public PetDecayJob(PetRepository petRepository,
+                       JobLeaseService jobLeaseService,
+                       PetSnapshotCache petSnapshotCache,
+                       PlatformTransactionManager transactionManager) {
+        this.petRepository = petRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.petSnapshotCache = petSnapshotCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("PetWorld-Decay-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("PetWorld-DecayScheduler-"));
+        scheduler.scheduleWithFixedDelay(this::runScheduled, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void runScheduled() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            // Una excepción cancelaría las siguientes ejecuciones del planificador
+            log.error("Falló la pasada de decaimiento", e);
+        }
+    }
+
+    /**
+     * Ejecuta una pasada de decaimiento sobre todas las mascotas
+     * @return true si se ejecutó, false si se descartó porque ya había una en curso
+     */
+    public boolean run() {
+        if (!running.compareAndSet(false, true)) {
+            skippedRuns.increment();
+            log.debug("Pasada de decaimiento descartada: la anterior sigue en curso");
+            return false;
+        }
+        try {
+            decayAll(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+            return true;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void decayAll(LocalDateTime now) {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = now.minusHours(1);
+
+        // Los tramos son fijos (ID / chunk-size) para que todas las instancias usen los mismos leases
+        List<CompletableFuture<Optional<Integer>>> chunks = new ArrayList<>();
+        Long minId = petRepository.findMinId();
+        Long maxId = petRepository.findMaxId();
+        if (minId != null && maxId != null) {
+            for (long partition = minId / chunkSize; partition <= maxId / chunkSize; partition++) {
+                long fromId = partition * chunkSize;
+                long toId = fromId + chunkSize - 1;
+                String lease = LEASE_PREFIX + partition;
+                chunks.add(CompletableFuture.supplyAsync(() -> jobLeaseService.runWithLease(lease, () ->
+                        transactionTemplate.execute(status ->
+                                petRepository.decayStates(fromId, toId, now, cutoff))), executor));
+            }
+        }
+
+        long decayed = 0;
+        long failed = 0;
+        long claimedElsewhere = 0;
+        for (CompletableFuture<Optional<Integer>> chunk : chunks) {
+            try {
+                Optional<Integer> updated = chunk.join();
+                if (updated.isPresent()) {
+                    decayed += updated.get();
+                } else {
+                    claimedElsewhere++;
+                }
+            } catch (CompletionException e) {
+                // El tramo se reintenta entero en la siguiente pasada (su UPDATE se revirtió)
+                failed++;
+                log.warn("Falló un tramo del decaimiento: {}", e.getCause().getMessage());
+            }
+        }
+
+        if (decayed > 0) {
+            // Las fotos en caché calculan los mismos estados, pero sobre una foto que ya no existe
+            petSnapshotCache.invalidateAllPets();
+        }
+
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        runs.increment();
+        totalPetsDecayed.add(decayed);
+        totalFailedChunks.add(failed);
+        totalChunksClaimedElsewhere.add(claimedElsewhere);
+
+        PetDecayStatsDTO run = new PetDecayStatsDTO();
+        run.setLastRunAt(now);
+        run.setLastRunChunks(chunks.size());
+        run.setLastRunFailedChunks(failed);
+        run.setLastRunChunksClaimedElsewhere(claimedElsewhere);
+        run.setLastRunPetsDecayed(decayed);
+        run.setLastRunMillis(millis);
+        run.setLastRunPetsPerSecond(millis == 0 ? 0 : decayed * 1000.0 / millis);
+        lastRun = run;
+        log.info("Decaimiento aplicado a {} mascotas en {} tramos ({} fallidos, {} de otras instancias) en {} ms",
+                decayed, chunks.size(), failed, claimedElsewhere, Math.round(millis));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petworld.pets.decay.running", running, flag -> flag.get() ? 1 : 0)
+                .description("1 mientras esta instancia ejecuta una pasada").register(registry);
+        FunctionCounter.builder("petworld.pets.decay.runs", runs, LongAdder::sum)
+                .description("Pasadas ejecutadas").register(registry);
+        FunctionCounter.builder("petworld.pets.decay.skipped.runs", skippedRuns, LongAdder::sum)
+                .description("Pasadas omitidas porque la anterior seguía en curso").register(registry);
+        FunctionCounter.builder("petworld.pets.decay.pets", totalPetsDecayed, LongAdder::sum)
+                .description("Mascotas actualizadas").register(registry);
+        FunctionCounter.builder("petworld.pets.decay.failed.chunks", totalFailedChunks, LongAdder::sum)
+                .description("Tramos fallidos").register(registry);
+        FunctionCounter.builder("petworld.pets.decay.chunks.claimed.elsewhere", totalChunksClaimedElsewhere, LongAdder::sum)
+                .description("Tramos que procesó otra instancia").register(registry);
+        Gauge.builder("petworld.pets.decay.last.run.duration", this,
+                        job -> job.lastRun != null ? job.lastRun.getLastRunMillis() / 1000.0 : 0)
+                .baseUnit("seconds").description("Duración de la última pasada").register(registry);
+    }
+
+    /**
+     * Métricas de las pasadas de decaimiento
+     */
+    public PetDecayStatsDTO getStats() {
+        PetDecayStatsDTO stats = new PetDecayStatsDTO();
+        PetDecayStatsDTO last = lastRun;
+        if (last != null) {
+            stats.setLastRunAt(last.getLastRunAt());
+            stats.setLastRunChunks(last.getLastRunChunks());
+            stats.setLastRunFailedChunks(last.getLastRunFailedChunks());
+            stats.setLastRunChunksClaimedElsewhere(last.getLastRunChunksClaimedElsewhere());
+            stats.setLastRunPetsDecayed(last.getLastRunPetsDecayed());
+            stats.setLastRunMillis(last.getLastRunMillis());
+            stats.setLastRunPetsPerSecond(last.getLastRunPetsPerSecond());
+        }
+        stats.setRunning(running.get());
+        stats.setRuns(runs.sum());
+        stats.setSkippedRuns(skippedRuns.sum());
+        stats.setTotalPetsDecayed(totalPetsDecayed.sum());
+        stats.setTotalFailedChunks(totalFailedChunks.sum());
+        stats.setTotalChunksClaimedElsewhere(totalChunksClaimedElsewhere.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.petworld.service;
+
+import com.example.petworld.dto.Pet.PetEventBusListenerStatsDTO;
+import com.example.petworld.dto.Pet.PetEventBusStatsDTO;
+import com.example.petworld.events.PetBusEvent;
+import com.example.petworld.events.PetEventBusListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bus en memoria para los eventos de alta frecuencia de las mascotas (PetInteractedEvent,
+ * PetStateChangedEvent). Publicar solo encola el evento en una cola circular sin bloqueos;
+ * un único hilo la vacía en lotes de hasta app.events.bus.max-batch-size, coalesce los
+ * eventos reemplazables (ver PetBusEvent.coalesceKey) y entrega a cada listener su parte
+ * del lote en una sola llamada. Las rutas por clase de evento y tipo de mascota se calculan
+ * al arrancar, así que enrutar un evento son dos búsquedas en un mapa.
+ * Si la cola se llena, los eventos nuevos se descartan y se cuentan: publicar nunca frena
+ * a quien interactúa con una mascota. Los eventos se pierden si la aplicación se detiene;
+ * para eventos que no pueden perderse está el outbox (OutboxService).
+ */
+@Slf4j
+@Service
+public class PetEventBus implements MeterBinder {
+
+    // Espera máxima del hilo del bus sin eventos; publicar lo despierta antes
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<PetEventBusListener<?>> listeners;
+    private final Map<Class<?>, Route> routes = new HashMap<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    @Value("${app.events.bus.capacity:16384}")
+    private int capacity = 16384;
+
+    @Value("${app.events.bus.max-batch-size:256}")
+    private int maxBatchSize = 256;
+
+    private PetEventRingBuffer<Envelope> ring;
+    private ExecutorService executor;
+    private volatile Thread dispatcher;
+    private volatile boolean idle;
+    private volatile boolean running;
+
+    // Métricas
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder unrouted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    @Autowired
+    public PetEventBus(ObjectProvider<PetEventBusListener<?>> listeners) {
+        this.listeners = listeners.orderedStream().toList();
+    }
+
+    @PostConstruct
+    public void init() {
+        compileRoutes();
+        ring = new PetEventRingBuffer<>(capacity);
+        running = true;
+        executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("PetWorld-EventBus-"));
+        executor.execute(this::dispatchLoop);
+        log.info("Bus de eventos de mascotas con {} listeners y capacidad {}", subscriptions.size(), ring.capacity());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // El hilo entrega lo que quede en la cola antes de terminar
+        running = false;
+        LockSupport.unpark(dispatcher);
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Encola el evento para sus listeners sin esperar a que lo procesen
+     * @return false si se descartó porque la cola estaba llena
+     */
+    public boolean publish(PetBusEvent event) {
+        if (!ring.offer(new Envelope(event, System.nanoTime()))) {
+            dropped.increment();
+            log.debug("Cola del bus de eventos llena, evento descartado para la mascota {}", event.getPetId());
+            return false;
+        }
+        published.increment();
+        if (idle) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    /**
+     * Publica el evento cuando se confirme la transacción en curso, o ya mismo si no hay
+     * ninguna. Si la transacción se revierte (o se reintenta) sus eventos no se publican
+     */
+    public void publishAfterCommit(PetBusEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<PetBusEvent> pending = (List<PetBusEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<PetBusEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PetEventBus.this);
+                    if (status == STATUS_COMMITTED) {
+                        events.forEach(PetEventBus.this::publish);
+                    }
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    /**
+     * Agrupa las suscripciones por clase de evento y, dentro de cada una, por tipo de
+     * mascota: cada tipo mencionado por algún listener tiene su lista ya combinada con
+     * los listeners de todos los tipos, en el orden de registro
+     */
+    private void compileRoutes() {
+        for (PetEventBusListener<?> listener : listeners) {
+            subscriptions.add(new Subscription(listener));
+        }
+        Map<Class<?>, List<Subscription>> byEventType = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            byEventType.computeIfAbsent(subscription.listener.eventType(), k -> new ArrayList<>()).add(subscription);
+        }
+        byEventType.forEach((eventType, candidates) -> {
+            List<Subscription> allTypes = candidates.stream().filter(s -> s.petTypes.isEmpty()).toList();
+            Set<String> petTypes = new LinkedHashSet<>();
+            candidates.forEach(s -> petTypes.addAll(s.petTypes));
+            Map<String, Subscription[]> byPetType = new HashMap<>();
+            for (String petType : petTypes) {
+                byPetType.put(petType, candidates.stream()
+                        .filter(s -> s.petTypes.isEmpty() || s.petTypes.contains(petType))
+                        .toArray(Subscription[]::new));
+            }
+            routes.put(eventType, new Route(allTypes.toArray(Subscription[]::new), byPetType));
+        });
+    }
+
+    private void dispatchLoop() {
+        dispatcher = Thread.currentThread();
+        List<Envelope> batch = new ArrayList<>(maxBatchSize);
+        while (running || !ring.isEmpty()) {
+            batch.clear();
+            if (ring.drainTo(batch, maxBatchSize) == 0) {
+                // Se marca antes de volver a mirar la cola: un evento publicado después
+                // de esta comprobación ve idle y despierta al hilo
+                idle = true;
+                if (running && ring.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            try {
+                dispatch(batch);
+            } catch (RuntimeException e) {
+                // Un error inesperado no debe detener el hilo del bus
+                log.error("Falló la entrega de un lote del bus de eventos", e);
+            }
+        }
+    }
+
+    private void dispatch(List<Envelope> batch) {
+        batches.increment();
+        for (Envelope envelope : coalesce(batch)) {
+            Route route = routes.get(envelope.event.getClass());
+            Subscription[] targets = route == null ? null : route.forPetType(envelope.event.getPetType());
+            if (targets == null || targets.length == 0) {
+                unrouted.increment();
+                continue;
+            }
+            for (Subscription target : targets) {
+                target.pending.add(envelope);
+            }
+        }
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.pending.isEmpty()) {
+                subscription.deliver();
+            }
+        }
+    }
+
+    /**
+     * Quita del lote los eventos reemplazados por otro posterior con la misma clave,
+     * dejando cada evento superviviente en su posición
+     */
+    private List<Envelope> coalesce(List<Envelope> batch) {
+        Set<Object> seen = null;
+        List<Envelope> kept = new ArrayList<>(batch.size());
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            Envelope envelope = batch.get(i);
+            Object key = envelope.event.coalesceKey();
+            if (key != null) {
+                if (seen == null) {
+                    seen = new HashSet<>();
+                }
+                if (!seen.add(new CoalesceKey(envelope.event.getClass(), key))) {
+                    coalesced.increment();
+                    continue;
+                }
+            }
+            kept.add(envelope);
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petworld.events.bus.queued", this, bus -> bus.ring != null ? bus.ring.size() : 0)
+                .description("Eventos esperando en la cola").register(registry);
+        Gauge.builder("petworld.events.bus.capacity", this, bus -> bus.ring != null ? bus.ring.capacity() : 0)
+                .description("Capacidad de la cola").register(registry);
+        FunctionCounter.builder("petworld.events.bus.published", published, LongAdder::sum)
+                .description("Eventos encolados").register(registry);
+        FunctionCounter.builder("petworld.events.bus.dropped", dropped, LongAdder::sum)
+                .description("Eventos descartados con la cola llena").register(registry);
+        FunctionCounter.builder("petworld.events.bus.coalesced", coalesced, LongAdder::sum)
+                .description("Eventos reemplazados por uno posterior del mismo lote").register(registry);
+        FunctionCounter.builder("petworld.events.bus.unrouted", unrouted, LongAdder::sum)
+                .description("Eventos sin listeners").register(registry);
+        FunctionCounter.builder("petworld.events.bus.batches", batches, LongAdder::sum)
+                .description("Lotes vaciados de la cola").register(registry);
+        for (Subscription subscription : subscriptions) {
+            subscription.bindTo(registry);
+        }
+    }
+
+    /**
+     * Métricas del bus y de cada listener
+     */
+    public PetEventBusStatsDTO getStats() {
+        PetEventBusStatsDTO stats = new PetEventBusStatsDTO();
+        stats.setCapacity(ring.capacity());
+        stats.setQueuedEvents(ring.size());
+        stats.setPublishedEvents(published.sum());
+        stats.setDroppedEvents(dropped.sum());
+        stats.setCoalescedEvents(coalesced.sum());
+        stats.setUnroutedEvents(unrouted.sum());
+        stats.setBatches(batches.sum());
+        stats.setListeners(subscriptions.stream().map(Subscription::getStats).toList());
+        return stats;
+    }
+
+    /**
+     * Evento encolado con el momento en que se publicó (para medir el retraso)
+     */
+    @AllArgsConstructor
+    private static final class Envelope {
+        private final PetBusEvent event;
+        private final long publishedNanos;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class CoalesceKey {
+        private final Class<?> eventType;
+        private final Object key;
+    }
+
+    /**
+     * Listeners de una clase de evento: los de todos los tipos de mascota y, por cada tipo
+     * con listeners propios, la lista ya combinada
+     */
+    @AllArgsConstructor
+    private static final class Route {
+        private final Subscription[] allPetTypes;
+        private final Map<String, Subscription[]> byPetType;
+
+        Subscription[] forPetType(String petType) {
+            Subscription[] targets = petType == null ? null : byPetType.get(petType);
+            return targets != null ? targets : allPetTypes;
+        }
+    }
+
+    /**
+     * Un listener con su parte del lote en curso y sus métricas. Solo el hilo del bus
+     * escribe las métricas; se leen desde getStats
+     */
+    private static final class Subscription {
+        private final PetEventBusListener<?> listener;
+        private final Set<String> petTypes;
+        private final List<Envelope> pending = new ArrayList<>();
+
+        private volatile long delivered;
+        private volatile long batches;
+        private volatile long failedBatches;
+        private volatile long processingNanos;
+        private volatile long lagNanos;
+        private volatile long maxLagNanos;
+
+        Subscription(PetEventBusListener<?> listener) {
+            this.listener = listener;
+            this.petTypes = Set.copyOf(listener.petTypes());
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void deliver() {
+            long start = System.nanoTime();
+            List<PetBusEvent> events = new ArrayList<>(pending.size());
+            long batchLag = 0;
+            long batchMaxLag = 0;
+            for (Envelope envelope : pending) {
+                events.add(envelope.event);
+                long lag = start - envelope.publishedNanos;
+                batchLag += lag;
+                batchMaxLag = Math.max(batchMaxLag, lag);
+            }
+            pending.clear();
+            try {
+                ((PetEventBusListener) listener).onEvents(Collections.unmodifiableList(events));
+            } catch (RuntimeException e) {
+                failedBatches++;
+                log.warn("El listener {} falló con un lote de {} eventos: {}", listener.name(), events.size(), e.getMessage());
+            }
+            processingNanos += System.nanoTime() - start;
+            delivered += events.size();
+            batches++;
+            lagNanos += batchLag;
+            maxLagNanos = Math.max(maxLagNanos, batchMaxLag);
+        }
+
+        void bindTo(MeterRegistry registry) {
+            Tags tags = Tags.of("listener", listener.name());
+            FunctionCounter.builder("petworld.events.bus.listener.delivered", this, subscription -> subscription.delivered)
+                    .tags(tags).description("Eventos entregados al listener").register(registry);
+            FunctionCounter.builder("petworld.events.bus.listener.failed.batches", this, subscription -> subscription.failedBatches)
+                    .tags(tags).description("Lotes en los que el listener falló").register(registry);
+            FunctionTimer.builder("petworld.events.bus.listener.processing", this, subscription -> subscription.batches,
+                            subscription -> subscription.processingNanos, TimeUnit.NANOSECONDS)
+                    .tags(tags).description("Duración de cada lote en el listener").register(registry);
+            FunctionTimer.builder("petworld.events.bus.listener.lag", this, subscription -> subscription.delivered,
+                            subscription -> subscription.lagNanos, TimeUnit.NANOSECONDS)
+                    .tags(tags).description("Espera de cada evento desde que se publicó hasta su entrega").register(registry);
+        }
+
+        PetEventBusListenerStatsDTO getStats() {
+            PetEventBusListenerStatsDTO stats = new PetEventBusListenerStatsDTO();
+            long events = delivered;
+            long count = batches;
+            long nanos = processingNanos;
+            stats.setName(listener.name());
+            stats.setEventType(listener.eventType().getSimpleName());
+            stats.setPetTypes(petTypes);
+            stats.setDeliveredEvents(events);
+            stats.setBatches(count);
+            stats.setFailedBatches(failedBatches);
+            stats.setAverageBatchSize(count == 0 ? 0 : (double) events / count);
+            stats.setEventsPerSecond(nanos == 0 ? 0 : events * 1_000_000_000.0 / nanos);
+            stats.setAverageLagMillis(events == 0 ? 0 : lagNanos / 1_000_000.0 / events);
+            stats.setMaxLagMillis(maxLagNanos / 1_000_000.0);
+            return stats;
+        }
+    }
+}
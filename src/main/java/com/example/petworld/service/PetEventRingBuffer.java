@@ -0,0 +1,96 @@
+package com.example.petworld.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola circular acotada y sin bloqueos para muchos productores y un único consumidor.
+ * Cada celda lleva un número de secuencia que indica si está libre para la vuelta actual
+ * del productor o ya publicada para el consumidor; los productores solo compiten con un
+ * CAS sobre la cola y nunca esperan: si está llena, offer devuelve false.
+ * @param <T> Tipo de los elementos
+ */
+final class PetEventRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Próxima posición a publicar
+    private final AtomicLong head = new AtomicLong(); // Próxima posición a consumir
+
+    /**
+     * @param capacity Capacidad mínima; se redondea a la siguiente potencia de dos
+     */
+    PetEventRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publica el elemento sin bloquear
+     * @return false si la cola está llena
+     */
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, element);
+                    // La secuencia se escribe después del elemento: el consumidor que la ve lo ve a él
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // La celda aún guarda un elemento de la vuelta anterior
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Saca hasta max elementos en orden de publicación. Solo debe llamarlo el consumidor
+     * @return Cantidad de elementos agregados a target
+     */
+    int drainTo(List<T> target, int max) {
+        long position = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add(slots.get(index));
+            slots.lazySet(index, null);
+            // Libera la celda para la próxima vuelta de los productores
+            sequences.set(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head.set(position);
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
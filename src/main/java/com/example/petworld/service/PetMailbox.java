@@ -0,0 +1,350 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Interaction;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.exception.ResourceNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buzón de una mascota activa: procesa sus interacciones de a una, en orden de llegada,
+ * sobre una copia en memoria de la mascota, y las escribe en la base de datos en grupos
+ * (write-behind). Nunca hay dos hilos procesando el mismo buzón a la vez, así que el
+ * estado en memoria no necesita sincronización.
+ * Cada interacción se registra en el WAL de la mascota antes de confirmarse al cliente;
+ * si el proceso se cae antes de escribirla, se vuelve a aplicar al abrir el buzón.
+ */
+@Slf4j
+class PetMailbox implements Runnable {
+    // Mensajes procesados por turno antes de ceder el hilo a otros buzones
+    private static final int MAX_MESSAGES_PER_TURN = 256;
+
+    private final Long petId;
+    private final PetMailboxService service;
+    private final PetWriteAheadLog wal;
+
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger(); // Mensajes encolados o en proceso
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    // Estado que solo toca el hilo que procesa el buzón
+    private Pet pet;
+    private final List<Interaction> pending = new ArrayList<>();
+    private LocalDateTime lastActivity = LocalDateTime.now();
+
+    PetMailbox(Long petId, PetMailboxService service, PetWriteAheadLog wal) {
+        this.petId = petId;
+        this.service = service;
+        this.wal = wal;
+    }
+
+    /**
+     * Encola un mensaje y programa el buzón si no estaba en ejecución
+     * @param message Mensaje a procesar
+     * @return false si el buzón ya se cerró (el mensaje debe ir a un buzón nuevo)
+     */
+    boolean offer(Message message) {
+        if (closed) {
+            return false;
+        }
+        depth.incrementAndGet();
+        queue.add(message);
+        if (scheduled.compareAndSet(false, true)) {
+            service.execute(this);
+        }
+        return true;
+    }
+
+    int getDepth() {
+        return depth.get();
+    }
+
+    int getPendingWrites() {
+        return pendingWrites.get();
+    }
+
+    @Override
+    public void run() {
+        int polled = 0;
+        // Fuera del try: si algo falla, sus clientes deben recibir el error en lugar de esperar
+        // hasta el timeout de la respuesta
+        List<Message> interactions = new ArrayList<>();
+        try {
+            boolean flushRequested = false;
+            Message message;
+            while (polled < MAX_MESSAGES_PER_TURN && (message = queue.poll()) != null) {
+                polled++;
+                if (message.isFlush()) {
+                    flushRequested = true;
+                } else {
+                    interactions.add(message);
+                }
+            }
+
+            if (closed) {
+                // Llegaron después del cierre: se atienden en un buzón nuevo
+                interactions.forEach(m -> service.resubmit(petId, m));
+            } else if (ensureLoaded(interactions)) {
+                process(interactions);
+                if (pending.size() >= service.getFlushSize() || (flushRequested && !pending.isEmpty())) {
+                    flush();
+                } else if (flushRequested && pending.isEmpty() && service.isIdle(lastActivity)) {
+                    close();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Error procesando el buzón de la mascota {}", petId, e);
+            // Las ya respondidas no cambian (complete de un futuro terminado no hace nada)
+            interactions.forEach(m -> m.getReply().completeExceptionally(e));
+        } finally {
+            // La profundidad baja recién cuando los mensajes terminaron de procesarse
+            depth.addAndGet(-polled);
+            scheduled.set(false);
+            // Si llegaron mensajes mientras se procesaba, el buzón vuelve a programarse
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                service.execute(this);
+            }
+        }
+    }
+
+    /**
+     * Carga la mascota la primera vez y reaplica las interacciones del WAL que no llegaron
+     * a la base de datos (las que son posteriores a la última interacción guardada).
+     * Si la carga o la reaplicación fallan, el buzón queda sin cargar y el próximo turno
+     * vuelve a intentarlo desde el principio
+     */
+    private boolean ensureLoaded(List<Message> interactions) {
+        if (pet != null) {
+            return true;
+        }
+        Pet loaded = service.loadPet(petId);
+        if (loaded == null) {
+            try {
+                wal.truncate();
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el WAL de la mascota {}", petId, e);
+            }
+            interactions.forEach(m -> m.getReply().completeExceptionally(new ResourceNotFoundException("Mascota no encontrada")));
+            close();
+            return false;
+        }
+
+        List<Interaction> replayedInteractions = new ArrayList<>();
+        for (PetWriteAheadLog.Entry entry : wal.read()) {
+            if (loaded.getLastInteraction() == null || entry.getTimestamp().isAfter(loaded.getLastInteraction())) {
+                replayedInteractions.add(service.getPetService().applyInteraction(loaded, entry.getType(), entry.getTimestamp()));
+            }
+        }
+        pet = loaded;
+        pending.addAll(replayedInteractions);
+        int replayed = replayedInteractions.size();
+        if (replayed > 0) {
+            log.info("Reaplicadas {} interacciones del WAL de la mascota {}", replayed, petId);
+            service.recordReplay(replayed);
+        }
+        pendingWrites.set(pending.size());
+        return true;
+    }
+
+    /**
+     * Valida las interacciones, las registra en el WAL con una sola sincronización y recién
+     * entonces las aplica en memoria y responde a cada mensaje con el resultado de cada una
+     */
+    private void process(List<Message> interactions) {
+        if (interactions.isEmpty()) {
+            return;
+        }
+        PetService petService = service.getPetService();
+
+        List<Message> accepted = new ArrayList<>();
+        List<PetWriteAheadLog.Entry> entries = new ArrayList<>();
+        LocalDateTime last = pet.getLastInteraction();
+        for (Message message : interactions) {
+            try {
+                petService.verifyOwnership(pet, message.getUserId());
+            } catch (SecurityException e) {
+                message.getReply().completeExceptionally(e);
+                continue;
+            }
+            for (String type : message.getTypes()) {
+                // Marcas de tiempo estrictamente crecientes: ordenan el historial y permiten
+                // saber qué entradas del WAL ya se escribieron
+                LocalDateTime timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+                if (last != null && !timestamp.isAfter(last)) {
+                    timestamp = last.plus(1, ChronoUnit.MICROS);
+                }
+                last = timestamp;
+                entries.add(new PetWriteAheadLog.Entry(timestamp, type));
+            }
+            accepted.add(message);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            wal.append(entries);
+        } catch (IOException e) {
+            log.error("No se pudo escribir el WAL de la mascota {}", petId, e);
+            accepted.forEach(m -> m.getReply().completeExceptionally(
+                    new IllegalStateException("No se pudo registrar la interacción, intenta de nuevo")));
+            return;
+        }
+
+        Iterator<PetWriteAheadLog.Entry> logged = entries.iterator();
+        List<List<PetResponseDTO>> responses = new ArrayList<>(accepted.size());
+        for (Message message : accepted) {
+            List<PetResponseDTO> messageResponses = new ArrayList<>(message.getTypes().size());
+            for (int i = 0; i < message.getTypes().size(); i++) {
+                PetWriteAheadLog.Entry entry = logged.next();
+                Interaction interaction = petService.applyInteraction(pet, entry.getType(), entry.getTimestamp());
+                pending.add(interaction);
+                // Aceptada en el WAL: ya es definitiva aunque todavía no esté en la base de datos
+                petService.publishInteractionEvents(pet, interaction);
+                messageResponses.add(petService.convertToResponseDTO(pet));
+            }
+            responses.add(messageResponses);
+        }
+        pendingWrites.set(pending.size());
+        lastActivity = LocalDateTime.now();
+
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).getReply().complete(responses.get(i));
+        }
+    }
+
+    /**
+     * Escribe el estado de la mascota y las interacciones pendientes en una transacción y
+     * vacía el WAL. Si otro camino modificó la mascota desde que se cargó, vuelve a aplicar las
+     * pendientes sobre la versión actual y reintenta una vez. Si falla, las interacciones siguen
+     * pendientes y se reintentan en el próximo intervalo
+     */
+    private void flush() {
+        long start = System.nanoTime();
+        int count = pending.size();
+        PetMailboxService.WriteResult result;
+        try {
+            result = service.writeBehind(pet, pending);
+            if (result == PetMailboxService.WriteResult.CONFLICT) {
+                result = rebase() ? service.writeBehind(pet, pending) : PetMailboxService.WriteResult.MISSING;
+            }
+        } catch (RuntimeException e) {
+            // Los IDs asignados en la transacción fallida no llegaron a la base de datos
+            pending.forEach(interaction -> interaction.setId(null));
+            service.recordFlushFailure();
+            log.warn("No se pudieron escribir {} interacciones de la mascota {}, se reintentará", count, petId, e);
+            return;
+        }
+        if (result == PetMailboxService.WriteResult.CONFLICT) {
+            // Otra escritura se adelantó también al reintento: el próximo intervalo vuelve a probar
+            service.recordFlushFailure();
+            log.warn("La mascota {} cambió mientras se escribían {} interacciones, se reintentará", petId, count);
+            return;
+        }
+
+        pending.clear();
+        pendingWrites.set(0);
+        try {
+            wal.truncate();
+        } catch (IOException e) {
+            log.error("No se pudo vaciar el WAL de la mascota {}", petId, e);
+        }
+        service.recordFlush(count, System.nanoTime() - start);
+
+        if (result == PetMailboxService.WriteResult.MISSING) {
+            // La mascota se eliminó mientras tenía interacciones pendientes
+            log.warn("La mascota {} ya no existe, se descartan {} interacciones", petId, count);
+            close();
+        }
+    }
+
+    /**
+     * Recarga la mascota con lo que escribieron otros caminos y vuelve a aplicar encima las
+     * interacciones pendientes, en su orden y con sus marcas de tiempo
+     * @return false si la mascota ya no existe
+     */
+    private boolean rebase() {
+        Pet loaded = service.loadPet(petId);
+        if (loaded == null) {
+            return false;
+        }
+        PetService petService = service.getPetService();
+        LocalDateTime lastWritten = loaded.getLastInteraction();
+        for (Interaction interaction : pending) {
+            petService.applyInteraction(loaded, interaction.getType(), interaction.getTimestamp());
+            interaction.setPet(loaded);
+        }
+        // Una interacción escrita por otro camino puede ser posterior a las pendientes
+        if (lastWritten != null && lastWritten.isAfter(loaded.getLastInteraction())) {
+            loaded.setLastInteraction(lastWritten);
+        }
+        pet = loaded;
+        log.info("La mascota {} cambió fuera del buzón: {} interacciones pendientes reaplicadas", petId, pending.size());
+        return true;
+    }
+
+    /**
+     * Cierra el buzón; los mensajes que llegaron mientras se cerraba se reenvían a un buzón nuevo
+     */
+    private void close() {
+        // El WAL se cierra antes de salir del registro, para que un buzón nuevo de la misma
+        // mascota nunca comparta el archivo con este
+        try {
+            wal.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el WAL de la mascota {}", petId, e);
+        }
+        closed = true;
+        service.remove(this);
+
+        Message message;
+        while ((message = queue.poll()) != null) {
+            depth.decrementAndGet();
+            if (!message.isFlush()) {
+                service.resubmit(petId, message);
+            }
+        }
+    }
+
+    Long getPetId() {
+        return petId;
+    }
+
+    /**
+     * Mensaje del buzón: interacciones de un usuario a aplicar seguidas, con la mascota
+     * resultante de cada una en la respuesta, o una orden de escritura (types == null)
+     */
+    @Getter
+    @AllArgsConstructor
+    static class Message {
+        private static final Message FLUSH = new Message(null, null, null);
+
+        private final List<String> types;
+        private final Long userId;
+        private final CompletableFuture<List<PetResponseDTO>> reply;
+
+        static Message flush() {
+            return FLUSH;
+        }
+
+        boolean isFlush() {
+            return types == null;
+        }
+    }
+}
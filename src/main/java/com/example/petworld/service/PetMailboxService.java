@@ -0,0 +1,381 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Interaction;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetMailboxStatsDTO;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Modo opcional (app.pets.mailbox.enabled) para mascotas con ráfagas de interacciones.
+ * Cada mascota activa tiene un buzón (PetMailbox) que aplica sus interacciones en memoria,
+ * en orden de llegada y sin competir por la fila de pets, y las escribe en lotes cada
+ * app.pets.mailbox.flush-interval-ms o al juntar app.pets.mailbox.flush-size.
+ * Las lecturas de la base de datos ven el estado de la última escritura (como mucho un
+ * intervalo de atraso); la respuesta de cada interacción ya trae el estado nuevo.
+ * El buzón es dueño de la mascota solo dentro de esta instancia de la aplicación.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.pets.mailbox.enabled", havingValue = "true")
+public class PetMailboxService implements MeterBinder {
+
+    private final PetService petService;
+    private final PetRepository petRepository;
+    private final InteractionRepository interactionRepository;
+    private final PetSnapshotCache petSnapshotCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.pets.mailbox.threads:4}")
+    private int threads;
+
+    @Value("${app.pets.mailbox.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.pets.mailbox.flush-size:100}")
+    private int flushSize;
+
+    @Value("${app.pets.mailbox.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.pets.mailbox.reply-timeout-ms:10000}")
+    private long replyTimeoutMs;
+
+    @Value("${app.pets.mailbox.wal-dir:${java.io.tmpdir}/petworld-wal}")
+    private String walDir;
+
+    // Esperar a que el WAL llegue al disco antes de responder (false solo para pruebas)
+    @Value("${app.pets.mailbox.wal-sync:true}")
+    private boolean walSync;
+
+    private final ConcurrentMap<Long, PetMailbox> mailboxes = new ConcurrentHashMap<>();
+    private Path walDirectory;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    // Métricas
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedInteractions = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder writeConflicts = new LongAdder();
+    private final LongAdder replayedInteractions = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    @Autowired
+    public PetMailboxService(PetService petService,
+                             PetRepository petRepository,
+                             InteractionRepository interactionRepository,
+                             PetSnapshotCache petSnapshotCache,
+                             PlatformTransactionManager transactionManager) {
+        this.petService = petService;
+        this.petRepository = petRepository;
+        this.interactionRepository = interactionRepository;
+        this.petSnapshotCache = petSnapshotCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        walDirectory = Paths.get(walDir);
+        Files.createDirectories(walDirectory);
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("PetWorld-Mailbox-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("PetWorld-MailboxFlush-"));
+        scheduler.scheduleWithFixedDelay(this::requestFlushes, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Al arrancar abre un buzón por cada WAL que quedó de una ejecución anterior, para
+     * escribir las interacciones que se aceptaron y no llegaron a la base de datos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverWriteAheadLogs() {
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            files.map(PetWriteAheadLog::petIdOf)
+                    .filter(Objects::nonNull)
+                    .forEach(petId -> dispatch(petId, PetMailbox.Message.flush()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escribe lo pendiente antes de apagar; lo que no alcance a escribirse queda en el WAL
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        mailboxes.values().forEach(mailbox -> mailbox.offer(PetMailbox.Message.flush()));
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Se apagó con buzones sin terminar de escribir; se recuperarán del WAL");
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Entrega la interacción al buzón de la mascota y espera a que se aplique y registre en el WAL
+     * @param petId ID de la mascota
+     * @param interactionType Tipo de interacción
+     * @param currentUserId Usuario que hace la interacción (se valida que sea el dueño)
+     * @return La mascota con la interacción aplicada
+     */
+    public PetResponseDTO interact(Long petId, String interactionType, Long currentUserId) {
+        if (interactionType == null || interactionType.isEmpty()) {
+            throw new IllegalArgumentException("El tipo de interacción no puede estar vacío");
+        }
+
+        CompletableFuture<List<PetResponseDTO>> reply = submit(petId, List.of(interactionType), currentUserId);
+        awaitAll(List.of(reply));
+        return getResult(reply).get(0);
+    }
+
+    /**
+     * Entrega a cada buzón, en un solo mensaje, las interacciones de su mascota y espera todas
+     * las respuestas a la vez: las mascotas se procesan en paralelo y cada una registra las
+     * suyas en el WAL con una sola sincronización
+     * @param typesByPet Tipos de interacción por ID de mascota, en el orden en que se aplican
+     * @param currentUserId Usuario que hace las interacciones (se valida que sea el dueño)
+     * @return La respuesta de cada mascota, ya terminada salvo que venciera la espera; se lee con getResult
+     */
+    public Map<Long, CompletableFuture<List<PetResponseDTO>>> interactAll(Map<Long, List<String>> typesByPet,
+                                                                        Long currentUserId) {
+        Map<Long, CompletableFuture<List<PetResponseDTO>>> replies = new LinkedHashMap<>();
+        typesByPet.forEach((petId, types) -> replies.put(petId, submit(petId, types, currentUserId)));
+        awaitAll(replies.values());
+        return replies;
+    }
+
+    /**
+     * Resultado de una respuesta de interactAll: la mascota tras cada interacción, en orden
+     * @throws IllegalStateException si la respuesta no llegó a tiempo
+     */
+    public List<PetResponseDTO> getResult(CompletableFuture<List<PetResponseDTO>> reply) {
+        if (!reply.isDone()) {
+            throw new IllegalStateException("La mascota está recibiendo demasiadas interacciones, intenta de nuevo");
+        }
+        try {
+            return reply.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private CompletableFuture<List<PetResponseDTO>> submit(Long petId, List<String> types, Long currentUserId) {
+        CompletableFuture<List<PetResponseDTO>> reply = new CompletableFuture<>();
+        dispatch(petId, new PetMailbox.Message(List.copyOf(types), currentUserId, reply));
+        return reply;
+    }
+
+    /**
+     * Espera hasta app.pets.mailbox.reply-timeout-ms a que terminen todas las respuestas; los
+     * errores de cada una se leen después con getResult
+     */
+    private void awaitAll(Collection<CompletableFuture<List<PetResponseDTO>>> replies) {
+        try {
+            CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new)).get(replyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Alguna falló o no llegó a tiempo: el resto de las respuestas sigue siendo válido
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interacción interrumpida");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petworld.pets.mailbox.active", mailboxes, ConcurrentMap::size)
+                .description("Buzones abiertos").register(registry);
+        Gauge.builder("petworld.pets.mailbox.queued", this,
+                        service -> service.mailboxes.values().stream().mapToLong(PetMailbox::getDepth).sum())
+                .description("Mensajes esperando en los buzones").register(registry);
+        Gauge.builder("petworld.pets.mailbox.pending.writes", this,
+                        service -> service.mailboxes.values().stream().mapToLong(PetMailbox::getPendingWrites).sum())
+                .description("Interacciones aplicadas en memoria y sin escribir").register(registry);
+        FunctionTimer.builder("petworld.pets.mailbox.flushes", this, service -> service.flushes.sum(),
+                        service -> service.flushNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Escrituras de los buzones en la base").register(registry);
+        Gauge.builder("petworld.pets.mailbox.flush.max", maxFlushNanos, nanos -> nanos.get() / 1_000_000_000.0)
+                .baseUnit("seconds").description("Escritura más lenta").register(registry);
+        FunctionCounter.builder("petworld.pets.mailbox.flushed.interactions", flushedInteractions, LongAdder::sum)
+                .description("Interacciones escritas").register(registry);
+        FunctionCounter.builder("petworld.pets.mailbox.flush.failures", flushFailures, LongAdder::sum)
+                .description("Escrituras fallidas").register(registry);
+        FunctionCounter.builder("petworld.pets.mailbox.write.conflicts", writeConflicts, LongAdder::sum)
+                .description("Escrituras rechazadas por un cambio concurrente de la mascota").register(registry);
+        FunctionCounter.builder("petworld.pets.mailbox.replayed.interactions", replayedInteractions, LongAdder::sum)
+                .description("Interacciones recuperadas del WAL").register(registry);
+    }
+
+    /**
+     * Obtiene las métricas de los buzones
+     * @return Profundidad de los buzones, escrituras pendientes y latencia de las escrituras
+     */
+    public PetMailboxStatsDTO getStats() {
+        PetMailboxStatsDTO stats = new PetMailboxStatsDTO();
+        long queued = 0;
+        long pendingWrites = 0;
+        int maxDepth = 0;
+        for (PetMailbox mailbox : mailboxes.values()) {
+            int depth = mailbox.getDepth();
+            queued += depth;
+            maxDepth = Math.max(maxDepth, depth);
+            pendingWrites += mailbox.getPendingWrites();
+        }
+        long flushCount = flushes.sum();
+        stats.setActiveMailboxes(mailboxes.size());
+        stats.setQueuedMessages(queued);
+        stats.setMaxMailboxDepth(maxDepth);
+        stats.setPendingWrites(pendingWrites);
+        stats.setFlushes(flushCount);
+        stats.setFlushedInteractions(flushedInteractions.sum());
+        stats.setFlushFailures(flushFailures.sum());
+        stats.setWriteConflicts(writeConflicts.sum());
+        stats.setReplayedInteractions(replayedInteractions.sum());
+        stats.setAverageFlushMillis(flushCount == 0 ? 0 : flushNanos.sum() / 1_000_000.0 / flushCount);
+        stats.setMaxFlushMillis(maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    // === Operaciones usadas por PetMailbox ===
+
+    void dispatch(Long petId, PetMailbox.Message message) {
+        while (true) {
+            PetMailbox mailbox = mailboxes.computeIfAbsent(petId,
+                    id -> new PetMailbox(id, this, new PetWriteAheadLog(walDirectory, id, walSync)));
+            if (mailbox.offer(message)) {
+                return;
+            }
+            // El buzón se estaba cerrando: se crea uno nuevo
+            mailboxes.remove(petId, mailbox);
+        }
+    }
+
+    void resubmit(Long petId, PetMailbox.Message message) {
+        dispatch(petId, message);
+    }
+
+    void remove(PetMailbox mailbox) {
+        mailboxes.remove(mailbox.getPetId(), mailbox);
+    }
+
+    void execute(PetMailbox mailbox) {
+        executor.execute(mailbox);
+    }
+
+    PetService getPetService() {
+        return petService;
+    }
+
+    int getFlushSize() {
+        return flushSize;
+    }
+
+    boolean isIdle(LocalDateTime lastActivity) {
+        return lastActivity.plusNanos(TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs)).isBefore(LocalDateTime.now());
+    }
+
+    Pet loadPet(Long petId) {
+        return petRepository.findById(petId).orElse(null);
+    }
+
+    /**
+     * Escribe en una transacción los estados de la mascota, sus interacciones y los contadores.
+     * Solo se actualizan las columnas de estados, así que no pisa cambios de nombre o descripción,
+     * y solo si la fila sigue en la versión con la que se cargó la mascota: si otro camino (otra
+     * instancia, el decaimiento, las interacciones sin buzón) la modificó, no se escribe nada.
+     * Si se escribe, la versión de la mascota en memoria avanza igual que la de la fila
+     * @return WRITTEN, CONFLICT si la fila cambió de versión o MISSING si ya no existe
+     */
+    WriteResult writeBehind(Pet pet, List<Interaction> interactions) {
+        WriteResult result = transactionTemplate.execute(status -> {
+            int updated = petRepository.updateStates(pet.getId(), pet.getVersion(), pet.getHunger(), pet.getHappiness(),
+                    pet.getHealth(), pet.getEnergy(), pet.getLastInteraction(), pet.getStatesUpdatedAt());
+            if (updated == 0) {
+                return petRepository.existsById(pet.getId()) ? WriteResult.CONFLICT : WriteResult.MISSING;
+            }
+            interactionRepository.saveAll(interactions);
+            petService.recordInteractionStats(interactions);
+            petSnapshotCache.invalidatePet(pet.getId());
+            return WriteResult.WRITTEN;
+        });
+        if (result == WriteResult.WRITTEN) {
+            pet.setVersion(pet.getVersion() + 1);
+        } else if (result == WriteResult.CONFLICT) {
+            writeConflicts.increment();
+        }
+        return result;
+    }
+
+    void recordFlush(int interactions, long nanos) {
+        flushes.increment();
+        flushedInteractions.add(interactions);
+        flushNanos.add(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    void recordFlushFailure() {
+        flushFailures.increment();
+    }
+
+    void recordReplay(int interactions) {
+        replayedInteractions.add(interactions);
+    }
+
+    /**
+     * Resultado de una escritura diferida
+     */
+    enum WriteResult {
+        WRITTEN, CONFLICT, MISSING
+    }
+
+    private void requestFlushes() {
+        mailboxes.values().forEach(mailbox -> mailbox.offer(PetMailbox.Message.flush()));
+    }
+}
@@ -2,44 +2,138 @@ package com.example.petworld.service;
 
 import com.example.petworld.domain.Pet;
 import com.example.petworld.domain.Interaction;
+import com.example.petworld.domain.PetInteractionStats;
+import com.example.petworld.domain.PetInteractionStatsId;
 import com.example.petworld.domain.User;
+import com.example.petworld.dto.Interaction.InteractionBatchResultDTO;
+import com.example.petworld.dto.Interaction.InteractionCreateDTO;
+import com.example.petworld.dto.Interaction.InteractionPageDTO;
 import com.example.petworld.dto.Interaction.InteractionResponseDTO;
+import com.example.petworld.dto.Interaction.InteractionStatsDTO;
+import com.example.petworld.dto.Interaction.InteractionSummaryDTO;
 import com.example.petworld.dto.Pet.PetCreateDTO;
+import com.example.petworld.dto.Pet.PetPageDTO;
+import com.example.petworld.dto.Pet.PetProjectionDTO;
 import com.example.petworld.dto.Pet.PetResponseDTO;
 import com.example.petworld.dto.Pet.PetSimpleDTO;
+import com.example.petworld.dto.Pet.PetStatsDTO;
 import com.example.petworld.dto.User.UserSimpleDTO;
-import com.example.petworld.events.PetCreatedEvent;
+import com.example.petworld.events.PetInteractedEvent;
+import com.example.petworld.events.PetStateChangedEvent;
 import com.example.petworld.infrastructure.PetRepository;
 import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
 import com.example.petworld.infrastructure.UserRepository;
 import com.example.petworld.exception.ResourceNotFoundException;
-import org.springframework.context.ApplicationEventPublisher;
+import com.example.petworld.service.PetStateCalculator.PetState;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.dao.ConcurrencyFailureException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@Timed("petworld.service") // Un timer por método público (etiquetas class y method), ver MetricsConfig
 public class PetService {
+    // Tamaño máximo de página para la paginación por cursor
+    public static final int MAX_PAGE_SIZE = 500;
+    // Cantidad máxima de interacciones por lote
+    public static final int MAX_BATCH_SIZE = 500;
+    // Tipos de interacción con efecto propio (ver applyInteraction)
+    private static final Set<String> INTERACTION_TYPES = Set.of("FEED", "PLAY", "HEAL", "PET");
+
     private final PetRepository petRepository;
     private final UserRepository userRepository;
     private final InteractionRepository interactionRepository;
-    private final ApplicationEventPublisher eventPublisher; // Agregamos el publicador de eventos
+    private final PetInteractionStatsRepository statsRepository;
+    private final OutboxService outboxService; // Los eventos de dominio se entregan desde el outbox
+    private final PetEventBus petEventBus; // Eventos de alta frecuencia: interacciones y cambios de estado
+    private final PetSnapshotCache petSnapshotCache;
+    private final TransactionTemplate transactionTemplate;
+    // Buzones por mascota (app.pets.mailbox.enabled); sin bean si el modo está desactivado
+    private final ObjectProvider<PetMailboxService> mailboxServices;
+    // Sin MeterRegistry (pruebas unitarias) se usa el registro global, que descarta las mediciones
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+    // Sin el bean (pruebas unitarias) se usa el usuario fijo por defecto
+    private CurrentUserProvider currentUserProvider = new CurrentUserProvider();
+
+    // Cómo se protegen las interacciones concurrentes sobre una misma mascota
+    @Value("${app.pets.interaction-locking:OPTIMISTIC}")
+    private InteractionLocking interactionLocking = InteractionLocking.OPTIMISTIC;
+
+    // Intentos máximos de una interacción que choca con otra escritura concurrente
+    @Value("${app.pets.interaction-max-attempts:10}")
+    private int interactionMaxAttempts = 10;
 
     @Autowired
     public PetService(PetRepository petRepository,
                       UserRepository userRepository,
                       InteractionRepository interactionRepository,
-                      ApplicationEventPublisher eventPublisher) {
+                      PetInteractionStatsRepository statsRepository,
+                      OutboxService outboxService,
+                      PetEventBus petEventBus,
+                      PetSnapshotCache petSnapshotCache,
+                      PlatformTransactionManager transactionManager,
+                      ObjectProvider<PetMailboxService> mailboxServices) {
         this.petRepository = petRepository;
         this.userRepository = userRepository;
         this.interactionRepository = interactionRepository;
-        this.eventPublisher = eventPublisher;
+        this.statsRepository = statsRepository;
+        this.outboxService = outboxService;
+        this.petEventBus = petEventBus;
+        this.petSnapshotCache = petSnapshotCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mailboxServices = mailboxServices;
+    }
+
+    @Autowired(required = false)
+    void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Autowired(required = false)
+    void setCurrentUserProvider(CurrentUserProvider currentUserProvider) {
+        this.currentUserProvider = currentUserProvider;
+    }
+
+    /**
+     * Estrategias de control de concurrencia para las interacciones.
+     * OPTIMISTIC: se lee sin bloquear y el UPDATE de la mascota comprueba su versión; si otra
+     * interacción la cambió antes, la transacción se repite completa desde la lectura.
+     * PESSIMISTIC: se lee con SELECT ... FOR UPDATE y las interacciones sobre la misma mascota
+     * esperan su turno.
+     */
+    public enum InteractionLocking {
+        OPTIMISTIC,
+        PESSIMISTIC
     }
 
     /**
@@ -77,19 +171,22 @@ public class PetService {
         pet.setHealth(100);
         pet.setEnergy(100);
 
-        pet.setCreatedAt(LocalDateTime.now());
-        pet.setLastInteraction(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        pet.setCreatedAt(now);
+        pet.setLastInteraction(now);
+        pet.setStatesUpdatedAt(now);
         pet.setOwner(owner);
 
         Pet savedPet = petRepository.save(pet);
 
-        log.info("Publicando evento para nueva mascota: {}", savedPet.getName());
-        eventPublisher.publishEvent(new PetCreatedEvent(
-                this,
-                savedPet.getId(),
-                savedPet.getName(),
-                savedPet.getType()
-        ));
+        // El evento se confirma junto con la mascota; OutboxRelay lo entrega a los listeners después del commit
+        log.info("Registrando evento para nueva mascota: {}", savedPet.getName());
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("petId", savedPet.getId());
+        payload.put("petName", savedPet.getName());
+        payload.put("petType", savedPet.getType());
+        outboxService.enqueue(OutboxRelay.PET_CREATED, savedPet.getId(), payload, "pet-created:" + savedPet.getId());
+        petSnapshotCache.invalidateOwner(owner.getId());
 
         return convertToResponseDTO(savedPet);
     }
@@ -128,18 +225,71 @@ public class PetService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Obtiene una página de mascotas ordenadas por ID usando paginación por cursor (keyset)
+     * @param type Tipo de mascota (opcional)
+     * @param ownerId ID del dueño (opcional)
+     * @param after ID de la última mascota de la página anterior (opcional)
+     * @param limit Cantidad máxima de mascotas por página (se acota a 1..MAX_PAGE_SIZE)
+     * @return La página de mascotas junto con el cursor de la siguiente
+     */
+    @Transactional(readOnly = true)
+    public PetPageDTO getPetsPage(String type, Long ownerId, Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long cursor = after != null ? after : 0L;
+        // Pedimos un elemento extra para saber si existe una página siguiente
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<Pet> pets;
+        if (type != null && ownerId != null) {
+            pets = petRepository.findByTypeAndOwnerIdAndIdGreaterThanOrderByIdAsc(type, ownerId, cursor, fetchLimit);
+        } else if (type != null) {
+            pets = petRepository.findByTypeAndIdGreaterThanOrderByIdAsc(type, cursor, fetchLimit);
+        } else if (ownerId != null) {
+            pets = petRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(ownerId, cursor, fetchLimit);
+        } else {
+            pets = petRepository.findByIdGreaterThanOrderByIdAsc(cursor, fetchLimit);
+        }
+
+        boolean hasMore = pets.size() > pageSize;
+        List<PetResponseDTO> items = pets.stream()
+                .limit(pageSize)
+                .map(this::convertToResponseDTO)
+                .collect(Collectors.toList());
+
+        PetPageDTO page = new PetPageDTO();
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        page.setNextCursor(hasMore ? items.get(items.size() - 1).getId() : null);
+        return page;
+    }
+
+    /**
+     * Recorre todas las mascotas (con filtros opcionales) en orden de ID, entregando
+     * cada una al consumidor a medida que se lee, sin cargar el catálogo completo en memoria
+     * @param type Tipo de mascota (opcional)
+     * @param ownerId ID del dueño (opcional)
+     * @param consumer Receptor de cada mascota convertida a DTO
+     */
+    @Transactional(readOnly = true)
+    public void streamAllPets(String type, Long ownerId, Consumer<PetResponseDTO> consumer) {
+        // Las filas son proyecciones, no entidades: el contexto de persistencia no crece
+        try (Stream<PetProjectionDTO> pets = petRepository.streamAllByFilters(type, ownerId)) {
+            pets.map(this::convertToResponseDTO).forEach(consumer);
+        }
+    }
+
     /**
      * Obtiene una mascota por su ID
      * @param id ID de la mascota
      * @return La mascota encontrada
      */
     public PetResponseDTO getPetById(Long id) {
-        Pet pet = petRepository.findById(id)
+        PetProjectionDTO pet = petSnapshotCache.get(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Mascota no encontrada"));
 
-        // Actualizar estados basados en el tiempo transcurrido
-        updatePetStates(pet);
-
+        // Los estados se calculan al convertir según el tiempo transcurrido desde la foto
+        // (en caché o no); leer no escribe
         return convertToResponseDTO(pet);
     }
 
@@ -163,6 +313,7 @@ public class PetService {
         pet.setImageUrl(petUpdateDTO.getImageUrl());
 
         Pet updatedPet = petRepository.save(pet);
+        petSnapshotCache.invalidatePet(id);
         return convertToResponseDTO(updatedPet);
     }
 
@@ -179,6 +330,8 @@ public class PetService {
         verifyOwnership(pet);
 
         petRepository.delete(pet);
+        petSnapshotCache.invalidatePet(id);
+        petSnapshotCache.invalidateOwner(pet.getOwner().getId());
     }
 
     /**
@@ -204,26 +357,371 @@ public class PetService {
     }
 
     /**
-     * Realiza una interacción con la mascota
+     * Obtiene una página del historial de interacciones de una mascota, de la más reciente a la
+     * más antigua, usando paginación por cursor sobre (timestamp, id)
+     * @param petId ID de la mascota
+     * @param type Tipo de interacción (opcional)
+     * @param from Inicio del rango de fechas, incluido (opcional)
+     * @param to Fin del rango de fechas, excluido (opcional)
+     * @param before Cursor devuelto por la página anterior (opcional)
+     * @param limit Cantidad máxima de interacciones por página (se acota a 1..MAX_PAGE_SIZE)
+     * @return La página de interacciones, con el resumen de la mascota una sola vez
+     */
+    @Transactional(readOnly = true)
+    public InteractionPageDTO getPetInteractionsPage(Long petId, String type, LocalDateTime from,
+                                                     LocalDateTime to, String before, int limit) {
+        Pet pet = petRepository.findById(petId)
+                .orElseThrow(() -> new ResourceNotFoundException("Mascota no encontrada"));
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime beforeTimestamp = null;
+        Long beforeId = null;
+        if (before != null) {
+            // El cursor tiene la forma "<timestamp ISO>_<id>"
+            int separator = before.lastIndexOf('_');
+            try {
+                beforeTimestamp = LocalDateTime.parse(before.substring(0, separator));
+                beforeId = Long.parseLong(before.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de interacciones inválido: " + before);
+            }
+        }
+
+        // Pedimos un elemento extra para saber si existe una página siguiente
+        List<InteractionSummaryDTO> interactions = interactionRepository.findByPetIdOrderByTimestampDesc(
+                petId, type, from, to, beforeTimestamp, beforeId, Limit.of(pageSize + 1));
+
+        boolean hasMore = interactions.size() > pageSize;
+        List<InteractionSummaryDTO> items = hasMore ? interactions.subList(0, pageSize) : interactions;
+
+        InteractionPageDTO page = new InteractionPageDTO();
+        page.setPet(convertToSimpleDTO(pet));
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            InteractionSummaryDTO last = items.get(items.size() - 1);
+            page.setNextCursor(last.getTimestamp() + "_" + last.getId());
+        }
+        return page;
+    }
+
+    /**
+     * Realiza una interacción con la mascota.
+     * Si otra interacción concurrente modificó la mascota, se repite la transacción completa
+     * (ver InteractionLocking), de modo que ninguna de las dos se pierde.
+     * Con los buzones activados la interacción la aplica el buzón de la mascota
      * @param petId ID de la mascota
      * @param interactionType Tipo de interacción
      * @return La mascota actualizada
      */
-    @Transactional
     public PetResponseDTO interactWithPet(Long petId, String interactionType) {
-        Pet pet = petRepository.findById(petId)
-                .orElseThrow(() -> new ResourceNotFoundException("Mascota no encontrada"));
+        boolean success = false;
+        try {
+            PetResponseDTO pet = applySingleInteraction(petId, interactionType);
+            success = true;
+            return pet;
+        } finally {
+            countInteraction(interactionType, "single", success);
+        }
+    }
 
-        // Verificar que el usuario actual es el dueño
-        verifyOwnership(pet);
+    private PetResponseDTO applySingleInteraction(Long petId, String interactionType) {
+        PetMailboxService mailboxService = mailboxServices.getIfAvailable();
+        if (mailboxService != null) {
+            return mailboxService.interact(petId, interactionType, getCurrentUserId());
+        }
+
+        return executeWithRetry(status -> {
+            Pet pet = findPetForInteraction(petId);
+
+            // Verificar que el usuario actual es el dueño
+            verifyOwnership(pet);
+
+            Interaction interaction = applyInteraction(pet, interactionType, LocalDateTime.now());
+
+            // Guardar primero la mascota: su UPDATE comprueba la versión y deja la fila
+            // bloqueada hasta el final de la transacción
+            Pet updatedPet = petRepository.save(pet);
+            petRepository.flush();
+
+            // Guardar la interacción y sumarla a los contadores de la mascota
+            interactionRepository.save(interaction);
+            recordInteractionStats(List.of(interaction));
+            publishInteractionEvents(updatedPet, interaction);
+            petSnapshotCache.invalidatePet(petId);
+
+            return convertToResponseDTO(updatedPet);
+        });
+    }
+
+    /**
+     * Realiza varias interacciones en una sola transacción: carga todas las mascotas con una
+     * consulta, aplica los efectos en memoria en el orden recibido y guarda las interacciones
+     * y las mascotas modificadas en lotes JDBC (ver hibernate.jdbc.batch_size)
+     * @param requests Lista de pares (petId, tipo de interacción)
+     * @return Resultado de cada elemento, en el mismo orden que la petición
+     */
+    public List<InteractionBatchResultDTO> interactWithPets(List<InteractionCreateDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("La lista de interacciones no puede estar vacía");
+        } else if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("No se pueden enviar más de " + MAX_BATCH_SIZE + " interacciones por lote");
+        }
+
+        PetMailboxService mailboxService = mailboxServices.getIfAvailable();
+        List<InteractionBatchResultDTO> results = mailboxService != null
+                ? applyInteractionBatch(requests, mailboxService)
+                : executeWithRetry(status -> applyInteractionBatch(requests));
+        results.forEach(result -> countInteraction(result.getType(), "batch", result.isSuccess()));
+        return results;
+    }
+
+    /**
+     * Cuenta una interacción por tipo en petworld.pets.interactions. Los tipos fuera de los
+     * conocidos se agrupan en OTHER para no crear una serie por cada valor recibido
+     * @param mode single (un endpoint por interacción) o batch
+     */
+    private void countInteraction(String interactionType, String mode, boolean success) {
+        String type = interactionType != null && INTERACTION_TYPES.contains(interactionType)
+                ? interactionType : "OTHER";
+        meterRegistry.counter("petworld.pets.interactions",
+                "type", type, "mode", mode, "outcome", success ? "success" : "failure").increment();
+    }
+
+    /**
+     * Reparte el lote entre los buzones de las mascotas: las interacciones de cada mascota van
+     * juntas en un solo mensaje, en el orden de la petición, y se esperan todas a la vez
+     */
+    private List<InteractionBatchResultDTO> applyInteractionBatch(List<InteractionCreateDTO> requests,
+                                                                  PetMailboxService mailboxService) {
+        Long currentUserId = getCurrentUserId();
+        List<InteractionBatchResultDTO> results = new ArrayList<>();
+        Map<Long, List<String>> typesByPet = new LinkedHashMap<>();
+        for (InteractionCreateDTO request : requests) {
+            InteractionBatchResultDTO result = new InteractionBatchResultDTO();
+            result.setPetId(request.getPetId());
+            result.setType(request.getType());
+            if (request.getPetId() == null) {
+                result.setError("Mascota no encontrada");
+            } else if (request.getType() == null || request.getType().isEmpty()) {
+                result.setError("El tipo de interacción no puede estar vacío");
+            } else {
+                typesByPet.computeIfAbsent(request.getPetId(), id -> new ArrayList<>()).add(request.getType());
+            }
+            results.add(result);
+        }
+
+        Map<Long, Iterator<PetResponseDTO>> applied = new HashMap<>();
+        Map<Long, String> errors = new HashMap<>();
+        mailboxService.interactAll(typesByPet, currentUserId).forEach((petId, reply) -> {
+            try {
+                applied.put(petId, mailboxService.getResult(reply).iterator());
+            } catch (ResourceNotFoundException | IllegalArgumentException | SecurityException e) {
+                errors.put(petId, e.getMessage());
+            }
+        });
+
+        for (InteractionBatchResultDTO result : results) {
+            if (result.getError() == null) {
+                result.setError(errors.get(result.getPetId()));
+            }
+            if (result.getError() == null) {
+                result.setPet(applied.get(result.getPetId()).next());
+                result.setSuccess(true);
+            }
+        }
+        return results;
+    }
+
+    private List<InteractionBatchResultDTO> applyInteractionBatch(List<InteractionCreateDTO> requests) {
+        Set<Long> petIds = requests.stream()
+                .map(InteractionCreateDTO::getPetId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        List<Pet> loadedPets = interactionLocking == InteractionLocking.PESSIMISTIC
+                ? petRepository.findByIdInOrderByIdAsc(petIds)
+                : petRepository.findByIdIn(petIds);
+        Map<Long, Pet> pets = loadedPets.stream()
+                .collect(Collectors.toMap(Pet::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Interaction> interactions = new ArrayList<>();
+        List<InteractionBatchResultDTO> results = new ArrayList<>();
+
+        for (InteractionCreateDTO request : requests) {
+            InteractionBatchResultDTO result = new InteractionBatchResultDTO();
+            result.setPetId(request.getPetId());
+            result.setType(request.getType());
+
+            Pet pet = pets.get(request.getPetId());
+            try {
+                if (pet == null) {
+                    throw new ResourceNotFoundException("Mascota no encontrada");
+                } else if (request.getType() == null || request.getType().isEmpty()) {
+                    throw new IllegalArgumentException("El tipo de interacción no puede estar vacío");
+                }
+
+                // Verificar que el usuario actual es el dueño
+                verifyOwnership(pet);
+
+                Interaction interaction = applyInteraction(pet, request.getType(), now);
+                interactions.add(interaction);
+                publishInteractionEvents(pet, interaction);
+                petSnapshotCache.invalidatePet(pet.getId());
+                result.setSuccess(true);
+                result.setPet(convertToResponseDTO(pet));
+            } catch (ResourceNotFoundException | IllegalArgumentException | SecurityException e) {
+                result.setSuccess(false);
+                result.setError(e.getMessage());
+            }
+            results.add(result);
+        }
+
+        // Las mascotas están gestionadas por el contexto de persistencia: sus cambios se escriben
+        // en lote antes que las inserciones, para detectar conflictos de versión cuanto antes
+        petRepository.flush();
+        interactionRepository.saveAll(interactions);
+        recordInteractionStats(interactions);
+
+        return results;
+    }
+
+    /**
+     * Obtiene los contadores de interacciones de una mascota a partir del acumulado
+     * (no recorre el historial, su costo no depende de cuántas interacciones tenga)
+     * @param petId ID de la mascota
+     * @return Totales y desglose por tipo de interacción
+     */
+    @Transactional(readOnly = true)
+    public PetStatsDTO getPetStats(Long petId) {
+        if (!petRepository.existsById(petId)) {
+            throw new ResourceNotFoundException("Mascota no encontrada");
+        }
+
+        List<InteractionStatsDTO> byType = new ArrayList<>();
+        long totalInteractions = 0;
+        long totalValue = 0;
+        LocalDateTime lastInteraction = null;
+        for (PetInteractionStats stats : statsRepository.findByPetIdOrderByTypeAsc(petId)) {
+            InteractionStatsDTO dto = new InteractionStatsDTO();
+            dto.setType(stats.getType());
+            dto.setCount(stats.getInteractionCount());
+            dto.setValueSum(stats.getValueSum());
+            dto.setLastTimestamp(stats.getLastTimestamp());
+            byType.add(dto);
+
+            totalInteractions += stats.getInteractionCount();
+            totalValue += stats.getValueSum();
+            if (lastInteraction == null || (stats.getLastTimestamp() != null && stats.getLastTimestamp().isAfter(lastInteraction))) {
+                lastInteraction = stats.getLastTimestamp();
+            }
+        }
+
+        PetStatsDTO dto = new PetStatsDTO();
+        dto.setPetId(petId);
+        dto.setTotalInteractions(totalInteractions);
+        dto.setTotalValue(totalValue);
+        dto.setLastInteraction(lastInteraction);
+        dto.setByType(byType);
+        return dto;
+    }
+
+    /**
+     * Carga la mascota a modificar según la estrategia de concurrencia configurada
+     * @param petId ID de la mascota
+     * @return La mascota
+     */
+    private Pet findPetForInteraction(Long petId) {
+        Optional<Pet> pet = interactionLocking == InteractionLocking.PESSIMISTIC
+                ? petRepository.findByIdForUpdate(petId)
+                : petRepository.findById(petId);
+        return pet.orElseThrow(() -> new ResourceNotFoundException("Mascota no encontrada"));
+    }
+
+    /**
+     * Ejecuta la acción en una transacción nueva y la repite si falla por un conflicto de
+     * concurrencia (versión desactualizada, bloqueo o deadlock), con una espera aleatoria
+     * creciente entre intentos. Si ya hay una transacción abierta se ejecuta una sola vez,
+     * porque un conflicto marca como fallida la transacción exterior
+     * @param action Acción a ejecutar
+     * @return El resultado de la acción
+     */
+    private <T> T executeWithRetry(TransactionCallback<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(action);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= interactionMaxAttempts) {
+                    throw e;
+                }
+                log.debug("Conflicto de concurrencia en el intento {} de {}, se reintenta", attempt, interactionMaxAttempts);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt, 6)));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
 
-        // Actualizar estados basados en el tiempo transcurrido
-        updatePetStates(pet);
+    /**
+     * Suma las interacciones al acumulado por mascota y tipo dentro de la transacción actual.
+     * Las interacciones se agrupan antes, así un lote hace un UPDATE por cada par mascota/tipo,
+     * y los pares se recorren siempre en el mismo orden para que dos lotes concurrentes
+     * bloqueen las filas en el mismo orden
+     * @param interactions Interacciones recién registradas
+     */
+    void recordInteractionStats(List<Interaction> interactions) {
+        Map<PetInteractionStatsId, PetInteractionStats> deltas = new LinkedHashMap<>();
+        interactions.stream()
+                .sorted(Comparator.comparing((Interaction i) -> i.getPet().getId()).thenComparing(Interaction::getType))
+                .forEach(interaction -> {
+                    PetInteractionStats delta = deltas.computeIfAbsent(
+                            new PetInteractionStatsId(interaction.getPet().getId(), interaction.getType()), key -> {
+                                PetInteractionStats stats = new PetInteractionStats();
+                                stats.setPetId(interaction.getPet().getId());
+                                stats.setType(interaction.getType());
+                                return stats;
+                            });
+                    delta.setInteractionCount(delta.getInteractionCount() + 1);
+                    delta.setValueSum(delta.getValueSum() + interaction.getValue());
+                    if (delta.getLastTimestamp() == null || interaction.getTimestamp().isAfter(delta.getLastTimestamp())) {
+                        delta.setLastTimestamp(interaction.getTimestamp());
+                    }
+                });
+
+        for (PetInteractionStats delta : deltas.values()) {
+            int updated = statsRepository.increment(delta.getPetId(), delta.getType(),
+                    delta.getInteractionCount(), delta.getValueSum(), delta.getLastTimestamp());
+            if (updated == 0) {
+                // Primera interacción de este tipo para la mascota: se crea la fila con un
+                // INSERT directo (PetInteractionStats.isNew evita el SELECT de merge)
+                statsRepository.save(delta);
+            }
+        }
+    }
+
+    /**
+     * Aplica en memoria los efectos de una interacción sobre la mascota, partiendo de sus
+     * estados actuales, y deja la foto de estados fechada en el momento de la interacción
+     * @param pet La mascota
+     * @param interactionType Tipo de interacción
+     * @param now Momento de la interacción
+     * @return La interacción creada (sin guardar)
+     */
+    Interaction applyInteraction(Pet pet, String interactionType, LocalDateTime now) {
+        // Fijar los estados actuales (según el tiempo transcurrido) como punto de partida
+        updatePetStates(pet, now);
 
         // Crear una nueva interacción
         Interaction interaction = new Interaction();
         interaction.setType(interactionType);
-        interaction.setTimestamp(LocalDateTime.now());
+        interaction.setTimestamp(now);
         interaction.setPet(pet);
 
         // Aplicar efectos según el tipo de interacción
@@ -257,54 +755,53 @@ public class PetService {
                 pet.setHappiness(Math.min(100, pet.getHappiness() + 5));
         }
 
-        // Guardar la interacción
-        interactionRepository.save(interaction);
-
-        // Actualizar la última interacción
-        pet.setLastInteraction(LocalDateTime.now());
+        // Actualizar la última interacción: los estados guardados son la foto de este momento
+        pet.setLastInteraction(now);
+        // Una interacción reaplicada desde el WAL puede ser anterior a la última pasada del decaimiento
+        if (pet.getStatesUpdatedAt() == null || now.isAfter(pet.getStatesUpdatedAt())) {
+            pet.setStatesUpdatedAt(now);
+        }
 
-        // Guardar la mascota actualizada
-        Pet updatedPet = petRepository.save(pet);
+        return interaction;
+    }
 
-        return convertToResponseDTO(updatedPet);
+    /**
+     * Publica en el bus de eventos la interacción y la nueva foto de estados de la mascota.
+     * Dentro de una transacción se publican recién al confirmarse, así un intento revertido
+     * por un conflicto no deja eventos
+     * @param pet La mascota, ya con los efectos de la interacción
+     * @param interaction La interacción aplicada
+     */
+    void publishInteractionEvents(Pet pet, Interaction interaction) {
+        Long ownerId = pet.getOwner() != null ? pet.getOwner().getId() : null;
+        petEventBus.publishAfterCommit(new PetInteractedEvent(pet.getId(), pet.getType(), ownerId,
+                interaction.getType(), interaction.getValue(), interaction.getTimestamp()));
+        petEventBus.publishAfterCommit(new PetStateChangedEvent(pet.getId(), pet.getType(), ownerId,
+                pet.getHunger(), pet.getHappiness(), pet.getHealth(), pet.getEnergy(), pet.getStatesUpdatedAt()));
     }
 
     /**
-     * Actualiza los estados de la mascota basados en el tiempo transcurrido
+     * Actualiza en memoria los estados de la mascota con los valores calculados para el momento
+     * indicado. No guarda la mascota: solo se persiste cuando ocurre una interacción
      * @param pet La mascota a actualizar
+     * @param now Momento para el que se calculan los estados
      */
-    private void updatePetStates(Pet pet) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime lastInteraction = pet.getLastInteraction();
-
-        // Calcular horas desde la última interacción
-        long hoursSinceLastInteraction = java.time.Duration.between(lastInteraction, now).toHours();
-
-        if (hoursSinceLastInteraction > 0) {
-            // Disminuir estados según el tiempo transcurrido
-            int hungerDecrease = (int) (hoursSinceLastInteraction * 5); // 5 puntos por hora
-            int happinessDecrease = (int) (hoursSinceLastInteraction * 3); // 3 puntos por hora
-            int energyIncrease = (int) (hoursSinceLastInteraction * 2); // 2 puntos por hora (recuperación)
-
-            pet.setHunger(Math.max(0, pet.getHunger() - hungerDecrease));
-            pet.setHappiness(Math.max(0, pet.getHappiness() - happinessDecrease));
-            pet.setEnergy(Math.min(100, pet.getEnergy() + energyIncrease));
-
-            // Si la mascota tiene hambre por mucho tiempo, afecta su salud
-            if (pet.getHunger() < 30) {
-                int healthDecrease = (int) (hoursSinceLastInteraction * 2);
-                pet.setHealth(Math.max(0, pet.getHealth() - healthDecrease));
-            }
-
-            // Si la mascota está muy triste, afecta su salud
-            if (pet.getHappiness() < 20) {
-                int healthDecrease = (int) (hoursSinceLastInteraction);
-                pet.setHealth(Math.max(0, pet.getHealth() - healthDecrease));
-            }
+    void updatePetStates(Pet pet, LocalDateTime now) {
+        PetState state = currentState(pet, now);
+        pet.setHunger(state.getHunger());
+        pet.setHappiness(state.getHappiness());
+        pet.setHealth(state.getHealth());
+        pet.setEnergy(state.getEnergy());
+    }
 
-            // Guardar los cambios
-            petRepository.save(pet);
-        }
+    /**
+     * Calcula los estados de la mascota en el momento indicado a partir de la foto guardada
+     * @param pet La mascota
+     * @param now Momento para el que se calculan los estados
+     * @return Los estados calculados
+     */
+    private PetState currentState(Pet pet, LocalDateTime now) {
+        return PetStateCalculator.computeState(pet, now);
     }
 
     /**
@@ -312,7 +809,15 @@ public class PetService {
      * @param pet La mascota a verificar
      */
     private void verifyOwnership(Pet pet) {
-        Long currentUserId = getCurrentUserId();
+        verifyOwnership(pet, getCurrentUserId());
+    }
+
+    /**
+     * Verifica que el usuario indicado es el dueño de la mascota
+     * @param pet La mascota a verificar
+     * @param currentUserId ID del usuario que hace la operación
+     */
+    void verifyOwnership(Pet pet, Long currentUserId) {
         if (!pet.getOwner().getId().equals(currentUserId)) {
             throw new SecurityException("No tienes permiso para modificar esta mascota");
         }
@@ -323,9 +828,7 @@ public class PetService {
      * @return ID del usuario
      */
     private Long getCurrentUserId() {
-        // En un sistema real, esto vendría de la autenticación
-        // Por ahora, devolvemos un ID fijo para pruebas
-        return 1L;
+        return currentUserProvider.getCurrentUserId();
     }
 
     /**
@@ -333,17 +836,19 @@ public class PetService {
      * @param pet La entidad Pet
      * @return El DTO correspondiente
      */
-    private PetResponseDTO convertToResponseDTO(Pet pet) {
+    PetResponseDTO convertToResponseDTO(Pet pet) {
+        PetState state = currentState(pet, LocalDateTime.now());
+
         PetResponseDTO dto = new PetResponseDTO();
         dto.setId(pet.getId());
         dto.setName(pet.getName());
         dto.setDescription(pet.getDescription());
         dto.setType(pet.getType());
         dto.setImageUrl(pet.getImageUrl());
-        dto.setHunger(pet.getHunger());
-        dto.setHappiness(pet.getHappiness());
-        dto.setHealth(pet.getHealth());
-        dto.setEnergy(pet.getEnergy());
+        dto.setHunger(state.getHunger());
+        dto.setHappiness(state.getHappiness());
+        dto.setHealth(state.getHealth());
+        dto.setEnergy(state.getEnergy());
         dto.setLastInteraction(pet.getLastInteraction());
         dto.setCreatedAt(pet.getCreatedAt());
 
@@ -355,6 +860,38 @@ public class PetService {
         return dto;
     }
 
+    /**
+     * Convierte una proyección de mascota a DTO
+     * @param pet La proyección con las columnas del listado
+     * @return El DTO correspondiente
+     */
+    private PetResponseDTO convertToResponseDTO(PetProjectionDTO pet) {
+        PetState state = PetStateCalculator.computeState(pet.getHunger(), pet.getHappiness(),
+                pet.getHealth(), pet.getEnergy(), pet.getStatesUpdatedAt(), LocalDateTime.now());
+
+        PetResponseDTO dto = new PetResponseDTO();
+        dto.setId(pet.getId());
+        dto.setName(pet.getName());
+        dto.setDescription(pet.getDescription());
+        dto.setType(pet.getType());
+        dto.setImageUrl(pet.getImageUrl());
+        dto.setHunger(state.getHunger());
+        dto.setHappiness(state.getHappiness());
+        dto.setHealth(state.getHealth());
+        dto.setEnergy(state.getEnergy());
+        dto.setLastInteraction(pet.getLastInteraction());
+        dto.setCreatedAt(pet.getCreatedAt());
+
+        if (pet.getOwnerId() != null) {
+            UserSimpleDTO ownerDto = new UserSimpleDTO();
+            ownerDto.setId(pet.getOwnerId());
+            ownerDto.setUsername(pet.getOwnerUsername());
+            dto.setOwner(ownerDto);
+        }
+
+        return dto;
+    }
+
     /**
      * Convierte una entidad Interaction a DTO
      * @param interaction La entidad Interaction
@@ -368,13 +905,22 @@ public class PetService {
         dto.setDescription(interaction.getDescription());
         dto.setTimestamp(interaction.getTimestamp());
 
-        PetSimpleDTO petDto = new PetSimpleDTO();
-        petDto.setId(interaction.getPet().getId());
-        petDto.setName(interaction.getPet().getName());
-        petDto.setType(interaction.getPet().getType());
-        petDto.setImageUrl(interaction.getPet().getImageUrl());
-        dto.setPet(petDto);
+        dto.setPet(convertToSimpleDTO(interaction.getPet()));
 
         return dto;
     }
+
+    /**
+     * Convierte una entidad Pet a su DTO simplificado
+     * @param pet La entidad Pet
+     * @return El DTO correspondiente
+     */
+    private PetSimpleDTO convertToSimpleDTO(Pet pet) {
+        PetSimpleDTO petDto = new PetSimpleDTO();
+        petDto.setId(pet.getId());
+        petDto.setName(pet.getName());
+        petDto.setType(pet.getType());
+        petDto.setImageUrl(pet.getImageUrl());
+        return petDto;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+package com.example.petworld.service;
+
+import com.example.petworld.dto.Pet.PetCacheStatsDTO;
+import com.example.petworld.dto.Pet.PetProjectionDTO;
+import com.example.petworld.events.UserChangedEvent;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché local de fotos de mascotas (PetProjectionDTO) para GET /api/pets/{id} y
+ * GET /api/users/{id}/pets, acotada por tamaño (app.pets.cache.max-size) y por tiempo
+ * (app.pets.cache.ttl-seconds; 0 la desactiva).
+ * Se guardan los estados tal como están en la base junto con el momento de su foto, nunca
+ * los calculados: quien lee calcula el decaimiento hasta ese instante, así que una entrada
+ * vieja devuelve los mismos estados que la base.
+ * Las entradas se invalidan al confirmarse la transacción que cambia la mascota (edición,
+ * borrado, interacción, escritura de un buzón o pasada de decaimiento) o su dueño. El TTL solo
+ * acota los cambios que este nodo no ve, como los de otras instancias.
+ */
+@Service
+public class PetSnapshotCache implements MeterBinder {
+
+    // Generaciones por franja de IDs: detectan una invalidación durante una carga en bloque
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final PetRepository petRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.pets.cache.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    @Value("${app.pets.cache.max-size:10000}")
+    private long maxSize = 10000;
+
+    // Fotos por ID de mascota
+    private Cache<Long, PetProjectionDTO> pets;
+    // IDs de las mascotas de cada dueño
+    private Cache<Long, List<Long>> ownerPets;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    // Métricas
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+
+    @Autowired
+    public PetSnapshotCache(PetRepository petRepository, UserRepository userRepository) {
+        this.petRepository = petRepository;
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (ttlSeconds > 0) {
+            pets = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .recordStats()
+                    .build();
+            ownerPets = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .recordStats()
+                    .build();
+        }
+    }
+
+    /**
+     * Foto de una mascota; si no está en caché se lee de la base y se guarda
+     * @param petId ID de la mascota
+     * @return La foto, o vacío si la mascota no existe
+     */
+    public Optional<PetProjectionDTO> get(Long petId) {
+        if (pets == null) {
+            return load(petId);
+        }
+        // Una invalidación de la misma mascota espera a que termine esta carga y la descarta
+        return Optional.ofNullable(pets.get(petId, id -> load(id).orElse(null)));
+    }
+
+    /**
+     * Fotos de las mascotas de un dueño, en orden de ID. Las que faltan en caché se leen con
+     * una sola consulta
+     * @param ownerId ID del dueño
+     * @return Las fotos, o vacío si el usuario no existe
+     */
+    public Optional<List<PetProjectionDTO>> getByOwner(Long ownerId) {
+        List<Long> petIds = ownerPets == null ? loadOwnerPetIds(ownerId) : ownerPets.get(ownerId, this::loadOwnerPetIds);
+        if (petIds == null) {
+            return Optional.empty();
+        }
+        if (pets == null) {
+            return Optional.of(loadAll(petIds));
+        }
+
+        Map<Long, PetProjectionDTO> found = new HashMap<>(pets.getAllPresent(petIds));
+        List<Long> missing = petIds.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            Map<Long, Long> generationBeforeLoad = new HashMap<>();
+            missing.forEach(id -> generationBeforeLoad.put(id, generations.get(stripe(id))));
+            for (PetProjectionDTO pet : loadAll(missing)) {
+                found.put(pet.getId(), pet);
+                // Si la mascota cambió durante la lectura, la foto se usa una vez pero no se guarda
+                if (generations.get(stripe(pet.getId())) == generationBeforeLoad.get(pet.getId())) {
+                    pets.asMap().putIfAbsent(pet.getId(), pet);
+                } else {
+                    discardedLoads.increment();
+                }
+            }
+        }
+        return Optional.of(petIds.stream().map(found::get).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * Olvida la foto de la mascota cuando se confirme la transacción en curso (o ya, si no hay)
+     * @param petId ID de la mascota
+     */
+    public void invalidatePet(Long petId) {
+        afterCommit(() -> {
+            generations.incrementAndGet(stripe(petId));
+            pets.invalidate(petId);
+            invalidations.increment();
+        });
+    }
+
+    /**
+     * Olvida la lista de mascotas del dueño cuando se confirme la transacción en curso
+     * (al crear o borrar una de sus mascotas)
+     * @param ownerId ID del dueño
+     */
+    public void invalidateOwner(Long ownerId) {
+        afterCommit(() -> ownerPets.invalidate(ownerId));
+    }
+
+    /**
+     * Olvida todas las fotos, tras un cambio que afecta a muchas mascotas a la vez
+     */
+    public void invalidateAllPets() {
+        afterCommit(() -> {
+            for (int i = 0; i < GENERATION_STRIPES; i++) {
+                generations.incrementAndGet(i);
+            }
+            invalidations.add(pets.estimatedSize());
+            pets.invalidateAll();
+        });
+    }
+
+    /**
+     * Las fotos incluyen el nombre del dueño: al cambiar o borrar un usuario se olvidan sus
+     * mascotas y su lista
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleUserChangedEvent(UserChangedEvent event) {
+        if (pets == null || event.getUserId() == null) {
+            return;
+        }
+        List<Long> petIds = new ArrayList<>();
+        List<Long> indexed = ownerPets.getIfPresent(event.getUserId());
+        if (indexed != null) {
+            petIds.addAll(indexed);
+        }
+        pets.asMap().values().stream()
+                .filter(pet -> event.getUserId().equals(pet.getOwnerId()))
+                .forEach(pet -> petIds.add(pet.getId()));
+
+        ownerPets.invalidate(event.getUserId());
+        for (Long petId : petIds) {
+            generations.incrementAndGet(stripe(petId));
+        }
+        invalidations.add(petIds.size());
+        pets.invalidateAll(petIds);
+    }
+
+    private void afterCommit(Runnable invalidation) {
+        if (pets == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Antes del commit otra petición podría volver a leer y guardar el valor anterior
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    private Optional<PetProjectionDTO> load(Long petId) {
+        long start = System.nanoTime();
+        try {
+            return petRepository.findProjectionById(petId);
+        } finally {
+            recordLoad(start);
+        }
+    }
+
+    private List<PetProjectionDTO> loadAll(List<Long> petIds) {
+        if (petIds.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            Map<Long, PetProjectionDTO> byId = new HashMap<>();
+            petRepository.findProjectionsByIdIn(petIds).forEach(pet -> byId.put(pet.getId(), pet));
+            return petIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+        } finally {
+            recordLoad(start);
+        }
+    }
+
+    /**
+     * @return Los IDs de sus mascotas, o null si el usuario no existe (no se guarda en caché)
+     */
+    private List<Long> loadOwnerPetIds(Long ownerId) {
+        long start = System.nanoTime();
+        try {
+            if (!userRepository.existsById(ownerId)) {
+                return null;
+            }
+            return List.copyOf(petRepository.findIdsByOwnerId(ownerId));
+        } finally {
+            recordLoad(start);
+        }
+    }
+
+    private void recordLoad(long start) {
+        loads.increment();
+        loadNanos.add(System.nanoTime() - start);
+    }
+
+    private static int stripe(Long petId) {
+        return Long.hashCode(petId) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * Aciertos y fallos de las dos cachés ("pets.snapshots" y "pets.owner-index"), lecturas de
+     * la base e invalidaciones, para /actuator/prometheus
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (pets != null) {
+            CaffeineCacheMetrics.monitor(registry, pets, "pets.snapshots");
+            CaffeineCacheMetrics.monitor(registry, ownerPets, "pets.owner-index");
+        }
+        FunctionTimer.builder("petworld.pets.cache.loads", this, cache -> cache.loads.sum(),
+                        cache -> cache.loadNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Lecturas de fotos desde la base").register(registry);
+        FunctionCounter.builder("petworld.pets.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Entradas invalidadas por cambios confirmados").register(registry);
+        FunctionCounter.builder("petworld.pets.cache.discarded.loads", discardedLoads, LongAdder::sum)
+                .description("Cargas descartadas por una invalidación concurrente").register(registry);
+    }
+
+    /**
+     * Métricas de la caché de este nodo
+     */
+    public PetCacheStatsDTO getStats() {
+        PetCacheStatsDTO stats = new PetCacheStatsDTO();
+        stats.setEnabled(pets != null);
+        stats.setMaxSize(maxSize);
+        stats.setTtlSeconds(ttlSeconds);
+        if (pets != null) {
+            CacheStats petStats = pets.stats();
+            stats.setSize(pets.estimatedSize());
+            stats.setHits(petStats.hitCount());
+            stats.setMisses(petStats.missCount());
+            stats.setHitRatio(petStats.hitRate());
+            stats.setEvictions(petStats.evictionCount());
+            stats.setOwnerIndexSize(ownerPets.estimatedSize());
+            stats.setOwnerIndexHitRatio(ownerPets.stats().hitRate());
+        }
+        long loadCount = loads.sum();
+        stats.setLoads(loadCount);
+        stats.setAverageLoadMillis(loadCount == 0 ? 0 : loadNanos.sum() / 1_000_000.0 / loadCount);
+        stats.setInvalidations(invalidations.sum());
+        stats.setDiscardedLoads(discardedLoads.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Pet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Calcula los estados "virtuales" de una mascota.
+ * En la base de datos solo se guarda la foto de los estados en el momento de la última
+ * interacción (o de la última pasada de PetDecayJob); los valores actuales son una función
+ * determinista del tiempo transcurrido desde entonces, por lo que leer una mascota nunca
+ * necesita escribirla.
+ */
+public final class PetStateCalculator {
+    static final int HUNGER_DECAY_PER_HOUR = 5;
+    static final int HAPPINESS_DECAY_PER_HOUR = 3;
+    static final int ENERGY_RECOVERY_PER_HOUR = 2;
+    static final int HUNGRY_HEALTH_DECAY_PER_HOUR = 2;
+    static final int SAD_HEALTH_DECAY_PER_HOUR = 1;
+    static final int HUNGRY_THRESHOLD = 30;
+    static final int SAD_THRESHOLD = 20;
+
+    private PetStateCalculator() {
+    }
+
+    /**
+     * Calcula los estados actuales de una mascota a partir de su última foto guardada
+     * @param pet La mascota
+     * @param now Momento para el que se calculan los estados
+     * @return Los estados en el momento indicado
+     */
+    public static PetState computeState(Pet pet, LocalDateTime now) {
+        return computeState(pet.getHunger(), pet.getHappiness(), pet.getHealth(), pet.getEnergy(),
+                snapshotTime(pet.getStatesUpdatedAt(), pet.getLastInteraction()), now);
+    }
+
+    /**
+     * Momento al que corresponde la foto de estados. Las filas anteriores a statesUpdatedAt
+     * no lo tienen y su foto es la de la última interacción
+     */
+    public static LocalDateTime snapshotTime(LocalDateTime statesUpdatedAt, LocalDateTime lastInteraction) {
+        return statesUpdatedAt != null ? statesUpdatedAt : lastInteraction;
+    }
+
+    /**
+     * Calcula los estados actuales a partir de la última foto guardada
+     * @param hunger Hambre guardada en la foto
+     * @param happiness Felicidad guardada en la foto
+     * @param health Salud guardada en la foto
+     * @param energy Energía guardada en la foto
+     * @param lastInteraction Momento de la foto (si es null se devuelve la foto tal cual)
+     * @param now Momento para el que se calculan los estados
+     * @return Los estados en el momento indicado
+     */
+    public static PetState computeState(int hunger, int happiness, int health, int energy,
+                                        LocalDateTime lastInteraction, LocalDateTime now) {
+        if (lastInteraction == null || !now.isAfter(lastInteraction)) {
+            return new PetState(hunger, happiness, health, energy);
+        }
+
+        // Se usan minutos para que el decaimiento no dependa de cuándo se consulta dentro de la misma hora
+        long minutes = Duration.between(lastInteraction, now).toMinutes();
+
+        int currentHunger = clamp(hunger - decay(minutes, HUNGER_DECAY_PER_HOUR));
+        int currentHappiness = clamp(happiness - decay(minutes, HAPPINESS_DECAY_PER_HOUR));
+        int currentEnergy = clamp(energy + decay(minutes, ENERGY_RECOVERY_PER_HOUR));
+        int currentHealth = health;
+
+        // Si la mascota tiene hambre por mucho tiempo, afecta su salud
+        if (currentHunger < HUNGRY_THRESHOLD) {
+            currentHealth = clamp(currentHealth - decay(minutes, HUNGRY_HEALTH_DECAY_PER_HOUR));
+        }
+
+        // Si la mascota está muy triste, afecta su salud
+        if (currentHappiness < SAD_THRESHOLD) {
+            currentHealth = clamp(currentHealth - decay(minutes, SAD_HEALTH_DECAY_PER_HOUR));
+        }
+
+        return new PetState(currentHunger, currentHappiness, currentHealth, currentEnergy);
+    }
+
+    private static int decay(long minutes, int pointsPerHour) {
+        return (int) Math.min(100, minutes * pointsPerHour / 60);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(100, value));
+    }
+
+    /**
+     * Estados de una mascota en un momento dado
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PetState {
+        private final int hunger;
+        private final int happiness;
+        private final int health;
+        private final int energy;
+    }
+}
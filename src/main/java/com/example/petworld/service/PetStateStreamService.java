@@ -0,0 +1,551 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetStateDeltaDTO;
+import com.example.petworld.dto.Pet.PetStateStreamStatsDTO;
+import com.example.petworld.events.PetEventBusListener;
+import com.example.petworld.events.PetStateChangedEvent;
+import com.example.petworld.exception.ResourceNotFoundException;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.service.PetStateCalculator.PetState;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envía por Server-Sent Events los cambios de estado de las mascotas a quienes las observan,
+ * en lugar de que los clientes consulten GET /api/pets/{id} una y otra vez.
+ * Cada conexión es una petición asíncrona (SseEmitter): mientras no hay nada que enviar no
+ * ocupa ningún hilo. Los cambios llegan por PetEventBus y solo se anota la última foto de
+ * cada mascota observada; un único hilo envía cada app.pets.stream.coalesce-window-ms lo
+ * acumulado, así que varias interacciones seguidas sobre una mascota producen un solo envío.
+ * Cada suscriptor recibe primero el estado completo ("state") y después solo los campos que
+ * cambiaron desde su último envío ("delta"). El decaimiento se calcula en memoria desde la
+ * foto de cada mascota observada, sin consultas, y se envía solo cuando algún estado cruza
+ * uno de los umbrales de app.pets.stream.decay-thresholds.
+ * Ese hilo no escribe en las conexiones: deja cada envío en la cola del suscriptor
+ * (app.pets.stream.send-queue-size) y un pool acotado (app.pets.stream.send-threads) la vacía,
+ * así un cliente lento solo retrasa lo suyo. Si su cola se llena se descartan los cambios
+ * pendientes y se le envía el estado completo; si un envío lleva más de
+ * app.pets.stream.write-timeout-ms, la suscripción se cierra.
+ */
+@Slf4j
+@Service
+public class PetStateStreamService implements PetEventBusListener<PetStateChangedEvent>, MeterBinder {
+
+    private final PetRepository petRepository;
+
+    @Value("${app.pets.stream.max-subscribers:20000}")
+    private int maxSubscribers = 20000;
+
+    @Value("${app.pets.stream.coalesce-window-ms:250}")
+    private long coalesceWindowMs = 250;
+
+    @Value("${app.pets.stream.decay-check-interval-ms:60000}")
+    private long decayCheckIntervalMs = 60000;
+
+    @Value("${app.pets.stream.decay-thresholds:50,30,20,10}")
+    private int[] decayThresholds = {50, 30, 20, 10};
+
+    @Value("${app.pets.stream.heartbeat-interval-ms:30000}")
+    private long heartbeatIntervalMs = 30000;
+
+    // Pasado este tiempo la conexión se cierra y el cliente (EventSource) se reconecta
+    @Value("${app.pets.stream.timeout-ms:1800000}")
+    private long timeoutMs = 1800000;
+
+    @Value("${app.pets.stream.send-threads:8}")
+    private int sendThreads = 8;
+
+    @Value("${app.pets.stream.send-queue-size:16}")
+    private int sendQueueSize = 16;
+
+    @Value("${app.pets.stream.write-timeout-ms:10000}")
+    private long writeTimeoutMs = 10000;
+
+    // Mascotas con al menos un suscriptor y su última foto conocida
+    private final Map<Long, WatchedPet> watched = new ConcurrentHashMap<>();
+    // Mascotas con cambios aún no enviados
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor sender;
+
+    // Métricas
+    private final LongAdder pushedStates = new LongAdder();
+    private final LongAdder pushedDeltas = new LongAdder();
+    private final LongAdder decayPushes = new LongAdder();
+    private final LongAdder coalescedUpdates = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final LongAdder rejectedSubscriptions = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    @Autowired
+    public PetStateStreamService(PetRepository petRepository) {
+        this.petRepository = petRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Cada suscriptor tiene como mucho una tarea de envío pendiente
+        sender = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxSubscribers), new CustomizableThreadFactory("PetWorld-StateStreamSend-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("PetWorld-StateStream-"));
+        scheduler.scheduleWithFixedDelay(() -> runSafely("envío de cambios", this::flush),
+                coalesceWindowMs, coalesceWindowMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> runSafely("cierre de clientes lentos", this::closeStalled),
+                writeTimeoutMs, Math.max(1, writeTimeoutMs / 2), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> runSafely("revisión del decaimiento", () -> checkDecay(LocalDateTime.now())),
+                decayCheckIntervalMs, decayCheckIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> runSafely("heartbeat", this::heartbeat),
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+        watched.values().forEach(pet -> pet.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    /**
+     * Abre una suscripción a los cambios de estado de la mascota y le envía su estado actual
+     * @param petId ID de la mascota
+     * @return La conexión, o vacío si este nodo ya tiene app.pets.stream.max-subscribers
+     */
+    public Optional<SseEmitter> subscribe(Long petId) {
+        Pet pet = petRepository.findById(petId)
+                .orElseThrow(() -> new ResourceNotFoundException("Mascota no encontrada"));
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            rejectedSubscriptions.increment();
+            return Optional.empty();
+        }
+
+        Snapshot fromDatabase = new Snapshot(pet.getHunger(), pet.getHappiness(), pet.getHealth(), pet.getEnergy(),
+                PetStateCalculator.snapshotTime(pet.getStatesUpdatedAt(), pet.getLastInteraction()));
+        Subscriber subscriber = new Subscriber(petId, newEmitter());
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+
+        WatchedPet watchedPet = watched.compute(petId, (id, current) -> {
+            WatchedPet target = current != null ? current : new WatchedPet(fromDatabase);
+            target.offer(fromDatabase);
+            target.subscribers.add(subscriber);
+            return target;
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!subscriber.push(watchedPet.snapshot.stateAt(now), now, null)) {
+            unsubscribe(subscriber);
+        }
+        return Optional.of(subscriber.emitter);
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.decrementAndGet();
+        watched.computeIfPresent(subscriber.petId, (id, pet) -> {
+            pet.subscribers.remove(subscriber);
+            return pet.subscribers.isEmpty() ? null : pet;
+        });
+    }
+
+    @Override
+    public Class<PetStateChangedEvent> eventType() {
+        return PetStateChangedEvent.class;
+    }
+
+    /**
+     * Anota la nueva foto de las mascotas observadas; el envío lo hace el hilo propio para
+     * no frenar al bus de eventos
+     */
+    @Override
+    public void onEvents(List<PetStateChangedEvent> events) {
+        for (PetStateChangedEvent event : events) {
+            WatchedPet pet = watched.get(event.getPetId());
+            if (pet == null) {
+                continue;
+            }
+            pet.offer(new Snapshot(event.getHunger(), event.getHappiness(), event.getHealth(), event.getEnergy(),
+                    event.getStatesUpdatedAt()));
+            if (!dirty.add(event.getPetId())) {
+                // Se enviará junto con el cambio anterior, todavía pendiente
+                coalescedUpdates.increment();
+            }
+        }
+    }
+
+    /**
+     * Envía a sus suscriptores los cambios acumulados de cada mascota
+     */
+    void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Long petId : new ArrayList<>(dirty)) {
+            dirty.remove(petId);
+            WatchedPet pet = watched.get(petId);
+            if (pet != null) {
+                push(pet, pet.snapshot.stateAt(now), now, null);
+            }
+        }
+    }
+
+    /**
+     * Calcula el decaimiento de las mascotas observadas y avisa a los suscriptores para los
+     * que algún estado cruzó un umbral desde su último envío
+     * @param now Momento para el que se calculan los estados
+     */
+    void checkDecay(LocalDateTime now) {
+        for (WatchedPet pet : watched.values()) {
+            push(pet, pet.snapshot.stateAt(now), now, decayThresholds);
+        }
+    }
+
+    private void push(WatchedPet pet, PetState state, LocalDateTime now, int[] onlyOnCrossing) {
+        for (Subscriber subscriber : pet.subscribers) {
+            if (!subscriber.push(state, now, onlyOnCrossing)) {
+                unsubscribe(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Comentario SSE periódico: mantiene abiertas las conexiones inactivas detrás de proxies
+     * y detecta los clientes que se fueron sin cerrar
+     */
+    private void heartbeat() {
+        for (WatchedPet pet : watched.values()) {
+            for (Subscriber subscriber : pet.subscribers) {
+                if (!subscriber.ping()) {
+                    unsubscribe(subscriber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cierra las suscripciones cuyo envío en curso superó app.pets.stream.write-timeout-ms,
+     * para que el cliente deje de acumular cambios y se reconecte
+     */
+    void closeStalled() {
+        long now = System.nanoTime();
+        for (WatchedPet pet : watched.values()) {
+            for (Subscriber subscriber : pet.subscribers) {
+                if (subscriber.stalledAt(now)) {
+                    slowDisconnects.increment();
+                    log.debug("Suscripción a la mascota {} cerrada: envío bloqueado más de {} ms",
+                            subscriber.petId, writeTimeoutMs);
+                    unsubscribe(subscriber);
+                    // No espera al envío bloqueado: el hilo se libera cuando el contenedor corte la escritura
+                    subscriber.emitter.completeWithError(new IOException("Tiempo de escritura agotado"));
+                }
+            }
+        }
+    }
+
+    private void runSafely(String task, Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            // Una excepción cancelaría las siguientes ejecuciones del planificador
+            log.error("Falló la tarea de {} de las suscripciones a mascotas", task, e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petworld.pets.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Suscripciones abiertas").register(registry);
+        Gauge.builder("petworld.pets.stream.watched", watched, Map::size)
+                .description("Mascotas con al menos un suscriptor").register(registry);
+        Gauge.builder("petworld.pets.stream.pending", dirty, Set::size)
+                .description("Mascotas con cambios aún no enviados").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.pushed.states", pushedStates, LongAdder::sum)
+                .description("Estados completos enviados").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.pushed.deltas", pushedDeltas, LongAdder::sum)
+                .description("Cambios parciales enviados").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.decay.pushes", decayPushes, LongAdder::sum)
+                .description("Envíos por cruzar un umbral de decaimiento").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.coalesced", coalescedUpdates, LongAdder::sum)
+                .description("Cambios reemplazados por uno posterior antes de enviarse").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.disconnects", disconnects, LongAdder::sum)
+                .description("Suscripciones cerradas").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.rejected", rejectedSubscriptions, LongAdder::sum)
+                .description("Suscripciones rechazadas por el máximo del nodo").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.dropped", droppedEvents, LongAdder::sum)
+                .description("Envíos descartados por llenarse la cola de un suscriptor lento").register(registry);
+        FunctionCounter.builder("petworld.pets.stream.slow.disconnects", slowDisconnects, LongAdder::sum)
+                .description("Suscripciones cerradas por superar el tiempo de escritura").register(registry);
+        Gauge.builder("petworld.pets.stream.send.queue", sender, executor -> executor.getQueue().size())
+                .description("Suscriptores esperando un hilo de envío").register(registry);
+    }
+
+    /**
+     * Métricas de las suscripciones de este nodo
+     */
+    public PetStateStreamStatsDTO getStats() {
+        PetStateStreamStatsDTO stats = new PetStateStreamStatsDTO();
+        stats.setSubscribers(subscribers.get());
+        stats.setMaxSubscribers(maxSubscribers);
+        stats.setWatchedPets(watched.size());
+        stats.setPendingPets(dirty.size());
+        stats.setPushedStates(pushedStates.sum());
+        stats.setPushedDeltas(pushedDeltas.sum());
+        stats.setDecayPushes(decayPushes.sum());
+        stats.setCoalescedUpdates(coalescedUpdates.sum());
+        stats.setDisconnects(disconnects.sum());
+        stats.setRejectedSubscriptions(rejectedSubscriptions.sum());
+        stats.setDroppedEvents(droppedEvents.sum());
+        stats.setSlowDisconnects(slowDisconnects.sum());
+        return stats;
+    }
+
+    /**
+     * Foto de estados de una mascota y el momento al que corresponde
+     */
+    @AllArgsConstructor
+    private static final class Snapshot {
+        private final int hunger;
+        private final int happiness;
+        private final int health;
+        private final int energy;
+        private final LocalDateTime takenAt;
+
+        PetState stateAt(LocalDateTime now) {
+            return PetStateCalculator.computeState(hunger, happiness, health, energy, takenAt, now);
+        }
+    }
+
+    private static final class WatchedPet {
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private volatile Snapshot snapshot;
+
+        WatchedPet(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Se queda con la foto más reciente (los eventos pueden llegar después de una lectura posterior)
+         */
+        synchronized void offer(Snapshot candidate) {
+            if (snapshot.takenAt == null || (candidate.takenAt != null && !candidate.takenAt.isBefore(snapshot.takenAt))) {
+                snapshot = candidate;
+            }
+        }
+    }
+
+    /**
+     * Una conexión SSE, sus envíos pendientes y los últimos valores que se le encolaron
+     */
+    private final class Subscriber {
+        private final Long petId;
+        private final SseEmitter emitter;
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private final Deque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        private boolean draining;
+        // Inicio (System.nanoTime) del envío en curso, o 0 si no hay ninguno
+        private volatile long sendingSince;
+        private int[] lastSent;
+
+        Subscriber(Long petId, SseEmitter emitter) {
+            this.petId = petId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Envía el estado completo la primera vez y después solo los campos que cambiaron
+         * @param onlyOnCrossing Umbrales que deben cruzarse para enviar, o null para enviar cualquier cambio
+         * @return false si la conexión está cerrada
+         */
+        synchronized boolean push(PetState state, LocalDateTime at, int[] onlyOnCrossing) {
+            if (removed.get()) {
+                return false;
+            }
+            int[] current = {state.getHunger(), state.getHappiness(), state.getHealth(), state.getEnergy()};
+            PetStateDeltaDTO dto = new PetStateDeltaDTO();
+            dto.setPetId(petId);
+            dto.setAt(at);
+            if (pending.size() >= sendQueueSize) {
+                // El cliente no da abasto: los deltas pendientes se sustituyen por el estado completo
+                droppedEvents.add(pending.size());
+                pending.clear();
+                lastSent = null;
+            }
+            if (lastSent == null) {
+                dto.setHunger(current[0]);
+                dto.setHappiness(current[1]);
+                dto.setHealth(current[2]);
+                dto.setEnergy(current[3]);
+                if (!enqueue(SseEmitter.event().name("state").data(dto, MediaType.APPLICATION_JSON))) {
+                    return false;
+                }
+                pushedStates.increment();
+                lastSent = current;
+                return true;
+            }
+            if (onlyOnCrossing != null && !crossesThreshold(lastSent, current, onlyOnCrossing)) {
+                return true;
+            }
+            boolean changed = false;
+            if (current[0] != lastSent[0]) {
+                dto.setHunger(current[0]);
+                changed = true;
+            }
+            if (current[1] != lastSent[1]) {
+                dto.setHappiness(current[1]);
+                changed = true;
+            }
+            if (current[2] != lastSent[2]) {
+                dto.setHealth(current[2]);
+                changed = true;
+            }
+            if (current[3] != lastSent[3]) {
+                dto.setEnergy(current[3]);
+                changed = true;
+            }
+            if (!changed) {
+                return true;
+            }
+            if (!enqueue(SseEmitter.event().name("delta").data(dto, MediaType.APPLICATION_JSON))) {
+                return false;
+            }
+            pushedDeltas.increment();
+            if (onlyOnCrossing != null) {
+                decayPushes.increment();
+            }
+            lastSent = current;
+            return true;
+        }
+
+        /**
+         * Comentario de heartbeat; sobra si ya hay envíos pendientes
+         * @return false si la conexión está cerrada
+         */
+        synchronized boolean ping() {
+            if (removed.get()) {
+                return false;
+            }
+            return !pending.isEmpty() || enqueue(SseEmitter.event().comment("ping"));
+        }
+
+        /**
+         * Deja el envío en la cola y, si no hay ya un hilo vaciándola, pide uno al pool
+         */
+        private boolean enqueue(SseEmitter.SseEventBuilder event) {
+            pending.add(event);
+            if (draining) {
+                return true;
+            }
+            try {
+                sender.execute(this::drain);
+                draining = true;
+                return true;
+            } catch (RejectedExecutionException e) {
+                // El servicio se está deteniendo
+                pending.clear();
+                return false;
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = removed.get() ? null : pending.poll();
+                    if (event == null) {
+                        pending.clear();
+                        draining = false;
+                        return;
+                    }
+                    sendingSince = System.nanoTime();
+                }
+                boolean sent = send(event);
+                sendingSince = 0;
+                if (!sent) {
+                    unsubscribe(this);
+                }
+            }
+        }
+
+        boolean stalledAt(long nanoTime) {
+            long since = sendingSince;
+            return since != 0 && nanoTime - since > TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        }
+
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // El cliente se desconectó o la conexión ya terminó
+                disconnects.increment();
+                log.debug("Suscripción a la mascota {} cerrada: {}", petId, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * true si algún estado quedó en otra franja de umbrales (subió o bajó de alguno)
+     */
+    private static boolean crossesThreshold(int[] previous, int[] current, int[] thresholds) {
+        for (int i = 0; i < current.length; i++) {
+            if (band(previous[i], thresholds) != band(current[i], thresholds)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int band(int value, int[] thresholds) {
+        int band = 0;
+        for (int threshold : thresholds) {
+            if (value < threshold) {
+                band++;
+            }
+        }
+        return band;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.petworld.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de escritura anticipada (WAL) de las interacciones de una mascota que el buzón
+ * aceptó pero todavía no escribió en la base de datos.
+ * Cada línea es "<timestamp ISO> <tipo codificado> <CRC32 de lo anterior>"; el archivo se
+ * vacía tras cada escritura exitosa, así que solo contiene interacciones pendientes.
+ * Una caída a mitad de una escritura deja una línea cortada al final: la lectura se detiene
+ * en el primer registro incompleto o con CRC incorrecto y recorta el archivo hasta el último
+ * registro válido, para que las siguientes escrituras empiecen en una línea limpia.
+ * Solo lo usa el hilo que procesa el buzón de la mascota, por lo que no es thread-safe.
+ */
+@Slf4j
+class PetWriteAheadLog implements AutoCloseable {
+    private static final String FILE_PREFIX = "pet-";
+    private static final String FILE_SUFFIX = ".wal";
+
+    private final Path file;
+    private final boolean sync;
+    private FileChannel channel;
+
+    PetWriteAheadLog(Path directory, Long petId, boolean sync) {
+        this.file = directory.resolve(FILE_PREFIX + petId + FILE_SUFFIX);
+        this.sync = sync;
+    }
+
+    /**
+     * Obtiene el ID de mascota a partir del nombre de un archivo del directorio del WAL
+     * @param file Archivo del directorio
+     * @return El ID, o null si el archivo no es un WAL de mascota
+     */
+    static Long petIdOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lee las interacciones registradas y no escritas todavía. Si el archivo termina en un
+     * registro cortado o dañado, lo descarta junto con lo que venga detrás y recorta el archivo
+     * @return Registros válidos en el orden en que se aceptaron (vacío si no hay archivo)
+     */
+    List<Entry> read() {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file);
+            int valid = 0;
+            // Solo se consideran las líneas completas: una sin '\n' es una escritura interrumpida
+            for (int end = indexOf(content, valid); end >= 0; end = indexOf(content, valid)) {
+                Entry entry = parse(new String(content, valid, end - valid, StandardCharsets.UTF_8));
+                if (entry == null) {
+                    break;
+                }
+                entries.add(entry);
+                valid = end + 1;
+            }
+            if (valid < content.length) {
+                log.warn("WAL {} dañado a partir del byte {}: se descartan {} bytes y se conservan {} registros",
+                        file, valid, content.length - valid, entries.size());
+                repair(valid);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
+    }
+
+    /**
+     * Añade las interacciones al final del archivo y, si está configurado, espera a que
+     * lleguen al disco (una sola sincronización por grupo de interacciones)
+     * @param entries Interacciones a registrar
+     */
+    void append(List<Entry> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            String record = entry.getTimestamp() + " " + URLEncoder.encode(entry.getType(), StandardCharsets.UTF_8);
+            lines.append(record).append(' ').append(checksum(record)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        FileChannel out = channel();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        if (sync) {
+            out.force(false);
+        }
+    }
+
+    /**
+     * Descarta el contenido una vez que las interacciones se escribieron en la base de datos
+     */
+    void truncate() throws IOException {
+        if (channel != null) {
+            channel.truncate(0);
+        } else {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Cierra el archivo y lo borra si ya no tiene interacciones pendientes
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            boolean empty = channel.size() == 0;
+            channel.close();
+            channel = null;
+            if (empty) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * @return El registro de la línea, o null si está incompleta o no coincide con su CRC
+     */
+    private static Entry parse(String line) {
+        int separator = line.lastIndexOf(' ');
+        if (separator < 0 || !line.substring(separator + 1).equals(checksum(line.substring(0, separator)))) {
+            return null;
+        }
+        String record = line.substring(0, separator);
+        int typeSeparator = record.indexOf(' ');
+        if (typeSeparator < 0) {
+            return null;
+        }
+        try {
+            return new Entry(LocalDateTime.parse(record.substring(0, typeSeparator)),
+                    URLDecoder.decode(record.substring(typeSeparator + 1), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().toHexDigits((int) crc.getValue());
+    }
+
+    private static int indexOf(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recorta el archivo hasta el último registro válido
+     */
+    private void repair(long length) throws IOException {
+        if (channel != null) {
+            channel.truncate(length);
+            return;
+        }
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            out.truncate(length);
+            if (sync) {
+                out.force(false);
+            }
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    /**
+     * Interacción registrada: tipo y momento en que se aplicó
+     */
+    @Getter
+    @AllArgsConstructor
+    static class Entry {
+        private final LocalDateTime timestamp;
+        private final String type;
+    }
+}
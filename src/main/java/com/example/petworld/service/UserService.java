@@ -1,31 +1,40 @@
 package com.example.petworld.service;
 
 import com.example.petworld.domain.User;
-import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetProjectionDTO;
 import com.example.petworld.dto.Pet.PetResponseDTO;
 import com.example.petworld.dto.User.UserCreateDTO;
 import com.example.petworld.dto.User.UserResponseDTO;
 import com.example.petworld.dto.Pet.PetSimpleDTO;
 import com.example.petworld.infrastructure.UserRepository;
-import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.events.UserChangedEvent;
 import com.example.petworld.exception.ResourceNotFoundException;
+import com.example.petworld.service.PetStateCalculator.PetState;
+import io.micrometer.core.annotation.Timed;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("petworld.service") // Un timer por método público (etiquetas class y method), ver MetricsConfig
 public class UserService {
     private final UserRepository userRepository;
-    private final PetRepository petRepository;
+    private final PetSnapshotCache petSnapshotCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserService(UserRepository userRepository, PetRepository petRepository) {
+    public UserService(UserRepository userRepository,
+                       PetSnapshotCache petSnapshotCache,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
-        this.petRepository = petRepository;
+        this.petSnapshotCache = petSnapshotCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -86,6 +95,9 @@ public class UserService {
         // Verificar que el usuario actual es quien está haciendo la actualización
         verifyPermission(id);
 
+        // Email con el que el usuario está autenticado antes de cambiarlo
+        String previousEmail = user.getEmail();
+
         user.setUsername(userUpdateDTO.getUsername());
         user.setEmail(userUpdateDTO.getEmail());
         // En un sistema real, solo actualizaríamos la contraseña si se proporciona una nueva
@@ -94,6 +106,10 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+
+        // Invalidar los datos del usuario que se guardan en caché (autenticación y mascotas)
+        eventPublisher.publishEvent(new UserChangedEvent(this, id, previousEmail));
+
         return convertToResponseDTO(updatedUser);
     }
 
@@ -111,6 +127,9 @@ public class UserService {
         verifyPermission(id);
 
         userRepository.delete(user);
+
+        // Invalidar los datos del usuario que se guardan en caché (autenticación y mascotas)
+        eventPublisher.publishEvent(new UserChangedEvent(this, id, user.getEmail()));
     }
 
     /**
@@ -119,13 +138,9 @@ public class UserService {
      * @return Lista de mascotas
      */
     public List<PetResponseDTO> getUserPets(Long userId) {
-        // Verificar que el usuario existe
-        if (!userRepository.existsById(userId)) {
-            throw new ResourceNotFoundException("Usuario no encontrado");
-        }
-
-        // Obtener las mascotas del usuario
-        List<Pet> pets = petRepository.findByOwnerId(userId);
+        // Las mascotas del usuario salen de la caché de fotos; vacío si el usuario no existe
+        List<PetProjectionDTO> pets = petSnapshotCache.getByOwner(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
         return pets.stream()
                 .map(this::convertToPetResponseDTO)
@@ -186,21 +201,25 @@ public class UserService {
     }
 
     /**
-     * Convierte una entidad Pet a DTO de respuesta
-     * @param pet La entidad Pet
+     * Convierte la foto de una mascota a DTO de respuesta
+     * @param pet La foto de la mascota
      * @return El DTO correspondiente
      */
-    private PetResponseDTO convertToPetResponseDTO(Pet pet) {
+    private PetResponseDTO convertToPetResponseDTO(PetProjectionDTO pet) {
+        // Estados calculados según el tiempo transcurrido desde la última foto guardada
+        PetState state = PetStateCalculator.computeState(pet.getHunger(), pet.getHappiness(),
+                pet.getHealth(), pet.getEnergy(), pet.getStatesUpdatedAt(), LocalDateTime.now());
+
         PetResponseDTO dto = new PetResponseDTO();
         dto.setId(pet.getId());
         dto.setName(pet.getName());
         dto.setDescription(pet.getDescription());
         dto.setType(pet.getType());
         dto.setImageUrl(pet.getImageUrl());
-        dto.setHunger(pet.getHunger());
-        dto.setHappiness(pet.getHappiness());
-        dto.setHealth(pet.getHealth());
-        dto.setEnergy(pet.getEnergy());
+        dto.setHunger(state.getHunger());
+        dto.setHappiness(state.getHappiness());
+        dto.setHealth(state.getHealth());
+        dto.setEnergy(state.getEnergy());
         dto.setLastInteraction(pet.getLastInteraction());
         dto.setCreatedAt(pet.getCreatedAt());
 
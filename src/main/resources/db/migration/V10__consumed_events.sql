@@ -0,0 +1,12 @@
+-- Eventos del outbox que ya procesó cada listener con efectos (consumidor idempotente): una
+-- entrega repetida del mismo evento trae la misma clave de idempotencia y se descarta
+
+CREATE TABLE IF NOT EXISTS consumed_events (
+    consumer VARCHAR(100) NOT NULL,
+    idempotency_key VARCHAR(200) NOT NULL,
+    consumed_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (consumer, idempotency_key)
+);
+
+-- La limpieza del outbox los borra por antigüedad, junto con los eventos entregados
+CREATE INDEX IF NOT EXISTS idx_consumed_events_consumed_at ON consumed_events (consumed_at);
@@ -0,0 +1,45 @@
+-- Esquema inicial (PostgreSQL), equivalente al que generaba ddl-auto=update con IDs IDENTITY.
+-- En bases existentes creadas por ddl-auto esta versión se omite (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255),
+    email VARCHAR(255),
+    password VARCHAR(255),
+    born_date TIMESTAMP(6),
+    country VARCHAR(255),
+    city VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS pets (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    description VARCHAR(255),
+    type VARCHAR(255),
+    image_url VARCHAR(255),
+    hunger INTEGER,
+    happiness INTEGER,
+    health INTEGER,
+    energy INTEGER,
+    last_interaction TIMESTAMP(6),
+    created_at TIMESTAMP(6),
+    owner_id BIGINT CONSTRAINT fk_pets_owner REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS interactions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type VARCHAR(255),
+    value INTEGER,
+    description VARCHAR(255),
+    timestamp TIMESTAMP(6),
+    pet_id BIGINT CONSTRAINT fk_interactions_pet REFERENCES pets (id)
+);
+
+CREATE TABLE IF NOT EXISTS ai_generations (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    prompt VARCHAR(255),
+    result VARCHAR(255),
+    timestamp TIMESTAMP(6),
+    pet_id BIGINT CONSTRAINT uk_ai_generations_pet UNIQUE CONSTRAINT fk_ai_generations_pet REFERENCES pets (id),
+    user_id BIGINT CONSTRAINT fk_ai_generations_user REFERENCES users (id)
+);
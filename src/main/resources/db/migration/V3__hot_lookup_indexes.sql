@@ -0,0 +1,14 @@
+-- Índices para las consultas frecuentes de los repositorios:
+--   PetRepository.findByOwnerId / findByTypeAndOwnerId / findByType
+--   InteractionRepository.findByPetIdAndType / countByPetIdAndType / findByPetIdOrderByTimestampDesc
+--   UserRepository.findByEmail / existsByEmail
+-- Mantener sincronizado con @Table(indexes = ...) en las entidades.
+-- El índice único sobre users(email) falla si ya existen emails duplicados: depurarlos antes de migrar.
+
+CREATE INDEX IF NOT EXISTS idx_pets_owner_id ON pets (owner_id);
+CREATE INDEX IF NOT EXISTS idx_pets_type_owner_id ON pets (type, owner_id);
+
+CREATE INDEX IF NOT EXISTS idx_interactions_pet_id_type ON interactions (pet_id, type);
+CREATE INDEX IF NOT EXISTS idx_interactions_pet_id_timestamp ON interactions (pet_id, timestamp DESC);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email ON users (email);
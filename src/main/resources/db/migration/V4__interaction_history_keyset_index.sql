@@ -0,0 +1,5 @@
+-- El historial de interacciones se pagina por cursor sobre (timestamp, id):
+-- el índice incluye id para resolver los empates de timestamp sin ordenar en memoria.
+
+CREATE INDEX IF NOT EXISTS idx_interactions_pet_id_timestamp_id ON interactions (pet_id, timestamp DESC, id DESC);
+DROP INDEX IF EXISTS idx_interactions_pet_id_timestamp;
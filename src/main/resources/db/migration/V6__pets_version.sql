@@ -0,0 +1,3 @@
+-- Columna de versión para el control de concurrencia optimista de Pet (@Version)
+
+ALTER TABLE pets ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
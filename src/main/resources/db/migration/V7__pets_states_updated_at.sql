@@ -0,0 +1,6 @@
+-- Momento al que corresponde la foto de estados de cada mascota. Hasta ahora era siempre la
+-- última interacción; PetDecayJob la adelanta al materializar el decaimiento en bloque
+
+ALTER TABLE pets ADD COLUMN IF NOT EXISTS states_updated_at TIMESTAMP(6);
+
+UPDATE pets SET states_updated_at = COALESCE(last_interaction, created_at) WHERE states_updated_at IS NULL;
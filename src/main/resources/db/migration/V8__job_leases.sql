@@ -0,0 +1,9 @@
+-- Leases de los trabajos en segundo plano: coordinan qué instancia ejecuta cada trabajo
+-- (o partición) cuando hay varias instancias sobre la misma base de datos
+
+CREATE TABLE IF NOT EXISTS job_leases (
+    name VARCHAR(200) PRIMARY KEY,
+    owner VARCHAR(200),
+    expires_at TIMESTAMP(6) NOT NULL,
+    acquired_at TIMESTAMP(6)
+);
@@ -0,0 +1,174 @@
+package com.example.petworld.benchmark;
+
+import com.example.petworld.config.AsyncConfig;
+import com.example.petworld.config.AsyncExecutorMetrics;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test for the bounded taskExecutor: many producers submit listener-sized tasks far
+ * faster than the pool can run them, and the configured rejection policy decides what
+ * happens on saturation. CALLER_RUNS slows the producers down without losing tasks; DROP
+ * discards them, counts them and cancels their futures so whoever waits for them (the
+ * outbox relay) retries instead of hanging. Runs only in the load profile (mvn -Ploadtest test);
+ * AsyncExecutorMetricsTest checks both policies in the default suite
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        // Pool y cola mínimos para saturarlos enseguida
+        "app.async.core-pool-size=2",
+        "app.async.max-pool-size=2",
+        "app.async.queue-capacity=5",
+        "app.async.rejection-policy=CALLER_RUNS"
+})
+@ActiveProfiles("test")
+public class AsyncListenerLoadTest {
+
+    private static final int TASKS = 400;
+    private static final int PRODUCERS = 16;
+    private static final long TASK_MS = 5; // Duración de un listener simulado
+
+    @Autowired
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    @Autowired
+    private AsyncExecutorMetrics asyncExecutorMetrics;
+
+    @Test
+    public void testSaturationRunsTasksOnProducersWithCallerRuns() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        asyncExecutorMetrics.bindTo(registry);
+        long completedBefore = asyncExecutorMetrics.getCompleted();
+        long rejectedBefore = asyncExecutorMetrics.getRejected();
+        long callerRunsBefore = asyncExecutorMetrics.getCallerRuns();
+        long droppedBefore = asyncExecutorMetrics.getDropped();
+
+        AtomicInteger ranOnProducer = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<?>> futures = submitBurst(() -> {
+            if (Thread.currentThread().getName().startsWith("producer-")) {
+                ranOnProducer.incrementAndGet();
+            }
+        });
+        // Ninguna tarea se pierde aunque el executor esté saturado
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long callerRuns = asyncExecutorMetrics.getCallerRuns() - callerRunsBefore;
+        FunctionTimer queueWait = registry.get("petworld.async.queue.wait").functionTimer();
+        FunctionTimer execution = registry.get("petworld.async.execution").functionTimer();
+        log.info("taskExecutor load (CALLER_RUNS): {} tasks in {} ms ({} tasks/sec), {} rejected and run by the producer, " +
+                        "mean queue wait {} ms, mean execution {} ms",
+                TASKS, Math.round(seconds * 1000), Math.round(TASKS / seconds), callerRuns,
+                Math.round(queueWait.mean(TimeUnit.MILLISECONDS)), Math.round(execution.mean(TimeUnit.MILLISECONDS)));
+
+        // La saturación se resolvió con backpressure: las rechazadas las ejecutó quien las envió
+        assertTrue(callerRuns > 0, "Expected the burst to saturate the executor");
+        assertEquals(callerRuns, ranOnProducer.get());
+        assertEquals(asyncExecutorMetrics.getRejected() - rejectedBefore, callerRuns);
+        assertEquals(droppedBefore, asyncExecutorMetrics.getDropped());
+        assertEquals(TASKS, asyncExecutorMetrics.getCompleted() - completedBefore);
+        assertEquals(0.0, registry.get("petworld.async.queue.size").gauge().value());
+        assertEquals(5.0, registry.get("petworld.async.queue.remaining").gauge().value());
+    }
+
+    @Test
+    public void testSaturationDropsAndCancelsTasksWithDrop() throws Exception {
+        ThreadPoolExecutor pool = taskExecutor.getThreadPoolExecutor();
+        RejectedExecutionHandler configured = pool.getRejectedExecutionHandler();
+        long completedBefore = asyncExecutorMetrics.getCompleted();
+        long droppedBefore = asyncExecutorMetrics.getDropped();
+        long callerRunsBefore = asyncExecutorMetrics.getCallerRuns();
+
+        AtomicInteger ran = new AtomicInteger();
+        int cancelled = 0;
+        pool.setRejectedExecutionHandler(asyncExecutorMetrics.rejectionHandler(AsyncConfig.RejectionPolicy.DROP));
+        try {
+            List<Future<?>> futures = submitBurst(ran::incrementAndGet);
+            for (Future<?> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                } catch (CancellationException e) {
+                    cancelled++;
+                }
+            }
+        } finally {
+            pool.setRejectedExecutionHandler(configured);
+        }
+
+        long dropped = asyncExecutorMetrics.getDropped() - droppedBefore;
+        log.info("taskExecutor load (DROP): {} tasks, {} run, {} dropped", TASKS, ran.get(), dropped);
+
+        // Las descartadas no se ejecutan, pero su Future termina (cancelado) en lugar de quedar colgado
+        assertTrue(dropped > 0, "Expected the burst to saturate the executor");
+        assertEquals(dropped, cancelled);
+        assertEquals(TASKS, ran.get() + cancelled);
+        assertEquals(ran.get(), asyncExecutorMetrics.getCompleted() - completedBefore);
+        assertEquals(callerRunsBefore, asyncExecutorMetrics.getCallerRuns());
+    }
+
+    /**
+     * Envía TASKS tareas de TASK_MS al taskExecutor desde PRODUCERS hilos a la vez
+     * @return Los Future de todas las tareas, en orden de envío por productor
+     */
+    private List<Future<?>> submitBurst(Runnable body) throws Exception {
+        AtomicInteger producerIds = new AtomicInteger();
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS,
+                task -> new Thread(task, "producer-" + producerIds.incrementAndGet()));
+        List<Future<List<Future<?>>>> batches = new ArrayList<>();
+        try {
+            for (int p = 0; p < PRODUCERS; p++) {
+                batches.add(producers.submit(() -> {
+                    List<Future<?>> submitted = new ArrayList<>();
+                    for (int i = 0; i < TASKS / PRODUCERS; i++) {
+                        submitted.add(taskExecutor.submit(() -> {
+                            body.run();
+                            sleep(TASK_MS);
+                        }));
+                    }
+                    return submitted;
+                }));
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (Future<List<Future<?>>> batch : batches) {
+                futures.addAll(batch.get(1, TimeUnit.MINUTES));
+            }
+            return futures;
+        } finally {
+            producers.shutdown();
+            producers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
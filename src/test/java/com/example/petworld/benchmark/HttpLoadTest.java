@@ -0,0 +1,411 @@
+package com.example.petworld.benchmark;
+
+import com.example.petworld.PetWorldApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test: boots the whole application on a random port (H2 in memory, or a local
+ * PostgreSQL with -Dloadtest.jdbc-url), seeds users, pets and interaction history and drives a
+ * weighted mix of requests through the real HTTP stack and security filter chain. Reports
+ * throughput and p50/p95/p99 latency per endpoint and fails when an endpoint's p99 exceeds the
+ * stored baseline by more than the allowed tolerance.
+ * Baselines are per environment (-Dloadtest.env, default ci) and record the shape of the run
+ * that produced them, which later runs reuse; a missing baseline or a run with a different
+ * shape fails instead of skipping the check.
+ * Excluded from the default build; run with mvn -Ploadtest test
+ * (-Dloadtest.update-baseline=true rewrites the environment's baseline from the current run)
+ */
+@Slf4j
+@Tag("load")
+public class HttpLoadTest {
+
+    // Un p99 solo es comparable con otro medido en la misma máquina y base de datos: cada entorno
+    // graba su propia línea base (la versionada por defecto es la de integración continua)
+    private static final String ENVIRONMENT = System.getProperty("loadtest.env", "ci");
+    private static final Path BASELINE = Path.of(System.getProperty("loadtest.baseline",
+            "src/test/resources/loadtest/p99-baseline-" + ENVIRONMENT + ".properties"));
+    private static final String SHAPE_PREFIX = "run.";
+    private static final Properties STORED_BASELINE = loadBaseline();
+
+    // Sin -D, el dataset y la carga son los guardados en la línea base, así la ejecución siempre
+    // se compara con otra igual. Los valores fijos solo se usan para grabar la primera línea base
+    // (con pocos clientes por CPU, para que el p99 no mida la cola de peticiones de la máquina)
+    private static final int USERS = Integer.getInteger("loadtest.users", stored("users", 100));
+    private static final int PETS_PER_USER = Integer.getInteger("loadtest.pets-per-user", stored("pets-per-user", 20));
+    private static final int INTERACTIONS_PER_PET = Integer.getInteger("loadtest.interactions-per-pet",
+            stored("interactions-per-pet", 20));
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", stored("clients", 2));
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("loadtest.requests-per-client",
+            stored("requests-per-client", 5000));
+    private static final int WARMUP_REQUESTS_PER_CLIENT = Integer.getInteger("loadtest.warmup-requests-per-client", 200);
+    private static final long SEED = Long.getLong("loadtest.seed", 42L);
+
+    private static final String JDBC_URL = System.getProperty("loadtest.jdbc-url", "");
+    private static final String JDBC_USERNAME = System.getProperty("loadtest.jdbc-username", "");
+    private static final String JDBC_PASSWORD = System.getProperty("loadtest.jdbc-password", "");
+
+    private static final Path REPORT = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.csv"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("loadtest.update-baseline");
+    // Un p99 falla si supera baseline * (1 + tolerance) + slack: el margen absoluto evita
+    // falsos positivos en endpoints de pocos milisegundos
+    private static final double P99_TOLERANCE = Double.parseDouble(System.getProperty("loadtest.p99-tolerance", "0.3"));
+    private static final double P99_SLACK_MS = Double.parseDouble(System.getProperty("loadtest.p99-slack-ms", "10"));
+
+    /**
+     * Endpoints del recorrido, con su peso en la mezcla
+     */
+    enum Endpoint {
+        LOGIN("POST /api/auth/login", 2),
+        LIST_PETS("GET /api/pets?limit", 20),
+        GET_PET("GET /api/pets/{id}", 33),
+        FEED("POST /api/pets/{id}/feed", 10),
+        PLAY("POST /api/pets/{id}/play", 10),
+        HEAL("POST /api/pets/{id}/heal", 5),
+        HISTORY("GET /api/pets/{id}/interactions?limit", 20);
+
+        private final String label;
+        private final int weight;
+
+        Endpoint(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+
+        String baselineKey() {
+            return name().toLowerCase().replace('_', '-') + ".p99-ms";
+        }
+    }
+
+    private static final int TOTAL_WEIGHT = Arrays.stream(Endpoint.values()).mapToInt(e -> e.weight).sum();
+
+    private final LoadTestDataset dataset = new LoadTestDataset(USERS, PETS_PER_USER, INTERACTIONS_PER_PET);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ObjectMapper objectMapper;
+    private String baseUrl;
+
+    @Test
+    public void loadTestEndpoints() throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            objectMapper = context.getBean(ObjectMapper.class);
+
+            long seedStart = System.nanoTime();
+            dataset.seed(context.getBean(JdbcTemplate.class), context.getBean(PasswordEncoder.class), SEED);
+            log.info("Load test dataset: {} users, {} pets, {} interactions seeded in {} ms",
+                    dataset.userCount(), dataset.petCount(), dataset.petCount() * INTERACTIONS_PER_PET,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+            // Ronda de calentamiento para que el JIT, los pools y las cachés no distorsionen la medición
+            run(WARMUP_REQUESTS_PER_CLIENT, SEED - 1);
+            long start = System.nanoTime();
+            Map<Endpoint, Samples> results = run(REQUESTS_PER_CLIENT, SEED);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            report(results, seconds);
+            results.forEach((endpoint, samples) ->
+                    assertEquals(0, samples.errors(), endpoint.label + " answered with errors"));
+            checkBaseline(results);
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        List<String> args = new ArrayList<>(List.of("--server.port=0"));
+        if (!JDBC_URL.isBlank()) {
+            // Base externa (PostgreSQL): el esquema lo crean las migraciones, como en producción
+            args.addAll(List.of(
+                    "--spring.datasource.url=" + JDBC_URL,
+                    "--spring.datasource.username=" + JDBC_USERNAME,
+                    "--spring.datasource.password=" + JDBC_PASSWORD,
+                    "--spring.flyway.enabled=true",
+                    "--spring.jpa.hibernate.ddl-auto=validate"));
+        }
+        return new SpringApplicationBuilder(PetWorldApplication.class)
+                .profiles("loadtest")
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Cada cliente inicia sesión como un usuario al azar y después recorre la mezcla de endpoints
+     * @return Latencias y errores por endpoint
+     */
+    private Map<Endpoint, Samples> run(int requestsPerClient, long seed) throws Exception {
+        Map<Endpoint, Samples> results = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            results.put(endpoint, new Samples());
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                Random random = new Random(seed * 31 + c);
+                futures.add(clients.submit(() -> {
+                    drive(random, requestsPerClient, results);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return results;
+    }
+
+    private void drive(Random random, int requests, Map<Endpoint, Samples> results) throws Exception {
+        String token = login(random, results);
+        for (int i = 0; i < requests; i++) {
+            Endpoint endpoint = pick(random);
+            if (endpoint == Endpoint.LOGIN) {
+                token = login(random, results);
+            } else {
+                send(endpoint, request(endpoint, random, token), results);
+            }
+        }
+    }
+
+    private static Endpoint pick(Random random) {
+        int roll = random.nextInt(TOTAL_WEIGHT);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Weights do not add up");
+    }
+
+    private String login(Random random, Map<Endpoint, Samples> results) throws Exception {
+        long userId = 1 + random.nextInt((int) dataset.userCount());
+        String body = objectMapper.writeValueAsString(Map.of(
+                "email", LoadTestDataset.email(userId), "password", LoadTestDataset.PASSWORD));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = send(Endpoint.LOGIN, request, results);
+        return response.statusCode() == 200 ? objectMapper.readTree(response.body()).get("token").asText() : "";
+    }
+
+    private HttpRequest request(Endpoint endpoint, Random random, String token) {
+        long petId = 1 + random.nextInt((int) dataset.petCount());
+        // PetService todavía verifica la propiedad contra un usuario fijo (1): las interacciones
+        // van siempre a sus mascotas
+        long ownPetId = dataset.firstPetId(1) + random.nextInt(dataset.petsPerUser());
+        String path = switch (endpoint) {
+            case LIST_PETS -> "/api/pets?limit=20&after=" + random.nextInt((int) dataset.petCount());
+            case GET_PET -> "/api/pets/" + petId;
+            case FEED -> "/api/pets/" + ownPetId + "/feed";
+            case PLAY -> "/api/pets/" + ownPetId + "/play";
+            case HEAL -> "/api/pets/" + ownPetId + "/heal";
+            case HISTORY -> "/api/pets/" + petId + "/interactions?limit=20";
+            case LOGIN -> throw new IllegalArgumentException("Login is sent by login()");
+        };
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token);
+        return endpoint.label.startsWith("POST")
+                ? builder.POST(HttpRequest.BodyPublishers.noBody()).build()
+                : builder.GET().build();
+    }
+
+    private HttpResponse<String> send(Endpoint endpoint, HttpRequest request, Map<Endpoint, Samples> results)
+            throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long latency = System.nanoTime() - start;
+        results.get(endpoint).add(latency, response.statusCode() / 100 != 2);
+        if (response.statusCode() / 100 != 2) {
+            log.warn("{} {} answered {}", request.method(), request.uri().getPath(), response.statusCode());
+        }
+        return response;
+    }
+
+    private void report(Map<Endpoint, Samples> results, double seconds) throws IOException {
+        long total = results.values().stream().mapToLong(Samples::count).sum();
+        log.info("Load test: {} requests from {} clients in {} s, {} req/sec",
+                total, CLIENTS, String.format("%.1f", seconds), Math.round(total / seconds));
+
+        List<String> lines = new ArrayList<>();
+        lines.add("endpoint,requests,errors,req_per_sec,p50_ms,p95_ms,p99_ms,max_ms");
+        results.forEach((endpoint, samples) -> {
+            long[] sorted = samples.sorted();
+            log.info(String.format("%-40s %6d requests %4d errors %7.1f req/sec  p50 %7.2f ms  p95 %7.2f ms  p99 %7.2f ms  max %7.2f ms",
+                    endpoint.label, sorted.length, samples.errors(), sorted.length / seconds,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1.0))));
+            lines.add(String.format("%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f",
+                    endpoint.label, sorted.length, samples.errors(), sorted.length / seconds,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1.0))));
+        });
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        Files.write(REPORT, lines);
+        log.info("Load test report written to {}", REPORT.toAbsolutePath());
+    }
+
+    /**
+     * Compara el p99 de cada endpoint con la línea base guardada, o la reescribe si se pidió
+     */
+    private void checkBaseline(Map<Endpoint, Samples> results) throws IOException {
+        if (UPDATE_BASELINE) {
+            Properties baseline = new Properties();
+            runShape().forEach((key, value) -> baseline.setProperty(SHAPE_PREFIX + key, value));
+            results.forEach((endpoint, samples) -> baseline.setProperty(endpoint.baselineKey(),
+                    String.format("%.2f", millis(percentile(samples.sorted(), 0.99)))));
+            Files.createDirectories(BASELINE.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(BASELINE)) {
+                baseline.store(writer, "p99 latency per endpoint in ms for environment " + ENVIRONMENT
+                        + " (HttpLoadTest, -Dloadtest.update-baseline=true)");
+            }
+            log.info("Load test baseline for {} written to {}", ENVIRONMENT, BASELINE.toAbsolutePath());
+            return;
+        }
+        // Sin línea base comparable el p99 no se puede verificar: eso también hace fallar la prueba
+        Properties baseline = STORED_BASELINE;
+        assertNotNull(baseline, String.format("No load test baseline for environment %s at %s; record one on that " +
+                "machine with -Dloadtest.env=%s -Dloadtest.update-baseline=true", ENVIRONMENT, BASELINE.toAbsolutePath(), ENVIRONMENT));
+        // Con otra carga u otra máquina los p99 no se pueden comparar con los guardados
+        List<String> differences = new ArrayList<>();
+        runShape().forEach((key, value) -> {
+            String stored = baseline.getProperty(SHAPE_PREFIX + key);
+            if (!value.equals(stored)) {
+                differences.add(String.format("%s=%s (baseline %s)", key, value, stored));
+            }
+        });
+        assertTrue(differences.isEmpty(), String.format("Load test run differs from the %s baseline %s; use the " +
+                "baseline's settings or record a baseline for this environment", ENVIRONMENT, differences));
+        List<String> regressions = new ArrayList<>();
+        results.forEach((endpoint, samples) -> {
+            String stored = baseline.getProperty(endpoint.baselineKey());
+            if (stored == null) {
+                regressions.add(endpoint.label + " has no baseline");
+                return;
+            }
+            double p99 = millis(percentile(samples.sorted(), 0.99));
+            double limit = Double.parseDouble(stored) * (1 + P99_TOLERANCE) + P99_SLACK_MS;
+            if (p99 > limit) {
+                regressions.add(String.format("%s p99 %.2f ms > %.2f ms (baseline %s ms)", endpoint.label, p99, limit, stored));
+            }
+        });
+        assertTrue(regressions.isEmpty(), "p99 regressions: " + regressions);
+    }
+
+    /**
+     * @return La línea base del entorno, o null si todavía no se grabó
+     */
+    private static Properties loadBaseline() {
+        if (!Files.exists(BASELINE)) {
+            return null;
+        }
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(BASELINE)) {
+            baseline.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baseline;
+    }
+
+    private static int stored(String key, int defaultValue) {
+        String value = STORED_BASELINE == null ? null : STORED_BASELINE.getProperty(SHAPE_PREFIX + key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Parámetros de la ejecución de los que dependen las latencias, guardados junto a la línea base
+     */
+    private static Map<String, String> runShape() {
+        Map<String, String> shape = new LinkedHashMap<>();
+        shape.put("cpus", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        shape.put("database", JDBC_URL.isBlank() ? "h2" : JDBC_URL.split(":")[1]);
+        shape.put("users", String.valueOf(USERS));
+        shape.put("pets-per-user", String.valueOf(PETS_PER_USER));
+        shape.put("interactions-per-pet", String.valueOf(INTERACTIONS_PER_PET));
+        shape.put("clients", String.valueOf(CLIENTS));
+        shape.put("requests-per-client", String.valueOf(REQUESTS_PER_CLIENT));
+        return shape;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Latencias (ns) y errores de un endpoint, compartidos por todos los clientes
+     */
+    private static final class Samples {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        synchronized void add(long latency, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
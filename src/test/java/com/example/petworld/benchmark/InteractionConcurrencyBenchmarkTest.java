@@ -0,0 +1,182 @@
+package com.example.petworld.benchmark;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.PetInteractionStats;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.service.PetService;
+import com.example.petworld.service.PetService.InteractionLocking;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrency test for interactWithPet: fires thousands of parallel interactions over a few
+ * pets with each locking strategy, checks that no update is lost and reports the throughput.
+ * The measurements only run in the load profile (mvn -Ploadtest test); the default suite keeps
+ * a short lost-update check per strategy
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false") // El log de cada sentencia dominaría la medición
+@ActiveProfiles("test")
+public class InteractionConcurrencyBenchmarkTest {
+
+    private static final int PETS = 16;
+    private static final int THREADS = 8;
+    private static final int INTERACTIONS = 2000;
+    private static final int WARMUP_INTERACTIONS = 320;
+    private static final int CHECK_INTERACTIONS = 160;
+    // PetService.getCurrentUserId todavía devuelve un usuario fijo
+    private static final long OWNER_ID = 1L;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private PetInteractionStatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> petIds;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "concurrencyOwner", "concurrency@test.com");
+        User owner = userRepository.findById(OWNER_ID).orElseThrow();
+
+        petIds = new ArrayList<>();
+        for (int i = 0; i < PETS; i++) {
+            Pet pet = new Pet();
+            pet.setName("ConcurrentPet" + i);
+            pet.setType("Benchmark");
+            pet.setCreatedAt(LocalDateTime.now());
+            pet.setLastInteraction(LocalDateTime.now());
+            pet.setOwner(owner);
+            petIds.add(petRepository.save(pet).getId());
+        }
+    }
+
+    @AfterEach
+    public void cleanup() {
+        setLocking(InteractionLocking.OPTIMISTIC);
+        statsRepository.deleteAllInBatch();
+        interactionRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void optimisticLockingLosesNoUpdates() throws Exception {
+        setLocking(InteractionLocking.OPTIMISTIC);
+        fireInteractions(CHECK_INTERACTIONS);
+        assertNoLostUpdates(CHECK_INTERACTIONS);
+    }
+
+    @Test
+    public void pessimisticLockingLosesNoUpdates() throws Exception {
+        setLocking(InteractionLocking.PESSIMISTIC);
+        fireInteractions(CHECK_INTERACTIONS);
+        assertNoLostUpdates(CHECK_INTERACTIONS);
+    }
+
+    @Test
+    @Tag("load")
+    public void benchmarkOptimisticLocking() throws Exception {
+        runConcurrentInteractions(InteractionLocking.OPTIMISTIC);
+    }
+
+    @Test
+    @Tag("load")
+    public void benchmarkPessimisticLocking() throws Exception {
+        runConcurrentInteractions(InteractionLocking.PESSIMISTIC);
+    }
+
+    private void runConcurrentInteractions(InteractionLocking locking) throws Exception {
+        setLocking(locking);
+
+        // Ronda de calentamiento para que el JIT y el pool de conexiones no distorsionen la medición
+        fireInteractions(WARMUP_INTERACTIONS);
+        long elapsedNanos = fireInteractions(INTERACTIONS);
+
+        double perSecond = INTERACTIONS / (elapsedNanos / 1_000_000_000.0);
+        log.info("{} locking: {} interactions on {} pets with {} threads in {} ms ({} interactions/sec)",
+                locking, INTERACTIONS, PETS, THREADS, elapsedNanos / 1_000_000, Math.round(perSecond));
+
+        assertNoLostUpdates(WARMUP_INTERACTIONS + INTERACTIONS);
+    }
+
+    /**
+     * Ninguna actualización perdida: cada interacción incrementó una vez la versión de su
+     * mascota, quedó registrada y se sumó a los contadores
+     */
+    private void assertNoLostUpdates(long total) {
+        long perPet = total / PETS;
+        assertEquals(total, interactionRepository.count());
+        for (Long petId : petIds) {
+            Pet pet = petRepository.findById(petId).orElseThrow();
+            assertEquals(perPet, pet.getVersion(), "Lost updates on pet " + petId);
+            long counted = statsRepository.findByPetIdOrderByTypeAsc(petId).stream()
+                    .mapToLong(PetInteractionStats::getInteractionCount)
+                    .sum();
+            assertEquals(perPet, counted, "Lost counter increments on pet " + petId);
+        }
+    }
+
+    private long fireInteractions(int count) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>(count);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < count; i++) {
+                Long petId = petIds.get(i % PETS);
+                String type = i % 2 == 0 ? "FEED" : "PLAY";
+                futures.add(executor.submit(() -> petService.interactWithPet(petId, type)));
+            }
+            // Cualquier interacción que agotara sus reintentos falla aquí
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void setLocking(InteractionLocking locking) {
+        PetService target = AopTestUtils.getTargetObject(petService);
+        ReflectionTestUtils.setField(target, "interactionLocking", locking);
+    }
+}
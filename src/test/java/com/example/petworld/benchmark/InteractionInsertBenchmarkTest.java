@@ -0,0 +1,141 @@
+package com.example.petworld.benchmark;
+
+import com.example.petworld.domain.Interaction;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark for the highest-volume write: inserting Interaction rows.
+ * Reports inserts/sec and checks that Hibernate groups the inserts in JDBC batches
+ * instead of preparing one statement per row. The measurement only runs in the load profile
+ * (mvn -Ploadtest test); the default suite keeps the quick batching check
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false") // El log de cada sentencia dominaría la medición
+@ActiveProfiles("test")
+public class InteractionInsertBenchmarkTest {
+
+    private static final int ROWS = 5000;
+    private static final int ROUNDS = 3;
+    private static final int CHECK_ROWS = 500;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Pet pet;
+
+    @BeforeEach
+    public void setup() {
+        User owner = new User();
+        owner.setUsername("benchmarkOwner");
+        owner.setEmail("benchmark@test.com");
+        userRepository.save(owner);
+
+        pet = new Pet();
+        pet.setName("BenchmarkPet");
+        pet.setType("Benchmark");
+        pet.setCreatedAt(LocalDateTime.now());
+        pet.setLastInteraction(LocalDateTime.now());
+        pet.setOwner(owner);
+        petRepository.save(pet);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        interactionRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testInteractionInsertsAreBatched() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        insertInteractions(CHECK_ROWS);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(CHECK_ROWS, interactionRepository.count());
+        // Con lotes JDBC se prepara una sentencia por lote, no una por fila
+        assertTrue(statements < CHECK_ROWS / 10,
+                "Expected batched inserts but " + statements + " statements were prepared for " + CHECK_ROWS + " rows");
+    }
+
+    @Test
+    @Tag("load")
+    public void benchmarkInteractionInserts() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Ronda de calentamiento para que el JIT y el pool de conexiones no distorsionen la medición
+        insertInteractions(ROWS);
+
+        long bestNanos = Long.MAX_VALUE;
+        long statements = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            statistics.clear();
+            long start = System.nanoTime();
+            insertInteractions(ROWS);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            statements = statistics.getPrepareStatementCount();
+        }
+
+        double insertsPerSecond = ROWS / (bestNanos / 1_000_000_000.0);
+        log.info("Interaction inserts: {} rows in {} ms ({} inserts/sec, {} prepared statements)",
+                ROWS, bestNanos / 1_000_000, Math.round(insertsPerSecond), statements);
+
+        // Con lotes JDBC se prepara una sentencia por lote, no una por fila
+        assertTrue(statements < ROWS / 10,
+                "Expected batched inserts but " + statements + " statements were prepared for " + ROWS + " rows");
+    }
+
+    private void insertInteractions(int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Interaction> interactions = new ArrayList<>(count);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < count; i++) {
+                Interaction interaction = new Interaction();
+                interaction.setType("FEED");
+                interaction.setValue(30);
+                interaction.setDescription("Alimentaste a " + pet.getName());
+                interaction.setTimestamp(now);
+                interaction.setPet(pet);
+                interactions.add(interaction);
+            }
+            interactionRepository.saveAll(interactions);
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.petworld.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded dataset for the HTTP load test: users that can log in, pets per user and an
+ * interaction history per pet. Rows are written with JDBC batches and explicit IDs, and the
+ * sequences are moved past them so the application keeps generating free IDs. The same
+ * seed always produces the same dataset
+ */
+final class LoadTestDataset {
+
+    static final String PASSWORD = "loadtest-password";
+
+    private static final String[] PET_TYPES = {"Dog", "Cat", "Dragon", "Pokemon"};
+    private static final String[] INTERACTION_TYPES = {"FEED", "PLAY", "HEAL"};
+    private static final int BATCH_SIZE = 1000;
+
+    private final int users;
+    private final int petsPerUser;
+    private final int interactionsPerPet;
+
+    LoadTestDataset(int users, int petsPerUser, int interactionsPerPet) {
+        this.users = users;
+        this.petsPerUser = petsPerUser;
+        this.interactionsPerPet = interactionsPerPet;
+    }
+
+    static String email(long userId) {
+        return "loadtest-user-" + userId + "@petworld.com";
+    }
+
+    long userCount() {
+        return users;
+    }
+
+    long petCount() {
+        return (long) users * petsPerUser;
+    }
+
+    /**
+     * IDs de las mascotas del usuario: las del usuario 1 son las únicas que se pueden
+     * modificar mientras PetService use un usuario fijo
+     */
+    long firstPetId(long userId) {
+        return (userId - 1) * petsPerUser + 1;
+    }
+
+    int petsPerUser() {
+        return petsPerUser;
+    }
+
+    /**
+     * Borra los datos que hubiera y escribe el conjunto completo
+     */
+    void seed(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (String table : List.of("pet_interaction_stats", "interactions", "ai_generations", "pets", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+
+        // BCrypt es caro a propósito: todos los usuarios comparten la misma contraseña codificada
+        String password = passwordEncoder.encode(PASSWORD);
+        List<Object[]> userRows = new ArrayList<>();
+        for (long id = 1; id <= users; id++) {
+            userRows.add(new Object[]{id, "loadtest-user-" + id, email(id), password});
+        }
+        batch(jdbcTemplate, "INSERT INTO users (id, username, email, password) VALUES (?, ?, ?, ?)", userRows);
+
+        List<Object[]> petRows = new ArrayList<>();
+        for (long petId = 1; petId <= petCount(); petId++) {
+            long ownerId = (petId - 1) / petsPerUser + 1;
+            Timestamp snapshot = Timestamp.valueOf(now.minusMinutes(random.nextInt(24 * 60)));
+            petRows.add(new Object[]{petId, "Pet " + petId, "A pet seeded for the load test",
+                    PET_TYPES[random.nextInt(PET_TYPES.length)], "http://example.com/pets/" + petId + ".jpg",
+                    20 + random.nextInt(81), 20 + random.nextInt(81), 20 + random.nextInt(81), 20 + random.nextInt(81),
+                    snapshot, snapshot, snapshot, 0L, ownerId});
+        }
+        batch(jdbcTemplate, "INSERT INTO pets (id, name, description, type, image_url, hunger, happiness, health, "
+                + "energy, last_interaction, states_updated_at, created_at, version, owner_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", petRows);
+
+        List<Object[]> interactionRows = new ArrayList<>();
+        long interactionId = 1;
+        for (long petId = 1; petId <= petCount(); petId++) {
+            for (int i = 0; i < interactionsPerPet; i++) {
+                String type = INTERACTION_TYPES[random.nextInt(INTERACTION_TYPES.length)];
+                interactionRows.add(new Object[]{interactionId++, type, 10 + random.nextInt(21),
+                        "Seeded " + type, Timestamp.valueOf(now.minusMinutes(1 + random.nextInt(30 * 24 * 60))), petId});
+                if (interactionRows.size() == BATCH_SIZE) {
+                    batch(jdbcTemplate, "INSERT INTO interactions (id, type, value, description, timestamp, pet_id) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)", interactionRows);
+                    interactionRows.clear();
+                }
+            }
+        }
+        batch(jdbcTemplate, "INSERT INTO interactions (id, type, value, description, timestamp, pet_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", interactionRows);
+
+        // Los contadores por mascota se derivan del historial, como en la migración V5
+        jdbcTemplate.update("INSERT INTO pet_interaction_stats (pet_id, type, interaction_count, value_sum, last_timestamp) "
+                + "SELECT pet_id, type, COUNT(*), COALESCE(SUM(value), 0), MAX(timestamp) FROM interactions "
+                + "GROUP BY pet_id, type");
+
+        restartSequence(jdbcTemplate, "users_seq", users + 1L);
+        restartSequence(jdbcTemplate, "pets_seq", petCount() + 1);
+        restartSequence(jdbcTemplate, "interactions_seq", interactionId);
+    }
+
+    private static void batch(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private static void restartSequence(JdbcTemplate jdbcTemplate, String sequence, long next) {
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.petworld.benchmark;
+
+import com.example.petworld.PetWorldApplication;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.security.JwtTokenProvider;
+import com.example.petworld.security.UserDetailsImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark of the pet endpoints with platform-thread Tomcat workers versus virtual threads
+ * (profile "virtual-threads"). Each mode runs in its own application context and database,
+ * serving many concurrent clients; reports throughput and p50/p99 latency per mode.
+ * Runs only in the load profile (mvn -Ploadtest test); the virtual-thread mode also needs
+ * Java 21+ (mvn -Ploadtest,java21 test)
+ */
+@Slf4j
+@Tag("load")
+public class VirtualThreadsBenchmarkTest {
+
+    private static final int PETS = 50;
+    private static final int CLIENTS = 64;
+    private static final int REQUESTS_PER_CLIENT = 30;
+
+    private List<Long> petIds;
+
+    @Test
+    public void benchmarkPetEndpoints() throws Exception {
+        List<String> results = new ArrayList<>();
+        results.add(run("platform", "test"));
+        if (Runtime.version().feature() >= 21) {
+            results.add(run("virtual", "test", "virtual-threads"));
+        } else {
+            log.info("Virtual-thread mode skipped: requires Java 21 (running on {})", Runtime.version());
+        }
+        results.forEach(result -> log.info("Pet endpoints benchmark: {}", result));
+    }
+
+    private String run(String mode, String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetWorldApplication.class)
+                .profiles(profiles)
+                .run("--server.port=0",
+                        "--spring.jpa.show-sql=false",
+                        // Base propia: el esquema de cada modo se crea y se borra con su contexto
+                        "--spring.datasource.url=jdbc:h2:mem:vt-benchmark-" + mode
+                                + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;NON_KEYWORDS=VALUE")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String token = seed(context);
+            HttpClient client = HttpClient.newHttpClient();
+
+            // Ronda de calentamiento para que el JIT y los pools no distorsionen la medición
+            load(client, port, token);
+            long start = System.nanoTime();
+            long[] latencies = load(client, port, token);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            Arrays.sort(latencies);
+            return String.format("%s threads: %d requests from %d clients, %d req/sec, p50 %.1f ms, p99 %.1f ms",
+                    mode, latencies.length, CLIENTS, Math.round(latencies.length / seconds),
+                    percentile(latencies, 0.50) / 1_000_000.0, percentile(latencies, 0.99) / 1_000_000.0);
+        }
+    }
+
+    private String seed(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        PetRepository petRepository = context.getBean(PetRepository.class);
+
+        User owner = new User();
+        owner.setUsername("benchmarkOwner");
+        owner.setEmail("vt-benchmark@test.com");
+        owner = userRepository.save(owner);
+
+        List<Pet> pets = new ArrayList<>();
+        for (int i = 0; i < PETS; i++) {
+            Pet pet = new Pet();
+            pet.setName("BenchmarkPet" + i);
+            pet.setType(i % 2 == 0 ? "Dog" : "Cat");
+            pet.setCreatedAt(LocalDateTime.now());
+            pet.setLastInteraction(LocalDateTime.now());
+            pet.setOwner(owner);
+            pets.add(pet);
+        }
+        petIds = petRepository.saveAll(pets).stream().map(Pet::getId).toList();
+
+        UserDetailsImpl principal = UserDetailsImpl.build(owner);
+        return context.getBean(JwtTokenProvider.class).generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    /**
+     * Cada cliente alterna entre el listado y el detalle de una mascota
+     * @return La latencia de cada petición en nanosegundos
+     */
+    private long[] load(HttpClient client, int port, String token) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                int clientId = c;
+                futures.add(clients.submit(() -> {
+                    long[] latencies = new long[REQUESTS_PER_CLIENT];
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        String path = i % 2 == 0 ? "/api/pets" : "/api/pets/" + petIds.get((clientId + i) % PETS);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                                .header("Authorization", "Bearer " + token)
+                                .GET().build();
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[i] = System.nanoTime() - start;
+                        assertEquals(200, response.statusCode(), "GET " + path);
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get()) {
+                    all.add(latency);
+                }
+            }
+            return all.stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
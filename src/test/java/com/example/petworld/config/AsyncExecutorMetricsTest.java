@@ -0,0 +1,102 @@
+package com.example.petworld.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the taskExecutor rejection policies: a single busy thread and a one-slot
+ * queue make the third task the rejected one
+ */
+public class AsyncExecutorMetricsTest {
+
+    private final AsyncExecutorMetrics metrics = new AsyncExecutorMetrics("test");
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    public void cleanup() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCallerRunsExecutesRejectedTaskOnSubmitter() throws Exception {
+        saturate(AsyncConfig.RejectionPolicy.CALLER_RUNS);
+
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        Future<?> rejected = executor.submit(() -> ranOn.set(Thread.currentThread()));
+
+        // Quien envió la tarea la ejecutó antes de volver de submit
+        assertTrue(rejected.isDone());
+        assertSame(Thread.currentThread(), ranOn.get());
+        assertEquals(1, metrics.getRejected());
+        assertEquals(1, metrics.getCallerRuns());
+        assertEquals(0, metrics.getDropped());
+    }
+
+    @Test
+    public void testDropCancelsRejectedTask() throws Exception {
+        saturate(AsyncConfig.RejectionPolicy.DROP);
+
+        Future<?> rejected = executor.submit(() -> fail("A dropped task must not run"));
+
+        // El Future termina cancelado en lugar de quedar colgado
+        assertTrue(rejected.isCancelled());
+        assertThrows(CancellationException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertEquals(1, metrics.getRejected());
+        assertEquals(1, metrics.getDropped());
+        assertEquals(0, metrics.getCallerRuns());
+
+        // Solo corren las dos tareas aceptadas
+        release.countDown();
+        assertTrue(waitForCompleted(2));
+    }
+
+    /**
+     * Ocupa el único hilo con una tarea bloqueada y llena la cola con otra
+     */
+    private void saturate(AsyncConfig.RejectionPolicy policy) throws InterruptedException {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setTaskDecorator(metrics::decorate);
+        executor.setRejectedExecutionHandler(metrics.rejectionHandler(policy));
+        executor.initialize();
+        metrics.monitor(executor);
+
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(() -> await(release));
+        assertEquals(1, metrics.getQueueSize());
+    }
+
+    private boolean waitForCompleted(long tasks) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metrics.getCompleted() < tasks && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return metrics.getCompleted() == tasks;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the Flyway migrations: the schema is built by Flyway on its own H2 database
+ * in PostgreSQL mode (with the H2 equivalents of db/vendor/postgresql) and Hibernate validates the
+ * entities against it instead of creating it
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:flywaydb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class FlywaySchemaIntegrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Test
+    public void testAllMigrationsAreAppliedAndEntitiesValidate() {
+        MigrationInfo[] applied = flyway.info().applied();
+        MigrationInfo[] all = flyway.info().all();
+
+        assertTrue(applied.length > 0);
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals(all[all.length - 1].getVersion(), flyway.info().current().getVersion());
+        assertTrue(Arrays.stream(applied).allMatch(m -> m.getState().isApplied() && !m.getState().isFailed()));
+    }
+
+    @Test
+    public void testEntitiesRoundTripThroughMigratedSchema() {
+        User owner = new User();
+        owner.setUsername("flywayOwner");
+        owner.setEmail("flyway@test.com");
+        owner = userRepository.save(owner);
+
+        LocalDateTime now = LocalDateTime.now();
+        Pet pet = new Pet();
+        pet.setName("Migrated");
+        pet.setType("Dog");
+        pet.setCreatedAt(now);
+        pet.setLastInteraction(now);
+        pet.setStatesUpdatedAt(now);
+        pet.setOwner(owner);
+        Long petId = petRepository.save(pet).getId();
+
+        Pet loaded = petRepository.findById(petId).orElseThrow();
+        assertEquals("Migrated", loaded.getName());
+        assertEquals(0L, loaded.getVersion());
+        assertEquals(owner.getId(), loaded.getOwner().getId());
+
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.PetWorldApplication;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.JobLeaseRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.service.JobLeaseService;
+import com.example.petworld.service.PetDecayJob;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for lease-based job coordination: a second application context (another
+ * "node") runs against the same in-memory database as the test context
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.pets.decay.enabled=true",
+        "app.pets.decay.interval-ms=3600000",
+        "app.pets.decay.chunk-size=5",
+        "app.pets.decay.threads=2",
+        "app.jobs.node-id=node-a",
+        "app.jobs.lease-ttl-ms=2000"
+})
+@ActiveProfiles("test")
+public class JobLeaseMultiNodeIntegrationTest {
+
+    private static ConfigurableApplicationContext nodeB;
+
+    @Autowired
+    private JobLeaseService leasesA;
+
+    @Autowired
+    private PetDecayJob decayA;
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    public void setup() {
+        if (nodeB == null) {
+            // Same properties and database, but the schema belongs to the test context
+            nodeB = new SpringApplicationBuilder(PetWorldApplication.class)
+                    .profiles("test")
+                    .run("--server.port=0",
+                            "--spring.jpa.hibernate.ddl-auto=none",
+                            "--spring.jpa.show-sql=false",
+                            "--app.pets.decay.enabled=true",
+                            "--app.pets.decay.interval-ms=3600000",
+                            "--app.pets.decay.chunk-size=5",
+                            "--app.pets.decay.threads=2",
+                            "--app.jobs.node-id=node-b",
+                            "--app.jobs.lease-ttl-ms=2000");
+        }
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                1L, "leaseOwner", "lease@test.com");
+        owner = userRepository.findById(1L).orElseThrow();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        jobLeaseRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @AfterAll
+    public static void stopNodeB() {
+        if (nodeB != null) {
+            nodeB.close();
+            nodeB = null;
+        }
+    }
+
+    @Test
+    public void testEachPartitionIsDecayedByOneNode() {
+        LocalDateTime snapshot = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS).minusMinutes(150);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(savePet("Shared" + i, snapshot).getId());
+        }
+        PetDecayJob decayB = nodeB.getBean(PetDecayJob.class);
+
+        CompletableFuture<Boolean> runA = CompletableFuture.supplyAsync(decayA::run);
+        CompletableFuture<Boolean> runB = CompletableFuture.supplyAsync(decayB::run);
+        assertTrue(runA.join());
+        assertTrue(runB.join());
+
+        // Every pet decayed exactly once (2 whole hours), whichever node claimed its partition
+        for (Pet pet : petRepository.findAllById(ids)) {
+            assertEquals(90, pet.getHunger());
+            assertEquals(snapshot.plusHours(2), pet.getStatesUpdatedAt());
+            assertEquals(0L, pet.getVersion());
+        }
+        assertEquals(40, decayA.getStats().getLastRunPetsDecayed() + decayB.getStats().getLastRunPetsDecayed());
+    }
+
+    @Test
+    public void testLeaseIsRenewedWhileHeldAndReleasedOnCompletion() throws InterruptedException {
+        JobLeaseService leasesB = nodeB.getBean(JobLeaseService.class);
+
+        assertTrue(leasesA.tryAcquire("cleanup"));
+        assertFalse(leasesB.tryAcquire("cleanup"));
+
+        // Well past the TTL: node A keeps renewing, so node B still cannot take it
+        Thread.sleep(4500);
+        assertFalse(leasesB.tryAcquire("cleanup"));
+        assertEquals("node-a", jobLeaseRepository.findById("cleanup").orElseThrow().getOwner());
+
+        leasesA.release("cleanup");
+        assertTrue(leasesB.tryAcquire("cleanup"));
+        leasesB.release("cleanup");
+    }
+
+    @Test
+    public void testExpiredLeaseOfDeadNodeIsTakenOver() throws InterruptedException {
+        JobLeaseService leasesB = nodeB.getBean(JobLeaseService.class);
+
+        // A node that takes the lease and then dies: it never renews nor releases it
+        JobLeaseService deadNode = new JobLeaseService(jobLeaseRepository, transactionManager);
+        ReflectionTestUtils.setField(deadNode, "nodeId", "node-dead");
+        ReflectionTestUtils.setField(deadNode, "leaseTtlMs", 2000L);
+        assertTrue(deadNode.tryAcquire("rollup"));
+        assertFalse(leasesB.tryAcquire("rollup"));
+
+        Thread.sleep(2500);
+
+        assertTrue(leasesB.tryAcquire("rollup"));
+        assertFalse(leasesA.tryAcquire("rollup"));
+        assertEquals("node-b", jobLeaseRepository.findById("rollup").orElseThrow().getOwner());
+        leasesB.release("rollup");
+    }
+
+    private Pet savePet(String name, LocalDateTime snapshot) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setType("Lease");
+        pet.setCreatedAt(snapshot);
+        pet.setLastInteraction(snapshot);
+        pet.setStatesUpdatedAt(snapshot);
+        pet.setOwner(owner);
+        return petRepository.save(pet);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.security.JwtTokenProvider;
+import com.example.petworld.security.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for the Prometheus endpoint: it is reachable without a token and exposes
+ * the HTTP, service, repository, interaction, JWT, cache, Hikari, outbox, event bus, SSE, lease
+ * and per-request SQL metrics
+ * after some traffic
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+public class MetricsIntegrationTest {
+
+    // PetService.getCurrentUserId todavía devuelve un usuario fijo
+    private static final long OWNER_ID = 1L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private PetInteractionStatsRepository statsRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Pet pet;
+    private String authToken;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "metricsOwner", "metrics@test.com");
+        User owner = userRepository.findById(OWNER_ID).orElseThrow();
+        UserDetailsImpl principal = UserDetailsImpl.build(owner);
+        authToken = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        pet = new Pet();
+        pet.setName("Measured");
+        pet.setType("Dog");
+        pet.setCreatedAt(LocalDateTime.now());
+        pet.setLastInteraction(LocalDateTime.now());
+        pet.setStatesUpdatedAt(LocalDateTime.now());
+        pet.setOwner(owner);
+        pet = petRepository.save(pet);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        statsRepository.deleteAllInBatch();
+        interactionRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testPrometheusEndpointExposesApplicationMetrics() throws Exception {
+        mockMvc.perform(get("/api/pets/" + pet.getId()).header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/pets/" + pet.getId() + "/feed").header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_count{application=\"petWorld-test\",error=\"none\",exception=\"none\",method=\"POST\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/pets/{id}/feed\"}")))
+                .andExpect(content().string(containsString("petworld_service_seconds_bucket{application=\"petWorld-test\",class=\"com.example.petworld.service.PetService\",exception=\"none\",method=\"interactWithPet\"")))
+                .andExpect(content().string(containsString("petworld_pets_interactions_total{application=\"petWorld-test\",mode=\"single\",outcome=\"success\",type=\"FEED\"} 1.0")))
+                .andExpect(content().string(containsString("petworld_repository_invocations_seconds_count{application=\"petWorld-test\",exception=\"None\",method=\"save\",repository=\"PetRepository\",state=\"SUCCESS\"}")))
+                .andExpect(content().string(containsString("petworld_jwt_verification_seconds_count")))
+                .andExpect(content().string(containsString("cache_gets_total{application=\"petWorld-test\",cache=\"jwt.verified-tokens\"")))
+                .andExpect(content().string(containsString("cache_gets_total{application=\"petWorld-test\",cache=\"pets.snapshots\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("petworld_outbox_pending{application=\"petWorld-test\"}")))
+                .andExpect(content().string(containsString("petworld_events_bus_published_total{application=\"petWorld-test\"}")))
+                .andExpect(content().string(containsString("petworld_events_bus_listener_processing_seconds_count{application=\"petWorld-test\",listener=")))
+                .andExpect(content().string(containsString("petworld_pets_stream_subscribers{application=\"petWorld-test\"}")))
+                .andExpect(content().string(containsString("petworld_pets_stream_dropped_total{application=\"petWorld-test\"}")))
+                .andExpect(content().string(containsString("petworld_jobs_leases_held{application=\"petWorld-test\"}")))
+                .andExpect(content().string(containsString("petworld_http_requests_queries_bucket{application=\"petWorld-test\",method=\"POST\",uri=\"/api/pets/{id}/feed\",le=\"5.0\"}")));
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.config.AsyncConfig;
+import com.example.petworld.config.AsyncExecutorMetrics;
+import com.example.petworld.domain.OutboxEvent;
+import com.example.petworld.dto.Pet.PetCreateDTO;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.events.PetCreatedEvent;
+import com.example.petworld.infrastructure.ConsumedEventRepository;
+import com.example.petworld.infrastructure.OutboxEventRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.service.OutboxRelay;
+import com.example.petworld.service.OutboxService;
+import com.example.petworld.service.PetService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the transactional outbox: pet events are stored with the pet and
+ * delivered by OutboxRelay after commit, off the request thread, at least once. An event is
+ * marked as delivered only after its listeners finished on the taskExecutor, and listeners
+ * with side effects skip redeliveries
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.outbox.batch-size=20",
+        "app.outbox.retry-backoff-ms=100",
+        "app.outbox.max-attempts=3",
+        // Los listeners no simulan trabajo: aquí solo importa la entrega
+        "app.listeners.async-processing-ms=0",
+        // Executor mínimo para saturarlo con pocas tareas
+        "app.async.core-pool-size=2",
+        "app.async.max-pool-size=2",
+        "app.async.queue-capacity=2",
+        "app.async.rejection-policy=CALLER_RUNS"
+})
+@ActiveProfiles("test")
+@Import(OutboxRelayIntegrationTest.RecordingListenerConfig.class)
+public class OutboxRelayIntegrationTest {
+
+    // PetService.getCurrentUserId todavía devuelve un usuario fijo
+    private static final long OWNER_ID = 1L;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ConsumedEventRepository consumedEventRepository;
+
+    @Autowired
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    @Autowired
+    private AsyncExecutorMetrics asyncExecutorMetrics;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "outboxOwner", "outbox@test.com");
+        listener.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        consumedEventRepository.deleteAllInBatch();
+        outboxEventRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testPetCreatedEventIsDeliveredAfterCommitOffTheRequestThread() throws InterruptedException {
+        PetResponseDTO pet = petService.createPet(petCreateDTO("Outboxy", "Dog"), OWNER_ID);
+        String key = "pet-created:" + pet.getId();
+
+        awaitTrue(() -> outboxEventRepository.countByProcessedAtIsNull() == 0 && listener.deliveries(key) == 1);
+
+        PetCreatedEvent event = listener.events.get(key);
+        assertEquals(pet.getId(), event.getPetId());
+        assertEquals("Outboxy", event.getPetName());
+        assertEquals("Dog", event.getPetType());
+        assertTrue(listener.threads.get(key).startsWith("PetWorld-Async-"),
+                "Delivered on " + listener.threads.get(key));
+
+        OutboxEvent stored = outboxEventRepository.findAll().stream()
+                .filter(e -> key.equals(e.getIdempotencyKey())).findFirst().orElseThrow();
+        assertEquals(OutboxRelay.PET_CREATED, stored.getEventType());
+        assertEquals(pet.getId(), stored.getAggregateId());
+        assertEquals(1, stored.getAttempts());
+        assertNotNull(stored.getProcessedAt());
+    }
+
+    @Test
+    public void testEventIsMarkedDeliveredOnlyAfterListenersFinish() throws InterruptedException {
+        listener.gate = new CountDownLatch(1);
+        PetResponseDTO pet = petService.createPet(petCreateDTO("Slowpoke", "Cat"), OWNER_ID);
+        String key = "pet-created:" + pet.getId();
+
+        // El listener está en curso en el executor: el evento sigue pendiente
+        assertTrue(listener.entered.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, outboxEventRepository.countByProcessedAtIsNull());
+
+        listener.gate.countDown();
+        awaitTrue(() -> outboxEventRepository.countByProcessedAtIsNull() == 0);
+        assertEquals(1, listener.deliveries(key));
+    }
+
+    @Test
+    public void testRedeliveredEventIsSkippedByListenersWithSideEffects() throws InterruptedException {
+        PetResponseDTO pet = petService.createPet(petCreateDTO("Echo", "Dog"), OWNER_ID);
+        String key = "pet-created:" + pet.getId();
+        awaitTrue(() -> outboxEventRepository.countByProcessedAtIsNull() == 0);
+        // Notificación y alta de perro registradas una vez cada una
+        assertEquals(2, consumedEventRepository.countByIdempotencyKey(key));
+        long duplicatesBefore = outboxRelay.getStats().getDuplicatesSkipped();
+
+        // Simula una caída después de los listeners y antes de marcar el evento: vuelve a entregarse
+        jdbcTemplate.update("UPDATE outbox_events SET processed_at = NULL, available_at = ? WHERE idempotency_key = ?",
+                LocalDateTime.now().minusSeconds(1), key);
+        assertEquals(1, outboxRelay.drain());
+
+        assertEquals(2, listener.deliveries(key)); // El listener de prueba no descarta repetidas
+        assertEquals(duplicatesBefore + 2, outboxRelay.getStats().getDuplicatesSkipped());
+        assertEquals(2, consumedEventRepository.countByIdempotencyKey(key));
+        assertEquals(2, outboxEventRepository.findAll().get(0).getAttempts());
+    }
+
+    @Test
+    public void testDeliveryRejectedByExecutorIsRetried() throws InterruptedException {
+        assertRejectedDeliveryIsRetried(AsyncConfig.RejectionPolicy.ABORT, "Rejected");
+    }
+
+    @Test
+    public void testDeliveryDroppedByExecutorIsRetried() throws InterruptedException {
+        assertRejectedDeliveryIsRetried(AsyncConfig.RejectionPolicy.DROP, "Dropped");
+    }
+
+    private void assertRejectedDeliveryIsRetried(AsyncConfig.RejectionPolicy policy, String name)
+            throws InterruptedException {
+        ThreadPoolExecutor pool = taskExecutor.getThreadPoolExecutor();
+        RejectedExecutionHandler configured = pool.getRejectedExecutionHandler();
+        CountDownLatch release = new CountDownLatch(1);
+        String key;
+        try {
+            // Hilos y cola ocupados: la entrega del relay no entra en el executor
+            awaitTrue(() -> pool.getActiveCount() == 0 && pool.getQueue().isEmpty());
+            CountDownLatch running = new CountDownLatch(2);
+            for (int i = 0; i < 4; i++) {
+                // Los dos primeros ocupan los hilos; los otros dos, la cola
+                if (i == 2) {
+                    assertTrue(running.await(10, TimeUnit.SECONDS));
+                }
+                taskExecutor.execute(() -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertEquals(0, pool.getQueue().remainingCapacity());
+            pool.setRejectedExecutionHandler(asyncExecutorMetrics.rejectionHandler(policy));
+            long rejectedBefore = asyncExecutorMetrics.getRejected();
+
+            PetResponseDTO pet = petService.createPet(petCreateDTO(name, "Dog"), OWNER_ID);
+            key = "pet-created:" + pet.getId();
+
+            // El evento no se marca como entregado: queda pendiente con el error registrado
+            awaitTrue(() -> outboxEventRepository.findAll().stream().anyMatch(e -> e.getLastError() != null));
+            assertTrue(asyncExecutorMetrics.getRejected() > rejectedBefore);
+            assertEquals(0, listener.deliveries(key));
+            assertEquals(1, outboxEventRepository.countByProcessedAtIsNull());
+        } finally {
+            pool.setRejectedExecutionHandler(configured);
+            release.countDown();
+        }
+
+        // Con el executor libre, el reintento lo entrega
+        Thread.sleep(200);
+        assertEquals(1, outboxRelay.drain());
+        assertEquals(1, listener.deliveries(key));
+        OutboxEvent stored = outboxEventRepository.findAll().get(0);
+        assertEquals(2, stored.getAttempts());
+        assertNotNull(stored.getProcessedAt());
+    }
+
+    @Test
+    public void testFullBatchSlowerThanTheClaimIsDeliveredOnce() throws InterruptedException {
+        // Default batch size with listeners that, on two threads, need several times the claim
+        OutboxRelay relay = AopTestUtils.getTargetObject(outboxRelay);
+        int events = 100;
+        long extensionsBefore = outboxRelay.getStats().getClaimExtensions();
+        long redeliveriesBefore = outboxRelay.getStats().getRedeliveries();
+        ReflectionTestUtils.setField(relay, "batchSize", events);
+        ReflectionTestUtils.setField(relay, "claimTimeoutMs", 400L);
+        listener.delayMs = 20; // 100 * 20 ms / 2 hilos = 1 s
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.executeWithoutResult(status -> {
+                for (long id = 1; id <= events; id++) {
+                    outboxService.enqueue(OutboxRelay.PET_CREATED, id,
+                            Map.of("petId", id, "petName", "Batch" + id, "petType", "Cat"), "pet-created:" + id);
+                }
+            });
+            awaitTrue(() -> outboxEventRepository.countByProcessedAtIsNull() == 0);
+        } finally {
+            ReflectionTestUtils.setField(relay, "batchSize", 20);
+            ReflectionTestUtils.setField(relay, "claimTimeoutMs", 60000L);
+        }
+
+        // The claim was extended while listeners progressed, so nothing was claimed twice
+        assertTrue(outboxRelay.getStats().getClaimExtensions() > extensionsBefore);
+        assertEquals(redeliveriesBefore, outboxRelay.getStats().getRedeliveries());
+        for (long id = 1; id <= events; id++) {
+            assertEquals(1, listener.deliveries("pet-created:" + id), "pet-created:" + id);
+        }
+        assertTrue(outboxEventRepository.findAll().stream().allMatch(e -> e.getAttempts() == 1));
+    }
+
+    @Test
+    public void testRolledBackCreationStoresNoEvent() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            petService.createPet(petCreateDTO("Ghost", "Cat"), OWNER_ID);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxEventRepository.count());
+        assertEquals(0, outboxRelay.drain());
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    public void testEnqueueOutsideTransactionIsRejected() {
+        assertThrows(RuntimeException.class, () ->
+                outboxService.enqueue(OutboxRelay.PET_CREATED, 1L, Map.of(), "pet-created:orphan"));
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    public void testEventWithSameIdempotencyKeyIsStoredOnce() throws InterruptedException {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < 2; i++) {
+            transaction.executeWithoutResult(status -> outboxService.enqueue(OutboxRelay.PET_CREATED, 7L,
+                    Map.of("petId", 7L, "petName", "Twice", "petType", "Dog"), "pet-created:7"));
+        }
+
+        // Lo entrega el relay despertado por el commit o este drenado, el que lo reclame primero
+        outboxRelay.drain();
+        awaitTrue(() -> outboxEventRepository.countByProcessedAtIsNull() == 0);
+        assertEquals(1, outboxEventRepository.count());
+        assertEquals(1, listener.deliveries("pet-created:7"));
+    }
+
+    @Test
+    public void testFailedDeliveryIsRetriedWithBackoff() throws InterruptedException {
+        listener.failuresLeft.set(1);
+        PetResponseDTO pet = petService.createPet(petCreateDTO("Flaky", "Dog"), OWNER_ID);
+        String key = "pet-created:" + pet.getId();
+
+        // El primer intento falla y el evento queda pendiente con el error registrado
+        awaitTrue(() -> listener.failuresLeft.get() == 0);
+        awaitTrue(() -> outboxEventRepository.findAll().stream().anyMatch(e -> e.getLastError() != null));
+        assertEquals(0, listener.deliveries(key));
+        long redeliveriesBefore = outboxRelay.getStats().getRedeliveries();
+
+        // Pasada la espera, el siguiente drenado lo entrega
+        Thread.sleep(200);
+        assertEquals(1, outboxRelay.drain());
+        assertEquals(1, listener.deliveries(key));
+        assertEquals(redeliveriesBefore + 1, outboxRelay.getStats().getRedeliveries());
+
+        OutboxEvent stored = outboxEventRepository.findAll().get(0);
+        assertEquals(2, stored.getAttempts());
+        assertNotNull(stored.getProcessedAt());
+        assertNull(stored.getLastError());
+    }
+
+    @Test
+    public void testEventIsAbandonedAfterMaxAttempts() throws InterruptedException {
+        listener.failuresLeft.set(Integer.MAX_VALUE);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> outboxService.enqueue(OutboxRelay.PET_CREATED, 9L,
+                Map.of("petId", 9L, "petName", "Doomed", "petType", "Cat"), "pet-created:9"));
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            Thread.sleep(450); // Más que la espera más larga (100, 200 ms)
+            outboxRelay.drain();
+        }
+
+        assertEquals(3, outboxEventRepository.findAll().get(0).getAttempts());
+        assertEquals(1, outboxRelay.getStats().getExhausted());
+        assertEquals(1, outboxRelay.getStats().getPending());
+        listener.failuresLeft.set(0);
+    }
+
+    @Test
+    public void testConcurrentRelaysDeliverEachEventOnce() throws InterruptedException {
+        int events = 300;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            for (long id = 1; id <= events; id++) {
+                outboxService.enqueue(OutboxRelay.PET_CREATED, id,
+                        Map.of("petId", id, "petName", "Crowd" + id, "petType", "Dog"), "pet-created:" + id);
+            }
+        });
+
+        // Además del relay despertado por el commit, tres drenados compiten por los mismos eventos
+        List<CompletableFuture<Integer>> relays = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            relays.add(CompletableFuture.supplyAsync(outboxRelay::drain));
+        }
+        relays.forEach(CompletableFuture::join);
+        // El relay despertado puede seguir entregando el último lote que reclamó
+        awaitTrue(() -> outboxEventRepository.countByProcessedAtIsNull() == 0);
+
+        assertEquals(events, listener.events.size());
+        for (long id = 1; id <= events; id++) {
+            assertEquals(1, listener.deliveries("pet-created:" + id), "pet-created:" + id);
+        }
+    }
+
+    private static PetCreateDTO petCreateDTO(String name, String type) {
+        PetCreateDTO dto = new PetCreateDTO();
+        dto.setName(name);
+        dto.setType(type);
+        dto.setDescription("Mascota del outbox");
+        dto.setImageUrl("outbox.png");
+        return dto;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10 s");
+            Thread.sleep(20);
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingListenerConfig {
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    /**
+     * Records every delivery by idempotency key; can be told to fail the next deliveries
+     */
+    static class RecordingListener {
+        final Map<String, PetCreatedEvent> events = new ConcurrentHashMap<>();
+        final Map<String, String> threads = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch gate; // Si no es null, cada entrega espera a que se abra
+        volatile long delayMs; // Duración simulada de cada entrega
+
+        @EventListener
+        public void onPetCreated(PetCreatedEvent event) throws InterruptedException {
+            CountDownLatch currentGate = gate;
+            if (currentGate != null) {
+                entered.countDown();
+                currentGate.await(10, TimeUnit.SECONDS);
+            }
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("Listener caído");
+            }
+            events.put(event.getIdempotencyKey(), event);
+            threads.put(event.getIdempotencyKey(), Thread.currentThread().getName());
+            counts.computeIfAbsent(event.getIdempotencyKey(), k -> new AtomicInteger()).incrementAndGet();
+        }
+
+        int deliveries(String key) {
+            AtomicInteger count = counts.get(key);
+            return count == null ? 0 : count.get();
+        }
+
+        void reset() {
+            events.clear();
+            threads.clear();
+            counts.clear();
+            failuresLeft.set(0);
+            gate = null;
+            delayMs = 0;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.application.PetHttpCaching;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.dto.Pet.PetCreateDTO;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.dto.User.UserCreateDTO;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.security.JwtTokenProvider;
+import com.example.petworld.security.UserDetailsImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for conditional GETs (ETag / If-None-Match) on the pet and user-pets
+ * resources. Not transactional: the snapshot cache is invalidated only after a real commit
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class PetConditionalGetIntegrationTest {
+
+    // PetService.getCurrentUserId todavía devuelve un usuario fijo
+    private static final long OWNER_ID = 1L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private PetInteractionStatsRepository statsRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private String authToken;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "etagOwner", "etag@test.com");
+        owner = userRepository.findById(OWNER_ID).orElseThrow();
+        UserDetailsImpl principal = UserDetailsImpl.build(owner);
+        authToken = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        statsRepository.deleteAllInBatch();
+        interactionRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testUnchangedPetAnswersNotModifiedAndAnInteractionChangesTheTag() throws Exception {
+        Pet pet = savePet("Tagged", 50);
+        String path = "/api/pets/" + pet.getId();
+
+        MvcResult first = mockMvc.perform(get(path).header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("private")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("public"))))
+                .andExpect(jsonPath("$.hunger", is(50)))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        assertFalse(eTag.startsWith("W/"), "ETag should be strong");
+
+        // Misma versión: 304 sin cuerpo
+        MvcResult notModified = mockMvc.perform(get(path)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andReturn();
+        assertEquals(0, notModified.getResponse().getContentLength());
+
+        mockMvc.perform(post(path + "/feed").header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(path)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.hunger", is(80)));
+    }
+
+    @Test
+    public void testTagFollowsTheDecayedStates() throws Exception {
+        // Foto de hace dos horas: la respuesta ya muestra el decaimiento
+        Pet pet = savePet("Decaying", 50, LocalDateTime.now().minusHours(2));
+
+        MvcResult result = mockMvc.perform(get("/api/pets/" + pet.getId())
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hunger", is(40)))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        PetResponseDTO body = objectMapper.readValue(result.getResponse().getContentAsString(), PetResponseDTO.class);
+
+        // El ETag corresponde a los estados enviados, no a los guardados
+        assertEquals(PetHttpCaching.eTag(List.of(body)), eTag);
+        body.setHunger(50);
+        assertNotEquals(PetHttpCaching.eTag(List.of(body)), eTag);
+    }
+
+    @Test
+    public void testUserPetsListTagChangesWhenAPetIsAdded() throws Exception {
+        savePet("First", 100);
+        String path = "/api/users/" + OWNER_ID + "/pets";
+
+        String eTag = mockMvc.perform(get(path).header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(path)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        PetCreateDTO second = new PetCreateDTO();
+        second.setName("Second");
+        second.setType("Cat");
+        second.setDescription("The second pet of the owner");
+        second.setImageUrl("http://example.com/second.jpg");
+        mockMvc.perform(post("/api/pets")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(second))
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(path)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void testFilteredListAndOwnerRenameChangeTheTags() throws Exception {
+        Pet pet = savePet("Listed", 100);
+        String listPath = "/api/pets?ownerId=" + OWNER_ID;
+        String petPath = "/api/pets/" + pet.getId();
+
+        String listTag = mockMvc.perform(get(listPath).header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String petTag = mockMvc.perform(get(petPath).header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(listPath)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, listTag))
+                .andExpect(status().isNotModified());
+
+        // El nombre del dueño va en la respuesta aunque la mascota no cambie
+        UserCreateDTO rename = new UserCreateDTO();
+        rename.setUsername("renamedOwner");
+        rename.setEmail(owner.getEmail());
+        mockMvc.perform(put("/api/users/" + OWNER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(rename))
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(listPath)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, listTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].owner.username", is("renamedOwner")));
+        mockMvc.perform(get(petPath)
+                        .header("Authorization", "Bearer " + authToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, petTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.owner.username", is("renamedOwner")));
+    }
+
+    private Pet savePet(String name, int hunger) {
+        return savePet(name, hunger, LocalDateTime.now());
+    }
+
+    private Pet savePet(String name, int hunger, LocalDateTime now) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setType("Dog");
+        pet.setDescription("A pet for the conditional GET tests");
+        pet.setHunger(hunger);
+        pet.setCreatedAt(now);
+        pet.setLastInteraction(now);
+        pet.setStatesUpdatedAt(now);
+        pet.setOwner(owner);
+        return petRepository.save(pet);
+    }
+}
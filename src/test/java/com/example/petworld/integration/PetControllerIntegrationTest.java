@@ -1,12 +1,23 @@
 package com.example.petworld.integration;
 
+import com.example.petworld.domain.Interaction;
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.PetInteractionStats;
 import com.example.petworld.domain.User;
 import com.example.petworld.dto.Pet.PetCreateDTO;
 import com.example.petworld.dto.User.JwtResponseDTO;
 import com.example.petworld.dto.User.UserAuthDTO;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
 import com.example.petworld.infrastructure.PetRepository;
 import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.service.CurrentUserProvider;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,14 +26,25 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
+import static com.example.petworld.integration.SqlQueryBudget.maxQueries;
+import static com.example.petworld.integration.SqlQueryBudget.noQueryMatching;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.doReturn;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -53,9 +75,25 @@ public class PetControllerIntegrationTest {
     @Autowired
     private PetRepository petRepository;
 
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private PetInteractionStatsRepository statsRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Keeps the fixed default user unless a test stubs it
+    @MockitoSpyBean
+    private CurrentUserProvider currentUserProvider;
+
     private User testUser;
     private PetCreateDTO petCreateDTO;
     private String authToken;
@@ -99,6 +137,7 @@ public class PetControllerIntegrationTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(authRequest)))
                 .andExpect(status().isOk())
+                .andExpect(maxQueries(2)) // Usuario por email y, como mucho, la escritura pendiente de la prueba
                 .andReturn();
                 
         String responseContent = result.getResponse().getContentAsString();
@@ -131,6 +170,7 @@ public class PetControllerIntegrationTest {
                         .header("Authorization", "Bearer " + authToken))
                 .andDo(print())
                 .andExpect(status().isCreated())
+                .andExpect(maxQueries(4)) // Dueño, secuencias de la mascota y del outbox, escrituras pendientes
                 .andExpect(jsonPath("$.data.name", is("TestPet")))
                 .andExpect(jsonPath("$.data.type", is("TestType")))
                 .andExpect(jsonPath("$.data.hunger", is(100)))
@@ -154,7 +194,279 @@ public class PetControllerIntegrationTest {
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(greaterThanOrEqualTo(1))))
-                .andExpect(jsonPath("$[0].name", is("TestPet")));
+                .andExpect(jsonPath("$[0].name", is("TestPet")))
+                .andExpect(maxQueries(3)); // El listado es una consulta; el resto, escrituras pendientes de la prueba
+    }
+
+    @Test
+    public void testGetPetsPage() throws Exception {
+        // Create three pets so that a page of two leaves one more behind
+        String petJson = objectMapper.writeValueAsString(petCreateDTO);
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/pets")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(petJson)
+                            .header("Authorization", "Bearer " + authToken))
+                    .andExpect(status().isCreated());
+        }
+
+        // First page: two pets and a cursor
+        String firstPage = mockMvc.perform(get("/api/pets")
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + authToken))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.hasMore", is(true)))
+                .andExpect(maxQueries(3))
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(firstPage).path("nextCursor").asText();
+
+        // Second page: the remaining pet and no cursor
+        mockMvc.perform(get("/api/pets")
+                        .param("after", cursor)
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.hasMore", is(false)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andExpect(maxQueries(1));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // El streaming se escribe en otro hilo y necesita ver datos confirmados
+    public void testStreamAllPets() throws Exception {
+        try {
+            String petJson = objectMapper.writeValueAsString(petCreateDTO);
+            for (int i = 0; i < 2; i++) {
+                mockMvc.perform(post("/api/pets")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(petJson)
+                                .header("Authorization", "Bearer " + authToken))
+                        .andExpect(status().isCreated());
+            }
+
+            MvcResult asyncResult = mockMvc.perform(get("/api/pets/stream")
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .header("Authorization", "Bearer " + authToken))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            String body = mockMvc.perform(asyncDispatch(asyncResult))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                    .andReturn().getResponse().getContentAsString();
+
+            // Una línea JSON por mascota
+            String[] lines = body.trim().split("\n");
+            assertEquals(2, lines.length);
+            assertEquals("TestPet", objectMapper.readTree(lines[0]).path("name").asText());
+        } finally {
+            // Sin transacción de prueba los datos quedan confirmados: limpiarlos para las demás pruebas
+            petRepository.deleteAll();
+            userRepository.deleteAll();
+        }
+    }
+
+    @Test
+    public void testGetInteractionHistoryPage() throws Exception {
+        // Create a pet and three interactions one hour apart
+        String responseJson = mockMvc.perform(post("/api/pets")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(petCreateDTO))
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long petId = objectMapper.readTree(responseJson).path("data").path("id").asLong();
+        Pet pet = petRepository.findById(petId).orElseThrow();
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (int i = 0; i < 3; i++) {
+            Interaction interaction = new Interaction();
+            interaction.setType("FEED");
+            interaction.setValue(30);
+            interaction.setDescription("Alimentaste a " + pet.getName());
+            interaction.setTimestamp(start.plusHours(i));
+            interaction.setPet(pet);
+            interactionRepository.save(interaction);
+        }
+
+        // First page: the two most recent interactions and the pet summary once
+        String firstPage = mockMvc.perform(get("/api/pets/" + petId + "/interactions")
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + authToken))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pet.name", is("TestPet")))
+                .andExpect(maxQueries(4)) // Incluye las interacciones pendientes de escribir
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].timestamp", startsWith("2024-01-01T12:00")))
+                .andExpect(jsonPath("$.items[0].pet").doesNotExist())
+                .andExpect(jsonPath("$.hasMore", is(true)))
+                .andReturn().getResponse().getContentAsString();
+
+        // Second page continues after the cursor
+        mockMvc.perform(get("/api/pets/" + petId + "/interactions")
+                        .param("limit", "2")
+                        .param("before", objectMapper.readTree(firstPage).path("nextCursor").asText())
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].timestamp", startsWith("2024-01-01T10:00")))
+                .andExpect(jsonPath("$.hasMore", is(false)))
+                .andExpect(maxQueries(2));
+
+        // Time range [from, to) keeps only the middle interaction
+        mockMvc.perform(get("/api/pets/" + petId + "/interactions")
+                        .param("limit", "10")
+                        .param("from", "2024-01-01T11:00:00")
+                        .param("to", "2024-01-01T12:00:00")
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].timestamp", startsWith("2024-01-01T11:00")));
+    }
+
+    @Test
+    public void testGetPetStatsFromRollup() throws Exception {
+        // Create a pet
+        String responseJson = mockMvc.perform(post("/api/pets")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(petCreateDTO))
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long petId = objectMapper.readTree(responseJson).path("data").path("id").asLong();
+
+        // No interactions yet: empty counters
+        mockMvc.perform(get("/api/pets/" + petId + "/stats")
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalInteractions", is(0)))
+                .andExpect(maxQueries(4))
+                .andExpect(jsonPath("$.byType", hasSize(0)));
+
+        // First FEED creates the row, the next ones are added with a single UPDATE
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        PetInteractionStats stats = new PetInteractionStats();
+        stats.setPetId(petId);
+        stats.setType("FEED");
+        stats.setInteractionCount(1L);
+        stats.setValueSum(30L);
+        stats.setLastTimestamp(start);
+        statsRepository.save(stats);
+        assertEquals(1, statsRepository.increment(petId, "FEED", 2, 60, start.plusHours(2)));
+        assertEquals(1, statsRepository.increment(petId, "FEED", 1, 30, start.plusHours(1)));
+        assertEquals(0, statsRepository.increment(petId, "PLAY", 1, 25, start));
+        entityManager.clear();
+
+        mockMvc.perform(get("/api/pets/" + petId + "/stats")
+                        .header("Authorization", "Bearer " + authToken))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalInteractions", is(4)))
+                .andExpect(jsonPath("$.totalValue", is(120)))
+                .andExpect(jsonPath("$.byType[0].type", is("FEED")))
+                .andExpect(jsonPath("$.byType[0].lastTimestamp", startsWith("2024-01-01T12:00")))
+                .andExpect(maxQueries(2)); // Existencia de la mascota y contadores
+
+        // The first PLAY of the pet inserts its row without reading it first (persist, not merge).
+        // Interacting requires ownership, so the service acts as the authenticated owner
+        doReturn(testUser.getId()).when(currentUserProvider).getCurrentUserId();
+        mockMvc.perform(post("/api/pets/" + petId + "/play")
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(noQueryMatching("select .* from pet_interaction_stats"));
+        entityManager.flush();
+        entityManager.clear();
+        mockMvc.perform(get("/api/pets/" + petId + "/stats")
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalInteractions", is(5)))
+                .andExpect(jsonPath("$.byType[1].type", is("PLAY")))
+                .andExpect(jsonPath("$.byType[1].count", is(1)));
+
+        mockMvc.perform(get("/api/pets/999999/stats")
+                        .header("Authorization", "Bearer " + authToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testListingQueryCountDoesNotGrowWithOwners() throws Exception {
+        // Una mascota por dueño: con N+1 cada dueño distinto agregaría un SELECT sobre users.
+        // Los filtros por dueño usan uno de los sembrados, para que el listado no salga vacío
+        Long ownerId = seedPetsWithDistinctOwners(1).get(0).getId();
+        long[] fewOwners = countListingStatements(ownerId);
+
+        seedPetsWithDistinctOwners(5);
+        long[] manyOwners = countListingStatements(ownerId);
+
+        assertArrayEquals(fewOwners, manyOwners);
+    }
+
+    /**
+     * Crea mascotas del tipo de prueba, cada una con un dueño distinto
+     * @return Los dueños creados
+     */
+    private List<User> seedPetsWithDistinctOwners(int count) {
+        List<User> owners = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User owner = new User();
+            owner.setUsername("owner" + System.nanoTime());
+            owner.setEmail(owner.getUsername() + "@test.com");
+            owners.add(userRepository.save(owner));
+
+            Pet pet = new Pet();
+            pet.setName("SeededPet");
+            pet.setType("TestType");
+            pet.setDescription("Seeded pet for query counting");
+            pet.setImageUrl("http://example.com/seeded.jpg");
+            pet.setCreatedAt(LocalDateTime.now());
+            pet.setLastInteraction(LocalDateTime.now());
+            pet.setOwner(owner);
+            petRepository.save(pet);
+        }
+        // Vaciar el contexto de persistencia para que los dueños no salgan de la caché de primer nivel
+        entityManager.flush();
+        entityManager.clear();
+        return owners;
+    }
+
+    /**
+     * Cuenta las sentencias SQL preparadas por cada endpoint de listado; cada listado debe
+     * devolver al menos una mascota para que la cuenta incluya la carga de los dueños
+     */
+    private long[] countListingStatements(Long ownerId) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String[][] listings = {
+                {},
+                {"type", "TestType"},
+                {"ownerId", String.valueOf(ownerId)},
+                {"type", "TestType", "ownerId", String.valueOf(ownerId)},
+                {"limit", "50"}
+        };
+
+        long[] counts = new long[listings.length];
+        for (int i = 0; i < listings.length; i++) {
+            var request = get("/api/pets").header("Authorization", "Bearer " + authToken);
+            for (int j = 0; j < listings[i].length; j += 2) {
+                request.param(listings[i][j], listings[i][j + 1]);
+            }
+            entityManager.clear();
+            statistics.clear();
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            counts[i] = statistics.getPrepareStatementCount();
+
+            // Sin paginar la respuesta es la lista; con limit, una página con items
+            JsonNode json = objectMapper.readTree(body);
+            JsonNode pets = json.isArray() ? json : json.path("items");
+            assertFalse(pets.isEmpty(), "Listing " + Arrays.toString(listings[i]) + " returned no pets");
+        }
+        return counts;
     }
 
     @Test
@@ -180,7 +492,8 @@ public class PetControllerIntegrationTest {
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name", is("TestPet")))
-                .andExpect(jsonPath("$.type", is("TestType")));
+                .andExpect(jsonPath("$.type", is("TestType")))
+                .andExpect(maxQueries(3));
     }
 
     @Test
@@ -215,7 +528,8 @@ public class PetControllerIntegrationTest {
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name", is("UpdatedTestPet")))
-                .andExpect(jsonPath("$.type", is("UpdatedType")));
+                .andExpect(jsonPath("$.type", is("UpdatedType")))
+                .andExpect(maxQueries(3));
     }
 
     @Test
@@ -242,7 +556,8 @@ public class PetControllerIntegrationTest {
                         .header("Authorization", "Bearer " + authToken))
                 .andDo(print())
                 .andExpect(status().isInternalServerError())
-                .andExpect(jsonPath("$.message", containsString("No tienes permiso para modificar esta mascota")));
+                .andExpect(jsonPath("$.message", containsString("No tienes permiso para modificar esta mascota")))
+                .andExpect(maxQueries(2));
     
         // Como la eliminación falló, la mascota debería seguir existiendo
         mockMvc.perform(get("/api/pets/" + petId)
@@ -0,0 +1,179 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.dto.Pet.PetDecayStatsDTO;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.service.PetDecayJob;
+import com.example.petworld.service.PetService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the scheduled bulk decay job
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.pets.decay.enabled=true",
+        "app.pets.decay.interval-ms=3600000",
+        "app.pets.decay.chunk-size=2",
+        "app.pets.decay.threads=2"
+})
+@ActiveProfiles("test")
+public class PetDecayJobIntegrationTest {
+
+    @Autowired
+    private PetDecayJob petDecayJob;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private LocalDateTime now;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                1L, "decayOwner", "decay@test.com");
+        owner = userRepository.findById(1L).orElseThrow();
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testRunAppliesWholeElapsedHoursAndKeepsTheRemainder() {
+        LocalDateTime twoHoursAgo = now.minusMinutes(150);
+        LocalDateTime tenHoursAgo = now.minusHours(10);
+        Pet rested = savePet("Rested", 100, 100, 100, 50, twoHoursAgo);
+        Pet neglected = savePet("Neglected", 30, 20, 100, 100, tenHoursAgo);
+        Pet recent = savePet("Recent", 80, 80, 80, 80, now.minusMinutes(30));
+        PetResponseDTO restedBefore = petService.getPetById(rested.getId());
+
+        assertTrue(petDecayJob.run());
+
+        Pet restedAfter = petRepository.findById(rested.getId()).orElseThrow();
+        assertEquals(90, restedAfter.getHunger()); // 2h * 5
+        assertEquals(94, restedAfter.getHappiness()); // 2h * 3
+        assertEquals(100, restedAfter.getHealth());
+        assertEquals(54, restedAfter.getEnergy()); // 2h * 2
+        assertEquals(twoHoursAgo.plusHours(2), restedAfter.getStatesUpdatedAt());
+        assertEquals(twoHoursAgo, restedAfter.getLastInteraction());
+        // Materializing the decay is not a change: concurrent writers keep their version
+        assertEquals(rested.getVersion(), restedAfter.getVersion());
+
+        Pet neglectedAfter = petRepository.findById(neglected.getId()).orElseThrow();
+        assertEquals(0, neglectedAfter.getHunger());
+        assertEquals(0, neglectedAfter.getHappiness());
+        assertEquals(70, neglectedAfter.getHealth()); // 10h * 2 (hungry) + 10h * 1 (sad)
+        assertEquals(100, neglectedAfter.getEnergy());
+        assertEquals(now, neglectedAfter.getStatesUpdatedAt());
+
+        // Less than an hour since the snapshot: left for the read-time calculation
+        Pet recentAfter = petRepository.findById(recent.getId()).orElseThrow();
+        assertEquals(80, recentAfter.getHunger());
+        assertEquals(recent.getVersion(), recentAfter.getVersion());
+
+        // Reads see the same states as before materializing the decay
+        PetResponseDTO restedRead = petService.getPetById(rested.getId());
+        assertEquals(restedBefore.getHunger(), restedRead.getHunger());
+        assertEquals(restedBefore.getHappiness(), restedRead.getHappiness());
+        assertEquals(restedBefore.getHealth(), restedRead.getHealth());
+        assertEquals(restedBefore.getEnergy(), restedRead.getEnergy());
+
+        PetDecayStatsDTO stats = petDecayJob.getStats();
+        assertEquals(2, stats.getLastRunPetsDecayed());
+        assertTrue(stats.getLastRunChunks() >= 2);
+        assertEquals(0, stats.getLastRunFailedChunks());
+        assertFalse(stats.isRunning());
+    }
+
+    @Test
+    public void testRunIsIdempotentWithinTheSameHour() {
+        Pet pet = savePet("Idle", 100, 100, 100, 100, now.minusMinutes(90));
+
+        assertTrue(petDecayJob.run());
+        assertTrue(petDecayJob.run());
+
+        Pet after = petRepository.findById(pet.getId()).orElseThrow();
+        assertEquals(95, after.getHunger());
+        // Only one whole hour was applied, once
+        assertEquals(pet.getStatesUpdatedAt().plusHours(1), after.getStatesUpdatedAt());
+    }
+
+    @Test
+    public void testWriterHoldingTheOldSnapshotDoesNotConflict() {
+        Pet pet = savePet("Edited", 100, 100, 100, 100, now.minusHours(3));
+        Pet loaded = petRepository.findById(pet.getId()).orElseThrow();
+
+        assertTrue(petDecayJob.run());
+
+        // An edit based on the pre-decay snapshot still saves; its states remain a valid snapshot
+        loaded.setName("Renamed");
+        petRepository.save(loaded);
+        Pet after = petRepository.findById(pet.getId()).orElseThrow();
+        assertEquals("Renamed", after.getName());
+        assertEquals(pet.getVersion() + 1, after.getVersion());
+        PetResponseDTO read = petService.getPetById(pet.getId());
+        assertEquals(85, read.getHunger()); // 3h * 5
+    }
+
+    @Test
+    public void testRunIsSkippedWhileAnotherRunIsInProgress() {
+        AtomicBoolean running = (AtomicBoolean) ReflectionTestUtils.getField(petDecayJob, "running");
+        long skippedBefore = petDecayJob.getStats().getSkippedRuns();
+        long runsBefore = petDecayJob.getStats().getRuns();
+
+        running.set(true);
+        try {
+            assertFalse(petDecayJob.run());
+        } finally {
+            running.set(false);
+        }
+
+        assertEquals(skippedBefore + 1, petDecayJob.getStats().getSkippedRuns());
+        assertEquals(runsBefore, petDecayJob.getStats().getRuns());
+    }
+
+    private Pet savePet(String name, int hunger, int happiness, int health, int energy, LocalDateTime snapshot) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setType("Decay");
+        pet.setHunger(hunger);
+        pet.setHappiness(happiness);
+        pet.setHealth(health);
+        pet.setEnergy(energy);
+        pet.setCreatedAt(snapshot);
+        pet.setLastInteraction(snapshot);
+        pet.setStatesUpdatedAt(snapshot);
+        pet.setOwner(owner);
+        return petRepository.save(pet);
+    }
+}
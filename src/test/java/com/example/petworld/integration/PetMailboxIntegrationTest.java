@@ -0,0 +1,260 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.PetInteractionStats;
+import com.example.petworld.domain.User;
+import com.example.petworld.dto.Interaction.InteractionBatchResultDTO;
+import com.example.petworld.dto.Interaction.InteractionCreateDTO;
+import com.example.petworld.dto.Pet.PetMailboxStatsDTO;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import com.example.petworld.exception.ResourceNotFoundException;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.service.PetMailboxService;
+import com.example.petworld.service.PetService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the opt-in per-pet mailbox (write-behind) mode
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.pets.mailbox.enabled=true",
+        "app.pets.mailbox.flush-interval-ms=50",
+        "app.pets.mailbox.flush-size=50"
+})
+@ActiveProfiles("test")
+public class PetMailboxIntegrationTest {
+
+    // PetService.getCurrentUserId todavía devuelve un usuario fijo
+    private static final long OWNER_ID = 1L;
+    private static Path walDir;
+
+    @DynamicPropertySource
+    static void walDirectory(DynamicPropertyRegistry registry) throws IOException {
+        walDir = Files.createTempDirectory("petworld-wal-test");
+        registry.add("app.pets.mailbox.wal-dir", walDir::toString);
+    }
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetMailboxService petMailboxService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private PetInteractionStatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Pet pet;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "mailboxOwner", "mailbox@test.com");
+        User owner = userRepository.findById(OWNER_ID).orElseThrow();
+
+        pet = new Pet();
+        pet.setName("MailboxPet");
+        pet.setType("Community");
+        pet.setCreatedAt(LocalDateTime.now());
+        pet.setLastInteraction(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        pet.setOwner(owner);
+        pet = petRepository.save(pet);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        awaitFlushed();
+        statsRepository.deleteAllInBatch();
+        interactionRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testConcurrentInteractionsAreSerializedAndCoalesced() throws Exception {
+        int interactions = 400;
+        long flushesBefore = petMailboxService.getStats().getFlushes();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<PetResponseDTO>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < interactions; i++) {
+                String type = i % 2 == 0 ? "FEED" : "PLAY";
+                futures.add(executor.submit(() -> petService.interactWithPet(pet.getId(), type)));
+            }
+            for (Future<PetResponseDTO> future : futures) {
+                assertEquals("MailboxPet", future.get().getName());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        awaitFlushed();
+
+        // Every interaction was written, none lost, with far fewer pet row updates than interactions
+        assertEquals(interactions, interactionRepository.count());
+        long counted = statsRepository.findByPetIdOrderByTypeAsc(pet.getId()).stream()
+                .mapToLong(PetInteractionStats::getInteractionCount)
+                .sum();
+        assertEquals(interactions, counted);
+
+        PetMailboxStatsDTO stats = petMailboxService.getStats();
+        long flushes = stats.getFlushes() - flushesBefore;
+        Pet stored = petRepository.findById(pet.getId()).orElseThrow();
+        assertEquals(flushes, stored.getVersion());
+        assertTrue(flushes < interactions / 2, "Expected coalesced writes but got " + flushes + " flushes");
+        assertTrue(stats.getAverageFlushMillis() > 0);
+    }
+
+    @Test
+    public void testWriteBehindDoesNotOverwriteConcurrentChanges() throws Exception {
+        petService.interactWithPet(pet.getId(), "FEED");
+        awaitFlushed();
+        long conflictsBefore = petMailboxService.getStats().getWriteConflicts();
+
+        // Another path (another node, the decay job) changes the pet after the mailbox loaded it
+        jdbcTemplate.update("UPDATE pets SET health = 7, version = version + 1 WHERE id = ?", pet.getId());
+        petService.interactWithPet(pet.getId(), "HEAL");
+        awaitFlushed();
+
+        // HEAL is re-applied on top of the concurrent write instead of overwriting it
+        Pet stored = petRepository.findById(pet.getId()).orElseThrow();
+        assertEquals(47, stored.getHealth());
+        assertEquals(3, stored.getVersion());
+        assertEquals(2, interactionRepository.count());
+        assertTrue(petMailboxService.getStats().getWriteConflicts() > conflictsBefore);
+    }
+
+    @Test
+    public void testBatchIsGroupedPerPetAndAnsweredInRequestOrder() throws Exception {
+        Pet other = new Pet();
+        other.setName("OtherMailboxPet");
+        other.setType("Community");
+        other.setCreatedAt(LocalDateTime.now());
+        other.setLastInteraction(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        other.setOwner(pet.getOwner());
+        other = petRepository.save(other);
+        jdbcTemplate.update("UPDATE pets SET health = 10 WHERE id = ?", pet.getId());
+
+        List<InteractionBatchResultDTO> results = petService.interactWithPets(List.of(
+                batchItem(pet.getId(), "FEED"),
+                batchItem(other.getId(), "PLAY"),
+                batchItem(999_999L, "FEED"),
+                batchItem(pet.getId(), "HEAL"),
+                batchItem(pet.getId(), "")));
+
+        assertEquals(List.of(true, true, false, true, false),
+                results.stream().map(InteractionBatchResultDTO::isSuccess).toList());
+        assertEquals("Mascota no encontrada", results.get(2).getError());
+        assertEquals("El tipo de interacción no puede estar vacío", results.get(4).getError());
+        // The pet's interactions were applied one after the other, each answer showing its own step
+        assertEquals(other.getId(), results.get(1).getPet().getId());
+        assertTrue(results.get(3).getPet().getLastInteraction().isAfter(results.get(0).getPet().getLastInteraction()));
+        assertEquals(10, results.get(0).getPet().getHealth());
+        assertEquals(50, results.get(3).getPet().getHealth());
+
+        awaitFlushed();
+        assertEquals(3, interactionRepository.count());
+        assertEquals(List.of("FEED", "HEAL"), statsRepository.findByPetIdOrderByTypeAsc(pet.getId()).stream()
+                .map(PetInteractionStats::getType).toList());
+    }
+
+    @Test
+    public void testInteractionIsRejectedForMissingPet() {
+        assertThrows(ResourceNotFoundException.class,
+                () -> petService.interactWithPet(999_999L, "FEED"));
+    }
+
+    @Test
+    public void testWriteAheadLogIsReplayedOnRecovery() throws Exception {
+        // Simula una caída: dos interacciones aceptadas (en el WAL) que no llegaron a la base de datos,
+        // más una que sí se escribió antes de la caída y no debe repetirse
+        LocalDateTime lastWritten = pet.getLastInteraction();
+        Path wal = walDir.resolve("pet-" + pet.getId() + ".wal");
+        Files.writeString(wal,
+                walLine(lastWritten, "FEED")
+                        + walLine(lastWritten.plusSeconds(1), "PLAY")
+                        + walLine(lastWritten.plusSeconds(2), "HEAL")
+                        // Registro cortado por la caída: no se aplica
+                        + lastWritten.plusSeconds(3) + " FE");
+
+        petMailboxService.recoverWriteAheadLogs();
+        awaitFlushed();
+
+        assertEquals(2, interactionRepository.count());
+        assertEquals(2, statsRepository.findByPetIdOrderByTypeAsc(pet.getId()).size());
+        Pet stored = petRepository.findById(pet.getId()).orElseThrow();
+        assertEquals(lastWritten.plusSeconds(2), stored.getLastInteraction());
+        assertTrue(petMailboxService.getStats().getReplayedInteractions() >= 2);
+        // Una vez escritas, el WAL ya no tiene interacciones pendientes
+        assertTrue(!Files.exists(wal) || Files.size(wal) == 0);
+    }
+
+    private static InteractionCreateDTO batchItem(Long petId, String type) {
+        InteractionCreateDTO item = new InteractionCreateDTO();
+        item.setPetId(petId);
+        item.setType(type);
+        return item;
+    }
+
+    // Formato de PetWriteAheadLog: "<timestamp> <tipo> <CRC32 de lo anterior>"
+    private static String walLine(LocalDateTime timestamp, String type) {
+        String record = timestamp + " " + type;
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return record + " " + HexFormat.of().toHexDigits((int) crc.getValue()) + "\n";
+    }
+
+    private void awaitFlushed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            PetMailboxStatsDTO stats = petMailboxService.getStats();
+            if (stats.getQueuedMessages() == 0 && stats.getPendingWrites() == 0) {
+                return;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "Mailboxes were not flushed in time");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.dto.Interaction.InteractionCreateDTO;
+import com.example.petworld.dto.Pet.PetStateStreamStatsDTO;
+import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import com.example.petworld.security.JwtTokenProvider;
+import com.example.petworld.security.UserDetailsImpl;
+import com.example.petworld.service.PetService;
+import com.example.petworld.service.PetStateStreamService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the Server-Sent Events subscription to pet states, over a real
+ * HTTP connection
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "app.pets.stream.coalesce-window-ms=200",
+        // El decaimiento se revisa a mano con un reloj adelantado
+        "app.pets.stream.decay-check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+public class PetStateStreamIntegrationTest {
+
+    // PetService.getCurrentUserId todavía devuelve un usuario fijo
+    private static final long OWNER_ID = 1L;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetStateStreamService petStateStreamService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    @Autowired
+    private PetInteractionStatsRepository statsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Stream<String>> connections = new ArrayList<>();
+    private User owner;
+    private String token;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("INSERT INTO users (id, username, email) VALUES (?, ?, ?)",
+                OWNER_ID, "streamOwner", "stream@test.com");
+        owner = userRepository.findById(OWNER_ID).orElseThrow();
+        UserDetailsImpl principal = UserDetailsImpl.build(owner);
+        token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        connections.forEach(Stream::close);
+        statsRepository.deleteAllInBatch();
+        interactionRepository.deleteAllInBatch();
+        petRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testSubscriberGetsFullStateThenOneCoalescedDelta() throws Exception {
+        Pet pet = savePet("Streamy", 50, LocalDateTime.now());
+        BlockingQueue<SseEvent> events = subscribe(pet.getId());
+
+        SseEvent initial = next(events);
+        assertEquals("state", initial.name);
+        assertEquals(pet.getId().longValue(), initial.data.get("petId").asLong());
+        assertEquals(50, initial.data.get("hunger").asInt());
+        assertEquals(100, initial.data.get("happiness").asInt());
+
+        // Cinco interacciones confirmadas juntas: sus cambios salen en un solo envío
+        List<InteractionCreateDTO> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            InteractionCreateDTO request = new InteractionCreateDTO();
+            request.setPetId(pet.getId());
+            request.setType("FEED");
+            batch.add(request);
+        }
+        petService.interactWithPets(batch);
+
+        SseEvent delta = next(events);
+        assertEquals("delta", delta.name);
+        assertEquals(100, delta.data.get("hunger").asInt());
+        // Felicidad y salud no cambiaron: el delta no las incluye
+        assertFalse(delta.data.has("happiness"));
+        assertFalse(delta.data.has("health"));
+        assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+
+        PetStateStreamStatsDTO stats = petStateStreamService.getStats();
+        assertTrue(stats.getWatchedPets() >= 1);
+        assertTrue(stats.getPushedDeltas() >= 1);
+    }
+
+    @Test
+    public void testDecayIsPushedOnlyWhenAThresholdIsCrossed() throws Exception {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Pet pet = savePet("Decaying", 55, now);
+        BlockingQueue<SseEvent> events = subscribe(pet.getId());
+        assertEquals(55, next(events).data.get("hunger").asInt());
+
+        // 30 minutos: el hambre baja a 53, sin cruzar el umbral de 50
+        ReflectionTestUtils.invokeMethod(petStateStreamService, "checkDecay", now.plusMinutes(30));
+        // 90 minutos: el hambre baja a 48 y cruza el umbral
+        ReflectionTestUtils.invokeMethod(petStateStreamService, "checkDecay", now.plusMinutes(90));
+
+        SseEvent delta = next(events);
+        assertEquals("delta", delta.name);
+        assertEquals(48, delta.data.get("hunger").asInt());
+        assertEquals(96, delta.data.get("happiness").asInt());
+        assertTrue(petStateStreamService.getStats().getDecayPushes() >= 1);
+    }
+
+    @Test
+    public void testSubscriptionsBeyondTheLimitAreRejected() throws Exception {
+        Pet pet = savePet("Popular", 80, LocalDateTime.now());
+        // El servidor solo nota las conexiones cerradas por otras pruebas al escribir en ellas
+        int limit = petStateStreamService.getStats().getSubscribers() + 2;
+        ReflectionTestUtils.setField(petStateStreamService, "maxSubscribers", limit);
+        try {
+            subscribe(pet.getId());
+            subscribe(pet.getId());
+
+            HttpResponse<Void> rejected = client.send(request(pet.getId()), HttpResponse.BodyHandlers.discarding());
+            assertEquals(503, rejected.statusCode());
+            assertTrue(rejected.headers().firstValue("Retry-After").isPresent());
+            assertEquals(limit, petStateStreamService.getStats().getSubscribers());
+            assertTrue(petStateStreamService.getStats().getRejectedSubscriptions() >= 1);
+        } finally {
+            ReflectionTestUtils.setField(petStateStreamService, "maxSubscribers", 20000);
+        }
+    }
+
+    @Test
+    public void testSubscribingToAMissingPetReturnsNotFound() throws Exception {
+        HttpResponse<Void> response = client.send(request(999_999L), HttpResponse.BodyHandlers.discarding());
+        assertEquals(404, response.statusCode());
+    }
+
+    private Pet savePet(String name, int hunger, LocalDateTime snapshot) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setType("Dog");
+        pet.setHunger(hunger);
+        pet.setCreatedAt(snapshot);
+        pet.setLastInteraction(snapshot);
+        pet.setStatesUpdatedAt(snapshot);
+        pet.setOwner(owner);
+        return petRepository.save(pet);
+    }
+
+    private HttpRequest request(Long petId) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/pets/" + petId + "/state-events"))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "text/event-stream")
+                .GET().build();
+    }
+
+    /**
+     * Opens the SSE connection and parses its events on a background thread
+     */
+    private BlockingQueue<SseEvent> subscribe(Long petId) throws Exception {
+        HttpResponse<Stream<String>> response = client.send(request(petId), HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        Stream<String> lines = response.body();
+        connections.add(lines);
+
+        BlockingQueue<SseEvent> events = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            String[] name = {null};
+            try {
+                lines.forEach(line -> {
+                    if (line.startsWith("event:")) {
+                        name[0] = line.substring("event:".length()).trim();
+                    } else if (line.startsWith("data:")) {
+                        try {
+                            events.add(new SseEvent(name[0], objectMapper.readTree(line.substring("data:".length()))));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                // La conexión se cerró al terminar la prueba
+            }
+        }, "sse-reader-" + petId);
+        reader.setDaemon(true);
+        reader.start();
+        return events;
+    }
+
+    private static SseEvent next(BlockingQueue<SseEvent> events) throws InterruptedException {
+        SseEvent event = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event, "No event received within 10 s");
+        return event;
+    }
+
+    private static class SseEvent {
+        private final String name;
+        private final JsonNode data;
+
+        SseEvent(String name, JsonNode data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.petworld.integration;
+
+import com.example.petworld.config.SqlQueryBudgetFilter;
+import com.example.petworld.config.SqlQueryStats;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprobaciones de MockMvc sobre las sentencias SQL que ejecutó una petición, según las
+ * cuenta SqlQueryBudgetFilter: mockMvc.perform(get(...)).andExpect(maxQueries(2))
+ */
+public final class SqlQueryBudget {
+
+    private SqlQueryBudget() {
+    }
+
+    /**
+     * La petición ejecutó como mucho max sentencias; si no, el mensaje incluye las sentencias
+     */
+    public static ResultMatcher maxQueries(int max) {
+        return result -> {
+            SqlQueryStats stats = stats(result);
+            assertTrue(stats.getCount() <= max, () -> String.format("%s %s ejecutó %d sentencias SQL, se esperaban como mucho %d:%n  %s",
+                    result.getRequest().getMethod(), result.getRequest().getRequestURI(), stats.getCount(), max,
+                    String.join("\n  ", stats.getStatements())));
+        };
+    }
+
+    /**
+     * Ninguna sentencia de la petición coincide con regex (sin distinguir mayúsculas)
+     */
+    public static ResultMatcher noQueryMatching(String regex) {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        return result -> {
+            SqlQueryStats stats = stats(result);
+            assertTrue(stats.getStatements().stream().noneMatch(sql -> pattern.matcher(sql).find()),
+                    () -> String.format("%s %s ejecutó una sentencia que coincide con %s:%n  %s",
+                            result.getRequest().getMethod(), result.getRequest().getRequestURI(), regex,
+                            String.join("\n  ", stats.getStatements())));
+        };
+    }
+
+    private static SqlQueryStats stats(MvcResult result) {
+        SqlQueryStats stats = (SqlQueryStats) result.getRequest()
+                .getAttribute(SqlQueryBudgetFilter.QUERY_STATS_ATTRIBUTE);
+        assertNotNull(stats, "La petición no pasó por SqlQueryBudgetFilter");
+        return stats;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.petworld.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JwtTokenProvider
+ * These tests verify token generation, single-pass validation and the verified-token cache
+ */
+public class JwtTokenProviderTest {
+
+    private static final String SECRET = "petWorldSecretKeyForJwtAuthenticationThatIsLongEnoughForSecurity";
+
+    private JwtTokenProvider tokenProvider;
+    private UserDetailsImpl userDetails;
+
+    @BeforeEach
+    public void setup() {
+        tokenProvider = createProvider(60_000);
+        userDetails = new UserDetailsImpl(1L, "testUser", "test@example.com", "secret",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    private JwtTokenProvider createProvider(int expirationMs) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(provider, "verifiedTokenCacheMaxSize", 100);
+        provider.init();
+        return provider;
+    }
+
+    private String generateToken(JwtTokenProvider provider) {
+        return provider.generateToken(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    @Test
+    public void testGetValidatedClaims_ValidToken() {
+        String token = generateToken(tokenProvider);
+
+        Claims claims = tokenProvider.getValidatedClaims(token);
+
+        assertNotNull(claims);
+        assertEquals("test@example.com", claims.getSubject());
+        assertTrue(tokenProvider.validateToken(token));
+        assertEquals("test@example.com", tokenProvider.getUserEmailFromJWT(token));
+    }
+
+    @Test
+    public void testGetValidatedClaims_ReusesVerifiedToken() {
+        String token = generateToken(tokenProvider);
+
+        Claims first = tokenProvider.getValidatedClaims(token);
+        Claims second = tokenProvider.getValidatedClaims(token);
+
+        // The second call is served from the cache without parsing the token again
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testGetValidatedClaims_TamperedToken() {
+        String token = generateToken(tokenProvider);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(tokenProvider.getValidatedClaims(tampered));
+        assertFalse(tokenProvider.validateToken("not-a-jwt"));
+    }
+
+    @Test
+    public void testGetValidatedClaims_ExpiredToken() {
+        JwtTokenProvider expiredProvider = createProvider(-1000);
+        String token = generateToken(expiredProvider);
+
+        assertNull(expiredProvider.getValidatedClaims(token));
+    }
+
+    @Test
+    public void testGetUserDetailsFromClaims_RebuildsPrincipal() {
+        String token = generateToken(tokenProvider);
+
+        UserDetailsImpl principal = tokenProvider.getUserDetailsFromClaims(tokenProvider.getValidatedClaims(token));
+
+        // The principal is rebuilt from the token without loading the user
+        assertNotNull(principal);
+        assertEquals(1L, principal.getId());
+        assertEquals("testUser", principal.getDisplayName());
+        assertEquals("test@example.com", principal.getUsername());
+        assertEquals("ROLE_USER", principal.getAuthorities().iterator().next().getAuthority());
+        assertNull(principal.getPassword());
+    }
+}
\ No newline at end of file
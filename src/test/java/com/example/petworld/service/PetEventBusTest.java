@@ -0,0 +1,298 @@
+package com.example.petworld.service;
+
+import com.example.petworld.dto.Pet.PetEventBusListenerStatsDTO;
+import com.example.petworld.dto.Pet.PetEventBusStatsDTO;
+import com.example.petworld.events.PetBusEvent;
+import com.example.petworld.events.PetEventBusListener;
+import com.example.petworld.events.PetInteractedEvent;
+import com.example.petworld.events.PetStateChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the in-process pet event bus: routing, batching, coalescing, overflow and
+ * after-commit publication
+ */
+public class PetEventBusTest {
+
+    private PetEventBus bus;
+
+    @AfterEach
+    public void shutdown() throws InterruptedException {
+        if (bus != null) {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testEventsAreRoutedByEventClassAndPetType() throws InterruptedException {
+        RecordingListener<PetInteractedEvent> dogs = new RecordingListener<>(PetInteractedEvent.class, Set.of("Dog"));
+        RecordingListener<PetInteractedEvent> everyone = new RecordingListener<>(PetInteractedEvent.class, Set.of());
+        RecordingListener<PetStateChangedEvent> states = new RecordingListener<>(PetStateChangedEvent.class, Set.of());
+        bus = start(1024, 256, dogs, everyone, states);
+
+        bus.publish(interacted(1L, "Dog", 1));
+        bus.publish(interacted(2L, "Cat", 1));
+        bus.publish(interacted(3L, "Lizard", 1));
+        bus.publish(stateChanged(1L, "Dog", 50));
+
+        awaitTrue(() -> everyone.received().size() == 3 && states.received().size() == 1);
+        assertEquals(List.of(1L), dogs.received().stream().map(PetBusEvent::getPetId).toList());
+        assertEquals(List.of(1L, 2L, 3L), everyone.received().stream().map(PetBusEvent::getPetId).toList());
+        assertEquals(0, bus.getStats().getUnroutedEvents());
+    }
+
+    @Test
+    public void testStateChangesAreCoalescedPerPetWithinABatch() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener<PetInteractedEvent> interactions = new RecordingListener<>(PetInteractedEvent.class, Set.of());
+        interactions.gate(entered, release);
+        RecordingListener<PetStateChangedEvent> states = new RecordingListener<>(PetStateChangedEvent.class, Set.of());
+        bus = start(1024, 256, interactions, states);
+
+        // El primer lote detiene el hilo del bus; lo siguiente se acumula y sale en un solo lote
+        bus.publish(interacted(1L, "Dog", 0));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            bus.publish(stateChanged(1L, "Dog", i));
+            bus.publish(stateChanged(2L, "Cat", 100 + i));
+            bus.publish(interacted(1L, "Dog", i));
+        }
+        release.countDown();
+
+        awaitTrue(() -> interactions.received().size() == 11 && states.received().size() == 2);
+        // Solo la última foto de cada mascota, y las interacciones todas y en orden
+        assertEquals(List.of(10, 110), states.received().stream().map(PetStateChangedEvent::getHunger).toList());
+        assertEquals(List.of(2), states.batchSizes());
+        assertEquals(List.of(1, 10), interactions.batchSizes());
+        assertEquals(18, bus.getStats().getCoalescedEvents());
+    }
+
+    @Test
+    public void testEventsAreDroppedAndCountedWhenTheQueueIsFull() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener<PetInteractedEvent> slow = new RecordingListener<>(PetInteractedEvent.class, Set.of());
+        slow.gate(entered, release);
+        bus = start(8, 256, slow);
+
+        bus.publish(interacted(1L, "Dog", 0));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        int accepted = 0;
+        for (int i = 1; i <= 20; i++) {
+            if (bus.publish(interacted(1L, "Dog", i))) {
+                accepted++;
+            }
+        }
+        assertEquals(8, accepted);
+        assertEquals(8, bus.getStats().getQueuedEvents());
+        release.countDown();
+
+        awaitTrue(() -> slow.received().size() == 9);
+        PetEventBusStatsDTO stats = bus.getStats();
+        assertEquals(9, stats.getPublishedEvents());
+        assertEquals(12, stats.getDroppedEvents());
+        assertEquals(0, stats.getQueuedEvents());
+    }
+
+    @Test
+    public void testFailingListenerDoesNotAffectOthersAndStatsArePerListener() throws InterruptedException {
+        PetEventBusListener<PetInteractedEvent> failing = new PetEventBusListener<>() {
+            @Override
+            public Class<PetInteractedEvent> eventType() {
+                return PetInteractedEvent.class;
+            }
+
+            @Override
+            public void onEvents(List<PetInteractedEvent> events) {
+                throw new IllegalStateException("Listener caído");
+            }
+
+            @Override
+            public String name() {
+                return "failing";
+            }
+        };
+        RecordingListener<PetInteractedEvent> healthy = new RecordingListener<>(PetInteractedEvent.class, Set.of());
+        bus = start(1024, 256, failing, healthy);
+
+        for (int i = 0; i < 50; i++) {
+            bus.publish(interacted(1L, "Dog", i));
+        }
+
+        // Las métricas se actualizan al volver del listener
+        Map<String, PetEventBusListenerStatsDTO> byName = new HashMap<>();
+        awaitTrue(() -> {
+            bus.getStats().getListeners().forEach(listener -> byName.put(listener.getName(), listener));
+            return byName.get("RecordingListener").getDeliveredEvents() == 50;
+        });
+        PetEventBusListenerStatsDTO failed = byName.get("failing");
+        PetEventBusListenerStatsDTO ok = byName.get("RecordingListener");
+        assertEquals(failed.getBatches(), failed.getFailedBatches());
+        assertEquals(50, ok.getDeliveredEvents());
+        assertEquals(0, ok.getFailedBatches());
+        assertEquals("PetInteractedEvent", ok.getEventType());
+        assertTrue(ok.getAverageBatchSize() >= 1);
+        assertTrue(ok.getMaxLagMillis() >= ok.getAverageLagMillis());
+    }
+
+    @Test
+    public void testEventsPublishedInATransactionWaitForTheCommit() throws InterruptedException {
+        RecordingListener<PetInteractedEvent> listener = new RecordingListener<>(PetInteractedEvent.class, Set.of());
+        bus = start(1024, 256, listener);
+
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, interacted(1L, "Dog", 1));
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED, interacted(2L, "Dog", 2), interacted(2L, "Dog", 3));
+
+        awaitTrue(() -> listener.received().size() == 2);
+        assertEquals(List.of(2, 3), listener.received().stream().map(PetInteractedEvent::getValue).toList());
+        assertEquals(2, bus.getStats().getPublishedEvents());
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int producers = 8;
+        int perProducer = 10_000;
+        RecordingListener<PetInteractedEvent> listener = new RecordingListener<>(PetInteractedEvent.class, Set.of());
+        bus = start(producers * perProducer, 256, listener);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (long producer = 0; producer < producers; producer++) {
+            long petId = producer;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    assertTrue(bus.publish(interacted(petId, "Dog", i)));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        awaitTrue(() -> listener.received().size() == producers * perProducer);
+        int[] next = new int[producers];
+        for (PetInteractedEvent event : listener.received()) {
+            int producer = event.getPetId().intValue();
+            assertEquals(next[producer]++, event.getValue());
+        }
+    }
+
+    private void completeTransaction(int status, PetBusEvent... events) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (PetBusEvent event : events) {
+                bus.publishAfterCommit(event);
+            }
+            assertEquals(0, bus.getStats().getPublishedEvents());
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), status);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PetEventBus start(int capacity, int maxBatchSize, PetEventBusListener<?>... listeners) {
+        ObjectProvider<PetEventBusListener<?>> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenReturn(Stream.of(listeners));
+        PetEventBus bus = new PetEventBus(provider);
+        ReflectionTestUtils.setField(bus, "capacity", capacity);
+        ReflectionTestUtils.setField(bus, "maxBatchSize", maxBatchSize);
+        bus.init();
+        return bus;
+    }
+
+    private static PetInteractedEvent interacted(Long petId, String petType, int value) {
+        return new PetInteractedEvent(petId, petType, 1L, "FEED", value, LocalDateTime.now());
+    }
+
+    private static PetStateChangedEvent stateChanged(Long petId, String petType, int hunger) {
+        return new PetStateChangedEvent(petId, petType, 1L, hunger, 100, 100, 100, LocalDateTime.now());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10 s");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Records every batch it receives; can hold the bus thread on its first batch
+     */
+    private static class RecordingListener<E extends PetBusEvent> implements PetEventBusListener<E> {
+        private final Class<E> eventType;
+        private final Set<String> petTypes;
+        private final List<List<E>> batches = Collections.synchronizedList(new ArrayList<>());
+        private CountDownLatch entered;
+        private CountDownLatch release;
+
+        RecordingListener(Class<E> eventType, Set<String> petTypes) {
+            this.eventType = eventType;
+            this.petTypes = petTypes;
+        }
+
+        void gate(CountDownLatch entered, CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public Class<E> eventType() {
+            return eventType;
+        }
+
+        @Override
+        public Set<String> petTypes() {
+            return petTypes;
+        }
+
+        @Override
+        public void onEvents(List<E> events) {
+            batches.add(List.copyOf(events));
+            if (entered != null && entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<E> received() {
+            synchronized (batches) {
+                return batches.stream().flatMap(List::stream).toList();
+            }
+        }
+
+        List<Integer> batchSizes() {
+            synchronized (batches) {
+                return batches.stream().map(List::size).toList();
+            }
+        }
+    }
+}
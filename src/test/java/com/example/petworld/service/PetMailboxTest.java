@@ -0,0 +1,94 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.User;
+import com.example.petworld.dto.Pet.PetResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PetMailbox failure handling. The mailbox runs inline on the test thread
+ */
+@ExtendWith(MockitoExtension.class)
+public class PetMailboxTest {
+
+    private static final long PET_ID = 7L;
+    private static final long OWNER_ID = 1L;
+
+    @Mock
+    private PetMailboxService service;
+
+    @Mock
+    private PetService petService;
+
+    @TempDir
+    Path walDir;
+
+    private PetMailbox mailbox;
+
+    @BeforeEach
+    public void setup() {
+        mailbox = new PetMailbox(PET_ID, service, new PetWriteAheadLog(walDir, PET_ID, false));
+        doAnswer(invocation -> {
+            ((PetMailbox) invocation.getArgument(0)).run();
+            return null;
+        }).when(service).execute(any(PetMailbox.class));
+    }
+
+    @Test
+    public void testRepliesFailWhenPetCannotBeLoaded() throws Exception {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("Base de datos caída");
+        when(service.loadPet(PET_ID)).thenThrow(failure);
+
+        CompletableFuture<List<PetResponseDTO>> reply = new CompletableFuture<>();
+        assertTrue(mailbox.offer(new PetMailbox.Message(List.of("FEED"), OWNER_ID, reply)));
+
+        // The caller gets the cause right away instead of waiting for the reply timeout
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> reply.get(1, TimeUnit.SECONDS));
+        assertSame(failure, thrown.getCause());
+        assertEquals(0, mailbox.getDepth());
+        assertEquals(0, mailbox.getPendingWrites());
+    }
+
+    @Test
+    public void testLoadIsRetriedAfterFailure() throws Exception {
+        Pet pet = new Pet();
+        pet.setId(PET_ID);
+        pet.setOwner(new User());
+        pet.setLastInteraction(LocalDateTime.now());
+        PetResponseDTO response = new PetResponseDTO();
+        when(service.loadPet(PET_ID))
+                .thenThrow(new DataAccessResourceFailureException("Base de datos caída"))
+                .thenReturn(pet);
+        when(service.getPetService()).thenReturn(petService);
+        when(service.getFlushSize()).thenReturn(50);
+        when(petService.convertToResponseDTO(pet)).thenReturn(response);
+
+        CompletableFuture<List<PetResponseDTO>> failed = new CompletableFuture<>();
+        mailbox.offer(new PetMailbox.Message(List.of("FEED"), OWNER_ID, failed));
+        assertTrue(failed.isCompletedExceptionally());
+
+        CompletableFuture<List<PetResponseDTO>> reply = new CompletableFuture<>();
+        mailbox.offer(new PetMailbox.Message(List.of("FEED"), OWNER_ID, reply));
+        assertSame(response, reply.get(1, TimeUnit.SECONDS).get(0));
+        verify(service, times(2)).loadPet(PET_ID);
+        verify(petService).applyInteraction(eq(pet), eq("FEED"), any(LocalDateTime.class));
+        assertEquals(1, mailbox.getPendingWrites());
+    }
+}
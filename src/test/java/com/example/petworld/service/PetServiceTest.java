@@ -1,12 +1,23 @@
 package com.example.petworld.service;
 
+import com.example.petworld.domain.Interaction;
 import com.example.petworld.domain.Pet;
+import com.example.petworld.domain.PetInteractionStats;
 import com.example.petworld.domain.User;
+import com.example.petworld.dto.Interaction.InteractionBatchResultDTO;
+import com.example.petworld.dto.Interaction.InteractionCreateDTO;
+import com.example.petworld.dto.Interaction.InteractionPageDTO;
+import com.example.petworld.dto.Interaction.InteractionSummaryDTO;
 import com.example.petworld.dto.Pet.PetCreateDTO;
+import com.example.petworld.dto.Pet.PetPageDTO;
+import com.example.petworld.dto.Pet.PetProjectionDTO;
 import com.example.petworld.dto.Pet.PetResponseDTO;
-import com.example.petworld.events.PetCreatedEvent;
+import com.example.petworld.dto.Pet.PetStatsDTO;
+import com.example.petworld.events.PetInteractedEvent;
+import com.example.petworld.events.PetStateChangedEvent;
 import com.example.petworld.exception.ResourceNotFoundException;
 import com.example.petworld.infrastructure.InteractionRepository;
+import com.example.petworld.infrastructure.PetInteractionStatsRepository;
 import com.example.petworld.infrastructure.PetRepository;
 import com.example.petworld.infrastructure.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,7 +26,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -25,6 +39,9 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -53,7 +70,22 @@ public class PetServiceTest {
     private InteractionRepository interactionRepository;
 
     @Mock
-    private ApplicationEventPublisher eventPublisher;
+    private PetInteractionStatsRepository statsRepository;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PetEventBus petEventBus;
+
+    @Mock
+    private PetSnapshotCache petSnapshotCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<PetMailboxService> mailboxServices;
     
     // The service we're testing, with mocks injected
     @InjectMocks
@@ -100,7 +132,7 @@ public class PetServiceTest {
         // Arrange: Configure mocks to return our test data
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
         when(petRepository.save(any(Pet.class))).thenReturn(testPet);
-        // No necesitamos configurar comportamiento para eventPublisher pues doNothing es el comportamiento por defecto
+        // No necesitamos configurar comportamiento para outboxService pues doNothing es el comportamiento por defecto
         
         // Act: Call the method being tested
         PetResponseDTO result = petService.createPet(petCreateDTO, testUser.getId());
@@ -113,8 +145,10 @@ public class PetServiceTest {
         // Verify the repository methods were called
         verify(userRepository).findById(anyLong());
         verify(petRepository).save(any(Pet.class));
-        // Verificamos que el evento fue publicado
-        verify(eventPublisher).publishEvent(any(PetCreatedEvent.class));
+        // Verificamos que el evento quedó registrado en el outbox con su clave de idempotencia
+        verify(outboxService).enqueue(eq(OutboxRelay.PET_CREATED), eq(1L), any(), eq("pet-created:1"));
+        // La lista de mascotas del dueño en caché deja de valer
+        verify(petSnapshotCache).invalidateOwner(1L);
     }
 
     @Test
@@ -171,10 +205,46 @@ public class PetServiceTest {
         verify(petRepository).findByType("Cat");
     }
 
+    @Test
+    public void testGetPetsPage_ReturnsCursorWhenMorePetsExist() {
+        // Arrange: the repository returns one pet more than the requested page size
+        Pet secondPet = new Pet();
+        secondPet.setId(2L);
+        secondPet.setName("Rex");
+        secondPet.setType("Dog");
+        secondPet.setOwner(testUser);
+        when(petRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+                .thenReturn(Arrays.asList(testPet, secondPet));
+
+        // Act: Ask for a page of a single pet
+        PetPageDTO page = petService.getPetsPage(null, null, null, 1);
+
+        // Assert: Only the requested pet is returned and the cursor points to it
+        assertEquals(1, page.getItems().size());
+        assertEquals("Fluffy", page.getItems().get(0).getName());
+        assertTrue(page.isHasMore());
+        assertEquals(1L, page.getNextCursor());
+    }
+
+    @Test
+    public void testGetPetsPage_LastPageHasNoCursor() {
+        // Arrange: the repository returns fewer pets than the page size
+        when(petRepository.findByTypeAndIdGreaterThanOrderByIdAsc("Cat", 0L, Limit.of(11)))
+                .thenReturn(Arrays.asList(testPet));
+
+        // Act: Ask for a page filtered by type
+        PetPageDTO page = petService.getPetsPage("Cat", null, 0L, 10);
+
+        // Assert: There is no next page
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
     @Test
     public void testGetPetById_Success() {
-        // Arrange: Configure petRepository to return our test pet
-        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        // Arrange: Configure the snapshot cache to return our test pet
+        when(petSnapshotCache.get(1L)).thenReturn(Optional.of(snapshotOf(testPet)));
 
         // Act: Call the method being tested
         PetResponseDTO result = petService.getPetById(1L);
@@ -183,15 +253,38 @@ public class PetServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("Fluffy", result.getName());
+        assertEquals("testUser", result.getOwner().getUsername());
 
-        // Verify the repository method was called
-        verify(petRepository).findById(1L);
+        // Verify the read went through the cache
+        verify(petSnapshotCache).get(1L);
+        verify(petRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testGetPetById_ComputesDecayWithoutSaving() {
+        // Arrange: the pet was last cared for 4 hours ago
+        testPet.setLastInteraction(LocalDateTime.now().minusHours(4));
+        PetProjectionDTO snapshot = snapshotOf(testPet);
+        when(petSnapshotCache.get(1L)).thenReturn(Optional.of(snapshot));
+
+        // Act: Read the pet twice
+        PetResponseDTO first = petService.getPetById(1L);
+        PetResponseDTO second = petService.getPetById(1L);
+
+        // Assert: Stats are derived from elapsed time and reads are idempotent
+        assertEquals(80, first.getHunger()); // 100 - 4h * 5
+        assertEquals(88, first.getHappiness()); // 100 - 4h * 3
+        assertEquals(first.getHunger(), second.getHunger());
+        assertEquals(100, snapshot.getHunger()); // The cached snapshot is untouched
+
+        // Reading never writes
+        verify(petRepository, never()).save(any(Pet.class));
     }
 
     @Test
     public void testGetPetById_NotFound() {
-        // Arrange: Configure petRepository to return empty
-        when(petRepository.findById(999L)).thenReturn(Optional.empty());
+        // Arrange: Configure the snapshot cache to return empty
+        when(petSnapshotCache.get(999L)).thenReturn(Optional.empty());
 
         // Act & Assert: Call the method and verify it throws the expected exception
         Exception exception = assertThrows(ResourceNotFoundException.class, () -> {
@@ -200,8 +293,8 @@ public class PetServiceTest {
 
         assertTrue(exception.getMessage().contains("Mascota no encontrada"));
 
-        // Verify the repository method was called
-        verify(petRepository).findById(999L);
+        // Verify the cache was asked
+        verify(petSnapshotCache).get(999L);
     }
 
     @Test
@@ -223,5 +316,225 @@ public class PetServiceTest {
         verify(petRepository).findById(1L);
         verify(interactionRepository).save(any());
         verify(petRepository).save(testPet);
+        // La interacción y la nueva foto de estados se publican en el bus de eventos
+        verify(petEventBus).publishAfterCommit(argThat(event -> event instanceof PetInteractedEvent interacted
+                && "FEED".equals(interacted.getInteractionType())));
+        verify(petEventBus).publishAfterCommit(argThat(event -> event instanceof PetStateChangedEvent changed
+                && changed.getHunger() == 80 && changed.getPetId() == 1L));
+        // La foto en caché se descarta al confirmar
+        verify(petSnapshotCache).invalidatePet(1L);
+    }
+
+    @Test
+    public void testInteractWithPet_CreatesStatsRowOnFirstInteraction() {
+        // Arrange: no counter row exists yet for this pet and type
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(petRepository.save(any(Pet.class))).thenReturn(testPet);
+        when(statsRepository.increment(eq(1L), eq("PLAY"), eq(1L), eq(25L), any())).thenReturn(0);
+
+        // Act
+        petService.interactWithPet(1L, "PLAY");
+
+        // Assert: the row is created with the first interaction
+        verify(statsRepository).save(argThat(stats -> stats.getPetId().equals(1L)
+                && stats.getType().equals("PLAY")
+                && stats.getInteractionCount() == 1L
+                && stats.getValueSum() == 25L));
+    }
+
+    @Test
+    public void testInteractWithPet_IncrementsExistingStatsRow() {
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(petRepository.save(any(Pet.class))).thenReturn(testPet);
+        when(statsRepository.increment(eq(1L), eq("FEED"), eq(1L), eq(30L), any())).thenReturn(1);
+
+        petService.interactWithPet(1L, "FEED");
+
+        verify(statsRepository, never()).save(any());
+    }
+
+    @Test
+    public void testGetPetStats_SumsPerTypeCounters() {
+        // Arrange
+        LocalDateTime t = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(petRepository.existsById(1L)).thenReturn(true);
+        when(statsRepository.findByPetIdOrderByTypeAsc(1L)).thenReturn(Arrays.asList(
+                stats("FEED", 3L, 90L, t.minusHours(1)),
+                stats("PLAY", 2L, 50L, t)));
+
+        // Act
+        PetStatsDTO result = petService.getPetStats(1L);
+
+        // Assert
+        assertEquals(5L, result.getTotalInteractions());
+        assertEquals(140L, result.getTotalValue());
+        assertEquals(t, result.getLastInteraction());
+        assertEquals(2, result.getByType().size());
+        assertEquals("FEED", result.getByType().get(0).getType());
+        verify(interactionRepository, never()).countByPetIdAndType(anyLong(), any());
+    }
+
+    @Test
+    public void testGetPetStats_PetNotFound() {
+        when(petRepository.existsById(999L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> petService.getPetStats(999L));
+    }
+
+    @Test
+    public void testInteractWithPet_RetriesOnVersionConflict() {
+        // Arrange: the first flush hits a concurrent update, the second one succeeds
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(petRepository.save(any(Pet.class))).thenReturn(testPet);
+        doThrow(new OptimisticLockingFailureException("stale pet"))
+                .doNothing()
+                .when(petRepository).flush();
+
+        // Act
+        petService.interactWithPet(1L, "FEED");
+
+        // Assert: the whole transaction ran again, starting from a fresh read
+        verify(petRepository, times(2)).findById(1L);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(interactionRepository, times(1)).save(any());
+    }
+
+    @Test
+    public void testInteractWithPet_GivesUpAfterMaxAttempts() {
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(petRepository.save(any(Pet.class))).thenReturn(testPet);
+        doThrow(new OptimisticLockingFailureException("stale pet")).when(petRepository).flush();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> petService.interactWithPet(1L, "FEED"));
+
+        verify(petRepository, times(10)).findById(1L);
+        verify(interactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testInteractWithPet_StartsFromDecayedState() {
+        // Arrange: the pet was last fed 10 hours ago with a full stomach
+        LocalDateTime lastInteraction = LocalDateTime.now().minusHours(10);
+        testPet.setLastInteraction(lastInteraction);
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(petRepository.save(any(Pet.class))).thenReturn(testPet);
+
+        // Act: Feed the pet
+        petService.interactWithPet(1L, "FEED");
+
+        // Assert: FEED is applied on top of the decayed hunger and a new snapshot is stored
+        assertEquals(80, testPet.getHunger()); // 100 - 10h * 5 + 30
+        assertTrue(testPet.getLastInteraction().isAfter(lastInteraction));
+        verify(petRepository).save(testPet);
+    }
+
+    @Test
+    public void testInteractWithPets_AppliesBatchInOrder() {
+        // Arrange: two interactions for an existing pet and one for a missing pet
+        testPet.setHunger(40);
+        when(petRepository.findByIdIn(any())).thenReturn(Arrays.asList(testPet));
+
+        List<InteractionCreateDTO> requests = Arrays.asList(
+                interactionRequest(1L, "FEED"),
+                interactionRequest(999L, "FEED"),
+                interactionRequest(1L, "FEED"));
+
+        // Act: Apply the whole batch
+        List<InteractionBatchResultDTO> results = petService.interactWithPets(requests);
+
+        // Assert: per-item results in request order, effects accumulated in memory
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(70, results.get(0).getPet().getHunger());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Mascota no encontrada", results.get(1).getError());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(100, results.get(2).getPet().getHunger());
+
+        // All pets loaded with one query and interactions saved together
+        verify(petRepository).findByIdIn(any());
+        verify(petRepository, never()).findById(anyLong());
+        verify(interactionRepository).saveAll(argThat((List<Interaction> saved) -> saved.size() == 2));
+        // Both FEED interactions on the same pet are folded into a single counter update
+        verify(statsRepository).increment(eq(1L), eq("FEED"), eq(2L), eq(60L), any());
+    }
+
+    @Test
+    public void testInteractWithPets_EmptyBatch() {
+        assertThrows(IllegalArgumentException.class, () -> petService.interactWithPets(List.of()));
+        verify(petRepository, never()).findByIdIn(any());
+    }
+
+    @Test
+    public void testGetPetInteractionsPage_ReturnsKeysetCursor() {
+        // Arrange: the repository returns one row more than the requested page
+        LocalDateTime t = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(interactionRepository.findByPetIdOrderByTimestampDesc(
+                eq(1L), isNull(), isNull(), isNull(), isNull(), isNull(), eq(Limit.of(3))))
+                .thenReturn(Arrays.asList(
+                        new InteractionSummaryDTO(30L, "FEED", 30, "a", t),
+                        new InteractionSummaryDTO(20L, "PLAY", 20, "b", t.minusHours(1)),
+                        new InteractionSummaryDTO(10L, "PET", 10, "c", t.minusHours(2))));
+
+        // Act
+        InteractionPageDTO page = petService.getPetInteractionsPage(1L, null, null, null, null, 2);
+
+        // Assert: extra row trimmed, cursor points at the last item returned
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.isHasMore());
+        assertEquals("2024-01-01T11:00_20", page.getNextCursor());
+        assertEquals(testPet.getName(), page.getPet().getName());
+    }
+
+    @Test
+    public void testGetPetInteractionsPage_DecodesCursor() {
+        LocalDateTime t = LocalDateTime.of(2024, 1, 1, 11, 0);
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+        when(interactionRepository.findByPetIdOrderByTimestampDesc(
+                eq(1L), eq("FEED"), isNull(), isNull(), eq(t), eq(20L), eq(Limit.of(3))))
+                .thenReturn(List.of());
+
+        InteractionPageDTO page = petService.getPetInteractionsPage(1L, "FEED", null, null, "2024-01-01T11:00_20", 2);
+
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testGetPetInteractionsPage_InvalidCursor() {
+        when(petRepository.findById(1L)).thenReturn(Optional.of(testPet));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> petService.getPetInteractionsPage(1L, null, null, null, "not-a-cursor", 2));
+    }
+
+    private PetInteractionStats stats(String type, long count, long valueSum, LocalDateTime lastTimestamp) {
+        PetInteractionStats stats = new PetInteractionStats();
+        stats.setPetId(1L);
+        stats.setType(type);
+        stats.setInteractionCount(count);
+        stats.setValueSum(valueSum);
+        stats.setLastTimestamp(lastTimestamp);
+        return stats;
+    }
+
+    private InteractionCreateDTO interactionRequest(Long petId, String type) {
+        InteractionCreateDTO request = new InteractionCreateDTO();
+        request.setPetId(petId);
+        request.setType(type);
+        return request;
+    }
+
+    /**
+     * Snapshot of the pet as PetSnapshotCache returns it
+     */
+    private static PetProjectionDTO snapshotOf(Pet pet) {
+        return new PetProjectionDTO(pet.getId(), pet.getName(), pet.getDescription(), pet.getType(),
+                pet.getImageUrl(), pet.getHunger(), pet.getHappiness(), pet.getHealth(), pet.getEnergy(),
+                pet.getLastInteraction(), PetStateCalculator.snapshotTime(pet.getStatesUpdatedAt(), pet.getLastInteraction()),
+                pet.getCreatedAt(), pet.getOwner().getId(), pet.getOwner().getUsername());
     }
-}
\ No newline at end of file
+}
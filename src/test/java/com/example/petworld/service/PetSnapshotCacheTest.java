@@ -0,0 +1,200 @@
+package com.example.petworld.service;
+
+import com.example.petworld.dto.Pet.PetCacheStatsDTO;
+import com.example.petworld.dto.Pet.PetProjectionDTO;
+import com.example.petworld.events.UserChangedEvent;
+import com.example.petworld.infrastructure.PetRepository;
+import com.example.petworld.infrastructure.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the pet snapshot cache: read-through, invalidation after commit, owner lists
+ * and loads that race with an invalidation
+ */
+@ExtendWith(MockitoExtension.class)
+public class PetSnapshotCacheTest {
+
+    @Mock
+    private PetRepository petRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private PetSnapshotCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new PetSnapshotCache(petRepository, userRepository);
+        cache.init();
+    }
+
+    @Test
+    public void testSecondReadIsServedFromTheCache() {
+        when(petRepository.findProjectionById(1L)).thenReturn(Optional.of(snapshot(1L, "Fluffy", 1L, "owner")));
+
+        assertEquals("Fluffy", cache.get(1L).orElseThrow().getName());
+        assertEquals("Fluffy", cache.get(1L).orElseThrow().getName());
+
+        verify(petRepository, times(1)).findProjectionById(1L);
+        PetCacheStatsDTO stats = cache.getStats();
+        assertTrue(stats.isEnabled());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRatio());
+        assertEquals(1, stats.getLoads());
+    }
+
+    @Test
+    public void testMissingPetIsNotCached() {
+        when(petRepository.findProjectionById(9L)).thenReturn(Optional.empty());
+
+        assertTrue(cache.get(9L).isEmpty());
+        assertTrue(cache.get(9L).isEmpty());
+
+        verify(petRepository, times(2)).findProjectionById(9L);
+    }
+
+    @Test
+    public void testInvalidationWaitsForTheCommit() {
+        when(petRepository.findProjectionById(1L))
+                .thenReturn(Optional.of(snapshot(1L, "Fluffy", 1L, "owner")))
+                .thenReturn(Optional.of(snapshot(1L, "Renamed", 1L, "owner")));
+        cache.get(1L);
+
+        // Con la transacción abierta, otra petición sigue viendo la foto confirmada
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidatePet(1L);
+            assertEquals("Fluffy", cache.get(1L).orElseThrow().getName());
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("Renamed", cache.get(1L).orElseThrow().getName());
+        assertEquals(1, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void testRolledBackChangeKeepsTheEntry() {
+        when(petRepository.findProjectionById(1L)).thenReturn(Optional.of(snapshot(1L, "Fluffy", 1L, "owner")));
+        cache.get(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidatePet(1L);
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        cache.get(1L);
+        verify(petRepository, times(1)).findProjectionById(1L);
+    }
+
+    @Test
+    public void testOwnerListLoadsOnlyMissingPetsInOneQuery() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(petRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L, 2L, 3L));
+        when(petRepository.findProjectionById(2L)).thenReturn(Optional.of(snapshot(2L, "Two", 1L, "owner")));
+        when(petRepository.findProjectionsByIdIn(List.of(1L, 3L)))
+                .thenReturn(List.of(snapshot(3L, "Three", 1L, "owner"), snapshot(1L, "One", 1L, "owner")));
+        cache.get(2L);
+
+        List<PetProjectionDTO> pets = cache.getByOwner(1L).orElseThrow();
+        assertEquals(List.of("One", "Two", "Three"), pets.stream().map(PetProjectionDTO::getName).toList());
+
+        // Segunda lectura: lista y fotos salen de la caché
+        assertEquals(3, cache.getByOwner(1L).orElseThrow().size());
+        verify(petRepository, times(1)).findIdsByOwnerId(1L);
+        verify(petRepository, times(1)).findProjectionsByIdIn(any());
+        verify(userRepository, times(1)).existsById(1L);
+    }
+
+    @Test
+    public void testUnknownOwnerIsNotCached() {
+        when(userRepository.existsById(5L)).thenReturn(false);
+
+        assertTrue(cache.getByOwner(5L).isEmpty());
+        assertTrue(cache.getByOwner(5L).isEmpty());
+
+        verify(userRepository, times(2)).existsById(5L);
+        verify(petRepository, never()).findIdsByOwnerId(anyLong());
+    }
+
+    @Test
+    public void testBulkLoadRacingWithAnInvalidationIsNotStored() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(petRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L));
+        // Mientras se lee la foto, otra transacción cambia la mascota y se confirma
+        when(petRepository.findProjectionsByIdIn(List.of(1L))).thenAnswer(invocation -> {
+            cache.invalidatePet(1L);
+            return List.of(snapshot(1L, "Stale", 1L, "owner"));
+        });
+        when(petRepository.findProjectionById(1L)).thenReturn(Optional.of(snapshot(1L, "Fresh", 1L, "owner")));
+
+        assertEquals("Stale", cache.getByOwner(1L).orElseThrow().get(0).getName());
+
+        assertEquals("Fresh", cache.get(1L).orElseThrow().getName());
+        assertEquals(1, cache.getStats().getDiscardedLoads());
+    }
+
+    @Test
+    public void testUserChangeForgetsTheOwnerPetsAndList() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(petRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L));
+        when(petRepository.findProjectionsByIdIn(List.of(1L))).thenReturn(List.of(snapshot(1L, "Fluffy", 1L, "before")));
+        when(petRepository.findProjectionById(1L)).thenReturn(Optional.of(snapshot(1L, "Fluffy", 1L, "after")));
+        when(petRepository.findProjectionById(2L)).thenReturn(Optional.of(snapshot(2L, "Other", 2L, "someone")));
+        cache.getByOwner(1L);
+        cache.get(2L);
+
+        cache.handleUserChangedEvent(new UserChangedEvent(this, 1L, "owner@test.com"));
+
+        assertEquals("after", cache.get(1L).orElseThrow().getOwnerUsername());
+        cache.get(2L);
+        verify(petRepository, times(1)).findProjectionById(2L);
+        cache.getByOwner(1L);
+        verify(petRepository, times(2)).findIdsByOwnerId(1L);
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysReadsTheDatabase() {
+        cache = new PetSnapshotCache(petRepository, userRepository);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.init();
+        when(petRepository.findProjectionById(1L)).thenReturn(Optional.of(snapshot(1L, "Fluffy", 1L, "owner")));
+
+        cache.get(1L);
+        cache.get(1L);
+        cache.invalidatePet(1L);
+
+        verify(petRepository, times(2)).findProjectionById(1L);
+        assertFalse(cache.getStats().isEnabled());
+        assertEquals(2, cache.getStats().getLoads());
+    }
+
+    private static PetProjectionDTO snapshot(Long id, String name, Long ownerId, String ownerUsername) {
+        LocalDateTime now = LocalDateTime.now();
+        return new PetProjectionDTO(id, name, "A pet for the cache tests", "Dog", "http://example.com/pet.jpg",
+                100, 100, 100, 100, now, now, now, ownerId, ownerUsername);
+    }
+}
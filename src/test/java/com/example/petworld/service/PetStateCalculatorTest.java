@@ -0,0 +1,90 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.service.PetStateCalculator.PetState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PetStateCalculator
+ * These tests verify that pet stats are a deterministic function of the elapsed time
+ */
+public class PetStateCalculatorTest {
+
+    private static final LocalDateTime LAST_INTERACTION = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    public void testComputeState_NoElapsedTime() {
+        PetState state = PetStateCalculator.computeState(70, 60, 50, 40, LAST_INTERACTION, LAST_INTERACTION);
+
+        assertEquals(70, state.getHunger());
+        assertEquals(60, state.getHappiness());
+        assertEquals(50, state.getHealth());
+        assertEquals(40, state.getEnergy());
+    }
+
+    @Test
+    public void testComputeState_DecaysWithElapsedTime() {
+        PetState state = PetStateCalculator.computeState(100, 100, 100, 50,
+                LAST_INTERACTION, LAST_INTERACTION.plusHours(2));
+
+        assertEquals(90, state.getHunger()); // 5 per hour
+        assertEquals(94, state.getHappiness()); // 3 per hour
+        assertEquals(100, state.getHealth()); // Not hungry or sad yet
+        assertEquals(54, state.getEnergy()); // Recovers 2 per hour
+    }
+
+    @Test
+    public void testComputeState_HungerAndSadnessHurtHealth() {
+        PetState state = PetStateCalculator.computeState(30, 20, 100, 100,
+                LAST_INTERACTION, LAST_INTERACTION.plusHours(10));
+
+        assertEquals(0, state.getHunger());
+        assertEquals(0, state.getHappiness());
+        assertEquals(70, state.getHealth()); // 10h * 2 (hungry) + 10h * 1 (sad)
+        assertEquals(100, state.getEnergy());
+    }
+
+    @Test
+    public void testComputeState_IsDeterministic() {
+        LocalDateTime now = LAST_INTERACTION.plusMinutes(437);
+
+        PetState first = PetStateCalculator.computeState(80, 80, 80, 80, LAST_INTERACTION, now);
+        PetState second = PetStateCalculator.computeState(80, 80, 80, 80, LAST_INTERACTION, now);
+
+        assertEquals(first.getHunger(), second.getHunger());
+        assertEquals(first.getHappiness(), second.getHappiness());
+        assertEquals(first.getHealth(), second.getHealth());
+        assertEquals(first.getEnergy(), second.getEnergy());
+    }
+
+    @Test
+    public void testComputeState_FromPetUsesTheSnapshotTime() {
+        Pet pet = new Pet();
+        pet.setHunger(90);
+        pet.setHappiness(94);
+        pet.setHealth(100);
+        pet.setEnergy(54);
+        pet.setLastInteraction(LAST_INTERACTION);
+        pet.setStatesUpdatedAt(LAST_INTERACTION.plusHours(2)); // Decay already applied up to here
+
+        PetState state = PetStateCalculator.computeState(pet, LAST_INTERACTION.plusHours(3));
+
+        assertEquals(85, state.getHunger());
+        assertEquals(91, state.getHappiness());
+        assertEquals(56, state.getEnergy());
+    }
+
+    @Test
+    public void testComputeState_FromPetFallsBackToLastInteraction() {
+        Pet pet = new Pet();
+        pet.setLastInteraction(LAST_INTERACTION);
+
+        PetState state = PetStateCalculator.computeState(pet, LAST_INTERACTION.plusHours(2));
+
+        assertEquals(90, state.getHunger());
+    }
+}
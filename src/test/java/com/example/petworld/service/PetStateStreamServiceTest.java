@@ -0,0 +1,190 @@
+package com.example.petworld.service;
+
+import com.example.petworld.domain.Pet;
+import com.example.petworld.dto.Pet.PetStateStreamStatsDTO;
+import com.example.petworld.events.PetStateChangedEvent;
+import com.example.petworld.infrastructure.PetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PetStateStreamService delivery: a client whose writes block must not delay
+ * the others, its queue stays bounded and it is closed after the write timeout
+ */
+@ExtendWith(MockitoExtension.class)
+public class PetStateStreamServiceTest {
+
+    private static final long SLOW_PET = 1L;
+    private static final long FAST_PET = 2L;
+
+    @Mock
+    private PetRepository petRepository;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>();
+    private final BlockingEmitter slow = new BlockingEmitter(release);
+    private final BlockingEmitter fast = new BlockingEmitter(null);
+    private final LocalDateTime now = LocalDateTime.now();
+    private PetStateStreamService service;
+
+    @BeforeEach
+    public void setup() {
+        service = new PetStateStreamService(petRepository) {
+            @Override
+            SseEmitter newEmitter() {
+                return emitters.poll();
+            }
+        };
+        // Los envíos periódicos se lanzan a mano
+        ReflectionTestUtils.setField(service, "coalesceWindowMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "heartbeatIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "writeTimeoutMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "sendThreads", 2);
+        ReflectionTestUtils.setField(service, "sendQueueSize", 4);
+        service.init();
+
+        when(petRepository.findById(SLOW_PET)).thenReturn(Optional.of(pet(SLOW_PET)));
+        when(petRepository.findById(FAST_PET)).thenReturn(Optional.of(pet(FAST_PET)));
+        emitters.add(slow);
+        emitters.add(fast);
+        service.subscribe(SLOW_PET);
+        service.subscribe(FAST_PET);
+        assertTrue(waitFor(() -> slow.blocked.get() == 1 && fast.sent.get() == 1));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    public void testBlockedClientDoesNotDelayOthers() {
+        changeBoth(60);
+
+        assertTrue(waitFor(() -> fast.sent.get() == 2));
+        assertEquals(0, slow.sent.get());
+    }
+
+    @Test
+    public void testBlockedClientQueueIsBoundedAndResyncsWithFullState() {
+        for (int hunger = 60; hunger < 70; hunger++) {
+            changeBoth(hunger);
+            // El cliente rápido recibe cada cambio aunque el lento siga bloqueado
+            int expected = hunger - 60 + 2;
+            assertTrue(waitFor(() -> fast.sent.get() == expected));
+        }
+
+        PetStateStreamStatsDTO stats = service.getStats();
+        assertTrue(stats.getDroppedEvents() > 0);
+
+        // Al liberarse envía el estado inicial y como mucho una cola llena
+        release.countDown();
+        assertTrue(waitFor(() -> slow.sent.get() >= 2));
+        assertTrue(slow.sent.get() <= 1 + 4);
+    }
+
+    @Test
+    public void testClientBlockedPastTheWriteTimeoutIsClosed() throws InterruptedException {
+        ReflectionTestUtils.setField(service, "writeTimeoutMs", 50L);
+        Thread.sleep(100);
+
+        service.closeStalled();
+
+        PetStateStreamStatsDTO stats = service.getStats();
+        assertEquals(1, stats.getSlowDisconnects());
+        assertEquals(1, stats.getSubscribers());
+        assertEquals(1, stats.getWatchedPets());
+
+        // Lo que llega después ya no se encola para el cliente cerrado
+        changeBoth(60);
+        assertTrue(waitFor(() -> fast.sent.get() == 2));
+        // Al liberarse solo termina el envío que estaba bloqueado
+        release.countDown();
+        assertTrue(waitFor(() -> slow.sent.get() == 1));
+        Thread.sleep(100);
+        assertEquals(1, slow.sent.get());
+    }
+
+    private void changeBoth(int hunger) {
+        service.onEvents(List.of(event(SLOW_PET, hunger), event(FAST_PET, hunger)));
+        service.flush();
+    }
+
+    private PetStateChangedEvent event(long petId, int hunger) {
+        return new PetStateChangedEvent(petId, "Dog", 1L, hunger, 100, 100, 100, now);
+    }
+
+    private Pet pet(long id) {
+        Pet pet = new Pet();
+        pet.setId(id);
+        pet.setHunger(50);
+        pet.setHappiness(100);
+        pet.setHealth(100);
+        pet.setEnergy(100);
+        pet.setLastInteraction(now);
+        pet.setStatesUpdatedAt(now);
+        return pet;
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Emitter whose first send blocks until the latch is released (or never, if null)
+     */
+    private static class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final AtomicInteger blocked = new AtomicInteger();
+        private final AtomicInteger sent = new AtomicInteger();
+
+        BlockingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (release != null && blocked.getAndIncrement() == 0) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            sent.incrementAndGet();
+        }
+    }
+}
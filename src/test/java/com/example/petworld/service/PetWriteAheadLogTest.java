@@ -0,0 +1,102 @@
+package com.example.petworld.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PetWriteAheadLog recovery after a crash in the middle of a write
+ */
+public class PetWriteAheadLogTest {
+
+    private static final long PET_ID = 7L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    @TempDir
+    Path walDir;
+
+    private Path file;
+
+    @BeforeEach
+    public void setup() {
+        file = walDir.resolve("pet-" + PET_ID + ".wal");
+    }
+
+    @Test
+    public void testReadReturnsAppendedEntriesInOrder() throws Exception {
+        try (PetWriteAheadLog wal = new PetWriteAheadLog(walDir, PET_ID, false)) {
+            wal.append(List.of(entry(T0, "FEED"), entry(T0.plusSeconds(1), "CUSTOM TYPE")));
+        }
+
+        List<PetWriteAheadLog.Entry> entries = new PetWriteAheadLog(walDir, PET_ID, false).read();
+
+        assertEquals(2, entries.size());
+        assertEquals(T0, entries.get(0).getTimestamp());
+        assertEquals("FEED", entries.get(0).getType());
+        assertEquals("CUSTOM TYPE", entries.get(1).getType());
+    }
+
+    @Test
+    public void testTornTailWithTruncatedTypeIsDiscardedAndRepaired() throws Exception {
+        try (PetWriteAheadLog wal = new PetWriteAheadLog(walDir, PET_ID, false)) {
+            wal.append(List.of(entry(T0, "FEED")));
+        }
+        long validLength = Files.size(file);
+        // Caída a mitad de la escritura: timestamp completo y tipo cortado, sin fin de línea
+        Files.writeString(file, T0.plusSeconds(1) + " FE", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        PetWriteAheadLog recovered = new PetWriteAheadLog(walDir, PET_ID, false);
+        List<PetWriteAheadLog.Entry> entries = recovered.read();
+
+        assertEquals(1, entries.size());
+        assertEquals("FEED", entries.get(0).getType());
+        assertEquals(validLength, Files.size(file));
+
+        // Lo que se registra después no queda pegado a la línea cortada
+        recovered.append(List.of(entry(T0.plusSeconds(2), "PLAY")));
+        recovered.close();
+        List<PetWriteAheadLog.Entry> reread = new PetWriteAheadLog(walDir, PET_ID, false).read();
+        assertEquals(List.of("FEED", "PLAY"), reread.stream().map(PetWriteAheadLog.Entry::getType).toList());
+    }
+
+    @Test
+    public void testTornTailWithLineEndButCutRecordIsDiscarded() throws Exception {
+        try (PetWriteAheadLog wal = new PetWriteAheadLog(walDir, PET_ID, false)) {
+            wal.append(List.of(entry(T0, "HEAL")));
+        }
+        // Una línea completa cuyo contenido no coincide con su CRC
+        Files.writeString(file, T0.plusSeconds(1) + " FE 0badc0de\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<PetWriteAheadLog.Entry> entries = new PetWriteAheadLog(walDir, PET_ID, false).read();
+
+        assertEquals(List.of("HEAL"), entries.stream().map(PetWriteAheadLog.Entry::getType).toList());
+    }
+
+    @Test
+    public void testReadStopsAtFirstMalformedEntry() throws Exception {
+        try (PetWriteAheadLog wal = new PetWriteAheadLog(walDir, PET_ID, false)) {
+            wal.append(List.of(entry(T0, "FEED")));
+        }
+        Files.writeString(file, "not-a-timestamp PLAY\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (PetWriteAheadLog wal = new PetWriteAheadLog(walDir, PET_ID, false)) {
+            wal.append(List.of(entry(T0.plusSeconds(2), "HEAL")));
+        }
+
+        List<PetWriteAheadLog.Entry> entries = new PetWriteAheadLog(walDir, PET_ID, false).read();
+
+        assertEquals(List.of("FEED"), entries.stream().map(PetWriteAheadLog.Entry::getType).toList());
+    }
+
+    private static PetWriteAheadLog.Entry entry(LocalDateTime timestamp, String type) {
+        return new PetWriteAheadLog.Entry(timestamp, type);
+    }
+}
@@ -3,15 +3,16 @@ package com.example.petworld.service;
 import com.example.petworld.domain.User;
 import com.example.petworld.dto.User.UserCreateDTO;
 import com.example.petworld.dto.User.UserResponseDTO;
+import com.example.petworld.events.UserChangedEvent;
 import com.example.petworld.exception.ResourceNotFoundException;
 import com.example.petworld.infrastructure.UserRepository;
-import com.example.petworld.infrastructure.PetRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
 import java.util.List;
@@ -19,6 +20,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -32,7 +34,10 @@ public class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PetRepository petRepository;
+    private PetSnapshotCache petSnapshotCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private UserService userService;
@@ -154,4 +159,18 @@ public class UserServiceTest {
         verify(userRepository).findById(1L);
         verify(userRepository).save(any(User.class));
     }
+
+    @Test
+    public void testDeleteUser_InvalidatesCachedUser() {
+        // Arrange: Configure userRepository to return our test user
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act: Delete the user
+        userService.deleteUser(1L);
+
+        // Assert: The user is deleted and an event is published so cached credentials are dropped
+        verify(userRepository).delete(testUser);
+        verify(eventPublisher).publishEvent(argThat((UserChangedEvent event) ->
+                event.getUserId().equals(1L) && "test@example.com".equals(event.getEmail())));
+    }
 }
\ No newline at end of file